@@ -0,0 +1,206 @@
+package forohfor.scryfall.api;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+import org.json.simple.JSONObject;
+
+/**
+ * Reads a Scryfall bulk data file, a JSON array of card objects that can run
+ * to hundreds of megabytes. Cards are decoded one at a time as the file is
+ * read, so only the current card is ever held in memory. Gzip-compressed
+ * files are recognised and decompressed automatically.
+ * @author ForOhForError
+ */
+
+public class BulkDataReader implements CardIterator {
+
+	private final JSONStreamReader in;
+	private Card next;
+	private boolean closed;
+	private boolean compiled;
+	private int read;
+
+	/**
+	 * Creates a reader over a bulk data stream, which it takes ownership of.
+	 * Names, type lines and artists repeated across printings are shared
+	 * through a symbol table that lives only as long as this reader.
+	 * @param in The plain or gzip-compressed stream to read
+	 * @throws IOException If the stream cannot be read
+	 */
+	public BulkDataReader(InputStream in) throws IOException
+	{
+		this.in = new JSONStreamReader(decompress(in), new SymbolTable());
+	}
+
+	/**
+	 * Makes the reader produce CompiledCards, which cost more to build but
+	 * less to query. Worth it when the cards will be kept and searched.
+	 * @param compiled True to produce compiled cards
+	 * @return This reader
+	 */
+	public BulkDataReader withCompiledCards(boolean compiled)
+	{
+		this.compiled = compiled;
+		return this;
+	}
+
+	/**
+	 * Opens a bulk data file.
+	 * @param file The plain or gzip-compressed file to read
+	 * @return A reader over the file's cards
+	 * @throws IOException If the file cannot be opened
+	 */
+	public static BulkDataReader open(Path file) throws IOException
+	{
+		return new BulkDataReader(Files.newInputStream(file));
+	}
+
+	/**
+	 * Passes every card in a bulk data file to a sink.
+	 * @param file The plain or gzip-compressed file to read
+	 * @param sink The sink to receive the cards
+	 * @return The number of cards read
+	 * @throws IOException If the file cannot be read or decoded, or the sink fails
+	 */
+	public static long read(Path file, CardSink sink) throws IOException
+	{
+		try(BulkDataReader reader = open(file))
+		{
+			return reader.readAll(sink);
+		}
+	}
+
+	/**
+	 * Passes every remaining card to a sink, then closes this reader.
+	 * @param sink The sink to receive the cards
+	 * @return The number of cards passed to the sink
+	 * @throws IOException If the stream cannot be read or decoded, or the sink fails
+	 */
+	public long readAll(CardSink sink) throws IOException
+	{
+		long count = 0;
+		try
+		{
+			Card card;
+			while((card = readNext()) != null)
+			{
+				sink.accept(card);
+				count++;
+			}
+		}
+		finally
+		{
+			close();
+		}
+		return count;
+	}
+
+	/**
+	 * @return The number of cards read so far.
+	 */
+	public int getCardsRead()
+	{
+		return read;
+	}
+
+	/**
+	 * @return Always null, since a bulk file does not state its length up front.
+	 */
+	@Override
+	public Integer getTotalCards()
+	{
+		return null;
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		if(next == null && !closed)
+		{
+			try
+			{
+				next = readNext();
+			}
+			catch(IOException e)
+			{
+				close();
+				throw new UncheckedIOException(e);
+			}
+		}
+		return next != null;
+	}
+
+	@Override
+	public Card next()
+	{
+		if(!hasNext())
+		{
+			throw new NoSuchElementException();
+		}
+		Card card = next;
+		next = null;
+		return card;
+	}
+
+	@Override
+	public void close()
+	{
+		if(!closed)
+		{
+			closed = true;
+			try
+			{
+				in.close();
+			}
+			catch(IOException e)
+			{
+			}
+		}
+	}
+
+	private Card readNext() throws IOException
+	{
+		if(next != null)
+		{
+			Card card = next;
+			next = null;
+			return card;
+		}
+		if(closed)
+		{
+			return null;
+		}
+		JSONObject cardData = in.nextObject();
+		if(cardData == null)
+		{
+			close();
+			return null;
+		}
+		read++;
+		return compiled ? CompiledCard.fromOwnedJSON(cardData) : Card.fromOwnedJSON(cardData);
+	}
+
+	/**
+	 * Wraps the stream in a gzip decoder if it starts with the gzip magic number.
+	 */
+	private static InputStream decompress(InputStream in) throws IOException
+	{
+		BufferedInputStream buffered = new BufferedInputStream(in, 1 << 16);
+		buffered.mark(2);
+		int first = buffered.read();
+		int second = buffered.read();
+		buffered.reset();
+		if(first == 0x1f && second == 0x8b)
+		{
+			return new BufferedInputStream(new GZIPInputStream(buffered, 1 << 16), 1 << 16);
+		}
+		return buffered;
+	}
+}
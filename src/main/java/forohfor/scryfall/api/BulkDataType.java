@@ -0,0 +1,42 @@
+package forohfor.scryfall.api;
+
+/**
+ * The card files Scryfall publishes as bulk data, refreshed about once a day.
+ * @author ForOhForError
+ */
+
+public enum BulkDataType {
+
+	/**
+	 * One card object per Oracle ID, using the most up-to-date recognisable printing.
+	 */
+	ORACLE_CARDS("oracle_cards"),
+	/**
+	 * One card object per unique artwork.
+	 */
+	UNIQUE_ARTWORK("unique_artwork"),
+	/**
+	 * Every card object in English, or the printed language if the card is
+	 * only available in one other language.
+	 */
+	DEFAULT_CARDS("default_cards"),
+	/**
+	 * Every card object in every language.
+	 */
+	ALL_CARDS("all_cards");
+
+	private final String type;
+
+	private BulkDataType(String type)
+	{
+		this.type = type;
+	}
+
+	/**
+	 * @return The type as named by the API, such as "default_cards".
+	 */
+	public String getType()
+	{
+		return type;
+	}
+}
@@ -2,19 +2,19 @@ package forohfor.scryfall.api;
 
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
 
-import javax.imageio.ImageIO;
-
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 
+import forohfor.scryfall.image.ImageService;
+
 /**
  * Represents a single printing of one card. "Special" cards (transforming/meld cards, for instance),
  * will have one Card object for each state of the card.
@@ -33,18 +33,50 @@ public class Card {
 	 */
 	public Card(JSONObject cardData)
 	{
-		json = new JSONObject(cardData);
+		this(cardData, true);
+	}
+
+	/**
+	 * Constructs a Card object from a JSON object, optionally taking it over
+	 * rather than copying it.
+	 * @param cardData
+	 * @param copy False to keep the object and its nested objects as given
+	 */
+	protected Card(JSONObject cardData, boolean copy)
+	{
+		json = copy ? new JSONObject(cardData) : cardData;
 
 		if(cardData.containsKey("all_parts"))
 		{
-			allParts = getReferences(cardData,"all_parts");
+			allParts = getReferences(cardData,"all_parts",copy);
 		}
 		if(cardData.containsKey("card_faces"))
 		{
-			cardFaces = getFaces(cardData,"card_faces");
+			cardFaces = getFaces(cardData,"card_faces",copy);
 		}
 	}
 
+	/**
+	 * Constructs a Card with no JSON data of its own, for subclasses that
+	 * supply it by overriding {@link #getJSONData()}, {@link #getCardFaces()}
+	 * and {@link #getAllParts()}.
+	 */
+	protected Card()
+	{
+	}
+
+	/**
+	 * Builds a Card that takes ownership of a freshly decoded JSON object
+	 * instead of copying it. Neither the object nor anything nested in it may
+	 * be modified by the caller afterwards.
+	 * @param cardData The card's JSON data
+	 * @return The card
+	 */
+	public static Card fromOwnedJSON(JSONObject cardData)
+	{
+		return new Card(cardData, false);
+	}
+
 	/**
 	 * @return The underlying JSON data for this card.
 	 */
@@ -62,14 +94,22 @@ public class Card {
 	}
 
 	/**
+	 * Fetches the image through {@link ImageService#getShared()}, which can be
+	 * replaced with one that caches.
 	 * @param format - the image format to fetch
-	 * @return The image for this card, in the given format
+	 * @return The image for this card, in the given format, or null if it
+	 * could not be fetched
 	 */
 	public BufferedImage getImage(String format)
 	{
+		String uri = getImageURI(format);
+		if(uri == null)
+		{
+			return null;
+		}
 		try
 		{
-			return ImageIO.read(new URL(getImageURI(format)));
+			return ImageService.getShared().getImage(uri);
 		}
 		catch(IOException e)
 		{
@@ -80,7 +120,7 @@ public class Card {
 	/**
 	 * Utility method for reading each part of multipart cards.
 	 */
-	private static ArrayList<CardReference> getReferences(JSONObject data, String key)
+	private static ArrayList<CardReference> getReferences(JSONObject data, String key, boolean copy)
 	{
 		Object obj = data.get(key);
 
@@ -90,7 +130,7 @@ public class Card {
 			for(Object o:arr)
 			{
 				JSONObject j = (JSONObject)o;
-				refs.add(new CardReference(j));
+				refs.add(new CardReference(j, copy));
 			}
 		}
 		return refs;
@@ -99,7 +139,7 @@ public class Card {
 	/**
 	 * Utility method for reading each part of multifaced cards.
 	 */
-	private static ArrayList<CardFace> getFaces(JSONObject data, String key)
+	private static ArrayList<CardFace> getFaces(JSONObject data, String key, boolean copy)
 	{
 		Object obj = data.get(key);
 
@@ -109,7 +149,7 @@ public class Card {
 			for(Object o:arr)
 			{
 				JSONObject j = (JSONObject)o;
-				refs.add(new CardFace(j));
+				refs.add(new CardFace(j, copy));
 			}
 		}
 		return refs;
@@ -120,7 +160,8 @@ public class Card {
 	 */
 	public boolean isMultifaced()
 	{
-		return cardFaces != null && cardFaces.size() > 0;
+		List<CardFace> faces = getCardFaces();
+		return faces != null && faces.size() > 0;
 	}
 
 	/**
@@ -128,7 +169,8 @@ public class Card {
 	 */
 	public boolean isMultipart()
 	{
-		return allParts != null && allParts.size() > 0;
+		List<CardReference> parts = getAllParts();
+		return parts != null && parts.size() > 0;
 	}
 
 	/**
@@ -141,7 +183,7 @@ public class Card {
 	 */
 	public Integer getArenaID()
 	{
-		return JSONUtil.getIntData(json, "arena_id");
+		return JSONUtil.getIntData(getJSONData(), "arena_id");
 	}
 
 	/**
@@ -149,7 +191,7 @@ public class Card {
 	 */
 	public UUID getScryfallUUID()
 	{
-		return UUID.fromString(JSONUtil.getStringData(json, "id"));
+		return UUID.fromString(JSONUtil.getStringData(getJSONData(), "id"));
 	}
 
 	/**
@@ -157,7 +199,7 @@ public class Card {
 	 */
 	public String getLang()
 	{
-		return JSONUtil.getStringData(json, "lang");
+		return JSONUtil.getStringData(getJSONData(), "lang");
 	}
 
 	/**
@@ -166,7 +208,7 @@ public class Card {
 	 */
 	public Integer getMtgoID()
 	{
-		return JSONUtil.getIntData(json, "mtgo_id");
+		return JSONUtil.getIntData(getJSONData(), "mtgo_id");
 	}
 
 	/**
@@ -175,7 +217,7 @@ public class Card {
 	 */
 	public Integer getMtgoFoilID()
 	{
-		return JSONUtil.getIntData(json, "mtgo_foil_id");
+		return JSONUtil.getIntData(getJSONData(), "mtgo_foil_id");
 	}
 
 	/**
@@ -185,7 +227,7 @@ public class Card {
 	 */
 	public List<Integer> getMultiverseIDs()
 	{
-		return Arrays.asList(JSONUtil.getIntArrayData(json, "multiverse_ids"));
+		return Arrays.asList(JSONUtil.getIntArrayData(getJSONData(), "multiverse_ids"));
 	}
 
 	/**
@@ -193,7 +235,7 @@ public class Card {
 	 */
 	public Integer getTCGplayerID()
 	{
-		return JSONUtil.getIntData(json, "tcgplayer_id");
+		return JSONUtil.getIntData(getJSONData(), "tcgplayer_id");
 	}
 
 	/**
@@ -204,7 +246,7 @@ public class Card {
 	 */
 	public UUID getOracleID()
 	{
-		return UUID.fromString(JSONUtil.getStringData(json, "oracle_id"));
+		return UUID.fromString(JSONUtil.getStringData(getJSONData(), "oracle_id"));
 	}
 
 	/**
@@ -213,7 +255,7 @@ public class Card {
 	 */
 	public String getPrintsSearchURI()
 	{
-		return JSONUtil.getStringData(json, "prints_search_uri");
+		return JSONUtil.getStringData(getJSONData(), "prints_search_uri");
 	}
 
 	/**
@@ -221,7 +263,7 @@ public class Card {
 	 */
 	public String getRulingsURI()
 	{
-		return JSONUtil.getStringData(json, "rulings_uri");
+		return JSONUtil.getStringData(getJSONData(), "rulings_uri");
 	}
 
 	/**
@@ -229,7 +271,7 @@ public class Card {
 	 */
 	public String getScryfallURI()
 	{
-		return JSONUtil.getStringData(json, "scryfall_uri");
+		return JSONUtil.getStringData(getJSONData(), "scryfall_uri");
 	}
 
 	/**
@@ -237,7 +279,7 @@ public class Card {
 	 */
 	public String getURI()
 	{
-		return JSONUtil.getStringData(json, "uri");
+		return JSONUtil.getStringData(getJSONData(), "uri");
 	}
 
 	/**
@@ -265,7 +307,7 @@ public class Card {
 	 */
 	public Double getCmc()
 	{
-		return JSONUtil.getDoubleData(json, "cmc");
+		return JSONUtil.getDoubleData(getJSONData(), "cmc");
 	}
 
 	/**
@@ -273,7 +315,7 @@ public class Card {
 	 */
 	public List<String> getKeywords()
 	{
-		return Arrays.asList(JSONUtil.getStringArrayData(json, "keywords"));
+		return Arrays.asList(JSONUtil.getStringArrayData(getJSONData(), "keywords"));
 	}
 
 	/**
@@ -282,7 +324,16 @@ public class Card {
 	 */
 	public List<String> getColors()
 	{
-		return Arrays.asList(JSONUtil.getStringArrayData(json, "colors"));
+		return Arrays.asList(JSONUtil.getStringArrayData(getJSONData(), "colors"));
+	}
+
+	/**
+	 * @return This card’s colors as a set, empty if the overall card has no
+	 * colors defined. 
+	 */
+	public EnumSet<Color> getColorSet()
+	{
+		return Color.fromMask(Color.toMask(JSONUtil.getArray(getJSONData(), "colors")));
 	}
 
 	/**
@@ -290,7 +341,15 @@ public class Card {
 	 */
 	public List<String> getColorIdentity()
 	{
-		return Arrays.asList(JSONUtil.getStringArrayData(json, "color_identity"));
+		return Arrays.asList(JSONUtil.getStringArrayData(getJSONData(), "color_identity"));
+	}
+
+	/**
+	 * @return This card’s color identity as a set. 
+	 */
+	public EnumSet<Color> getColorIdentitySet()
+	{
+		return Color.fromMask(Color.toMask(JSONUtil.getArray(getJSONData(), "color_identity")));
 	}
 
 	/**
@@ -299,7 +358,7 @@ public class Card {
 	 */
 	public List<String> getColorIndicator()
 	{
-		return Arrays.asList(JSONUtil.getStringArrayData(json, "color_indicator"));
+		return Arrays.asList(JSONUtil.getStringArrayData(getJSONData(), "color_indicator"));
 	}
 
 	/**
@@ -307,7 +366,7 @@ public class Card {
 	 */
 	public Integer getEDHRecRank()
 	{
-		return JSONUtil.getIntData(json, "edhrec_rank");
+		return JSONUtil.getIntData(getJSONData(), "edhrec_rank");
 	}
 
 	/**
@@ -315,7 +374,7 @@ public class Card {
 	 */
 	public boolean hasFoil()
 	{
-		return JSONUtil.getBoolData(json, "foil");
+		return JSONUtil.getBoolData(getJSONData(), "foil");
 	}
 
 	/**
@@ -324,14 +383,21 @@ public class Card {
 	 */
 	public String getHandModifier()
 	{
-		return JSONUtil.getStringData(json, "hand_modifier");
+		return JSONUtil.getStringData(getJSONData(), "hand_modifier");
 	}
 
 	/**
 	 * @return A code for this card’s layout.
 	 */
 	public String getLayout() {
-		return JSONUtil.getStringData(json, "layout");
+		return JSONUtil.getStringData(getJSONData(), "layout");
+	}
+
+	/**
+	 * @return This card’s layout, or null if it is one this library does not know.
+	 */
+	public Layout getLayoutType() {
+		return Layout.fromCode(getLayout());
 	}
 
 	/**
@@ -340,7 +406,7 @@ public class Card {
 	 */
 	@SuppressWarnings("unchecked")
 	public HashMap<String, String> getLegalities() {
-		return new HashMap<String, String>(JSONUtil.getObject(json, "legalities"));
+		return new HashMap<String, String>(JSONUtil.getObject(getJSONData(), "legalities"));
 	}
 
 	/**
@@ -350,11 +416,20 @@ public class Card {
 	 */
 	public String getLegality(String format) {
 		return JSONUtil.getStringData(
-			JSONUtil.getObject(json,"legalities"),
+			JSONUtil.getObject(getJSONData(),"legalities"),
 			format.toLowerCase()
 		);
 	}
 
+	/**
+	 * @return The legality of this card in the given play format, or null
+	 * if the format is not listed.
+	 * @param format the format to check. Case insensitive.
+	 */
+	public Legality getLegalityStatus(String format) {
+		return Legality.fromCode(getLegality(format));
+	}
+
 	/**
 	 * @return true if the card is strictly legal in the given play format. 
 	 * Cards that are restricted in the format will return false.
@@ -369,14 +444,14 @@ public class Card {
 	 * This value will contain a delta, such as +2. 
 	 */
 	public String getLifeModifier() {
-		return JSONUtil.getStringData(json, "life_modifier");
+		return JSONUtil.getStringData(getJSONData(), "life_modifier");
 	}
 
 	/**
 	 * @return This loyalty if any. Note that some cards have loyalties that are not numeric, such as X. 
 	 */
 	public String getLoyalty() {
-		return JSONUtil.getStringData(json, "loyalty");
+		return JSONUtil.getStringData(getJSONData(), "loyalty");
 	}
 
 	/**
@@ -387,7 +462,7 @@ public class Card {
 	 * Multi-faced cards will report this value in card faces. 
 	 */
 	public String getManaCost() {
-		return JSONUtil.getStringData(json, "mana_cost");
+		return JSONUtil.getStringData(getJSONData(), "mana_cost");
 	}
 
 	/**
@@ -396,7 +471,7 @@ public class Card {
 	 * both names separated by //.
 	 */
 	public String getName() {
-		return JSONUtil.getStringData(json, "name");
+		return JSONUtil.getStringData(getJSONData(), "name");
 	}
 
 	/**
@@ -404,14 +479,14 @@ public class Card {
 	 */
 	public boolean hasNonfoil()
 	{
-		return JSONUtil.getBoolData(json, "nonfoil");
+		return JSONUtil.getBoolData(getJSONData(), "nonfoil");
 	}
 
 	/**
 	 * @return The Oracle text for this card, if any. 
 	 */
 	public String getOracleText() {
-		return JSONUtil.getStringData(json, "oracle_text");
+		return JSONUtil.getStringData(getJSONData(), "oracle_text");
 	}
 
 	/**
@@ -419,7 +494,7 @@ public class Card {
 	 */
 	public boolean isOversized()
 	{
-		return JSONUtil.getBoolData(json, "oversized");
+		return JSONUtil.getBoolData(getJSONData(), "oversized");
 	}
 
 	/**
@@ -427,14 +502,14 @@ public class Card {
 	 * Note that some cards have powers that are not numeric, such as *. 
 	 */
 	public String getPower() {
-		return JSONUtil.getStringData(json, "power");
+		return JSONUtil.getStringData(getJSONData(), "power");
 	}
 
 	/**
 	 * @return True if this card is on the Reserved List. 
 	 */
 	public boolean isReserved() {
-		return JSONUtil.getBoolData(json, "reserved");
+		return JSONUtil.getBoolData(getJSONData(), "reserved");
 	}
 
 	/**
@@ -442,14 +517,14 @@ public class Card {
 	 * Note that some cards have toughnesses that are not numeric, such as *. 
 	 */
 	public String getToughness() {
-		return JSONUtil.getStringData(json, "toughness");
+		return JSONUtil.getStringData(getJSONData(), "toughness");
 	}
 
 	/**
 	 * @return The full type line of this card. 
 	 */
 	public String getTypeLine() {
-		return JSONUtil.getStringData(json, "type_line");
+		return JSONUtil.getStringData(getJSONData(), "type_line");
 	}
 
 	/**
@@ -461,7 +536,7 @@ public class Card {
 	 * Newly spoiled cards may not have this field yet. 
 	 */
 	public String getArtist() {
-		return JSONUtil.getStringData(json, "artist");
+		return JSONUtil.getStringData(getJSONData(), "artist");
 	}
 
 	/**
@@ -469,21 +544,21 @@ public class Card {
 	 */
 	public boolean isInBoosters()
 	{
-		return JSONUtil.getBoolData(json, "booster");
+		return JSONUtil.getBoolData(getJSONData(), "booster");
 	}
 
 	/**
 	 * @return This card’s border color: black, borderless, gold, silver, or white. 
 	 */
 	public String getBorderColor() {
-		return JSONUtil.getStringData(json, "border_color");
+		return JSONUtil.getStringData(getJSONData(), "border_color");
 	}
 
 	/**
 	 * @return The Scryfall ID for the card back design present on this card.
 	 */
 	public UUID CardBackUUID() {
-		return UUID.fromString(JSONUtil.getStringData(json, "card_back_id"));
+		return UUID.fromString(JSONUtil.getStringData(getJSONData(), "card_back_id"));
 	}
 
 	/**
@@ -492,7 +567,7 @@ public class Card {
 	 * such as letters or ★.
 	 */
 	public String getCollectorNumber() {
-		return JSONUtil.getStringData(json, "collector_number");
+		return JSONUtil.getStringData(getJSONData(), "collector_number");
 	}
 
 	/**
@@ -500,42 +575,42 @@ public class Card {
 	 * Nullable.
 	 */
 	public Boolean getContentWarning() {
-		return JSONUtil.getBoolData(json, "content_warning");
+		return JSONUtil.getBoolData(getJSONData(), "content_warning");
 	}
 
 	/**
 	 * @return True if this is a digital card on Magic Online.
 	 */
 	public boolean isDigital() {
-		return JSONUtil.getBoolData(json, "digital");
+		return JSONUtil.getBoolData(getJSONData(), "digital");
 	}
 
 	/**
 	 * @return The flavor text, if any. 
 	 */
 	public String getFlavorText() {
-		return JSONUtil.getStringData(json, "flavor_text");
+		return JSONUtil.getStringData(getJSONData(), "flavor_text");
 	}
 
 	/**
 	 * @return This card’s frame effects, if any.
 	 */
 	public List<String> getFrameEffects() {
-		return Arrays.asList(JSONUtil.getStringArrayData(json, "frame_effects"));
+		return Arrays.asList(JSONUtil.getStringArrayData(getJSONData(), "frame_effects"));
 	}
 
 	/**
 	 * @return This card’s frame layout. 
 	 */
 	public String getFrame() {
-		return JSONUtil.getStringData(json, "frame");
+		return JSONUtil.getStringData(getJSONData(), "frame");
 	}
 
 	/**
 	 * @return True if this card’s artwork is larger than normal. 
 	 */
 	public boolean isFullArt() {
-		return JSONUtil.getBoolData(json, "full_art");
+		return JSONUtil.getBoolData(getJSONData(), "full_art");
 	}
 
 	/**
@@ -544,14 +619,14 @@ public class Card {
 	 */
 	public List<String> getGames()
 	{
-		return Arrays.asList(JSONUtil.getStringArrayData(json, "games"));
+		return Arrays.asList(JSONUtil.getStringArrayData(getJSONData(), "games"));
 	}
 
 	/**
 	 * @return True if this card’s imagery is high resolution. 
 	 */
 	public boolean hasHighresImage() {
-		return JSONUtil.getBoolData(json, "highres_image");
+		return JSONUtil.getBoolData(getJSONData(), "highres_image");
 	}
 
 	/**
@@ -560,7 +635,7 @@ public class Card {
 	 */
 	public UUID getIllustrationUUID()
 	{
-		return UUID.fromString(JSONUtil.getStringData(json, "illustration_id"));
+		return UUID.fromString(JSONUtil.getStringData(getJSONData(), "illustration_id"));
 	}
 
 	/**
@@ -569,7 +644,7 @@ public class Card {
 	 */
 	@SuppressWarnings("unchecked")
 	public HashMap<String, String> getImageURIs() {
-		return new HashMap<String, String>(JSONUtil.getObject(json, "image_uris"));
+		return new HashMap<String, String>(JSONUtil.getObject(getJSONData(), "image_uris"));
 	}
 
 	/**
@@ -578,7 +653,7 @@ public class Card {
 	 */
 	public String getImageURI(String format) {
 		return JSONUtil.getStringData(
-			JSONUtil.getObject(json,"image_uris"),
+			JSONUtil.getObject(getJSONData(),"image_uris"),
 			format.toLowerCase()
 		);
 	}
@@ -589,35 +664,35 @@ public class Card {
 	 */
 	@SuppressWarnings("unchecked")
 	public HashMap<String, String> getPrices() {
-		return new HashMap<String, String>(JSONUtil.getObject(json, "prices"));
+		return new HashMap<String, String>(JSONUtil.getObject(getJSONData(), "prices"));
 	}
 
 	/**
 	 * @return The localized name printed on this card, if any. 
 	 */
 	public String getPrintedName() {
-		return JSONUtil.getStringData(json, "printed_name");
+		return JSONUtil.getStringData(getJSONData(), "printed_name");
 	}
 
 	/**
 	 * @return The localized text printed on this card, if any.
 	 */
 	public String getPrintedText() {
-		return JSONUtil.getStringData(json, "printed_text");
+		return JSONUtil.getStringData(getJSONData(), "printed_text");
 	}
 
 	/**
 	 * @return The localized type line printed on this card, if any. 
 	 */
 	public String getPrintedTypeLine() {
-		return JSONUtil.getStringData(json, "printed_type_line");
+		return JSONUtil.getStringData(getJSONData(), "printed_type_line");
 	}
 
 	/**
 	 * @return True if this card is a promotional print. 
 	 */
 	public boolean isPromo() {
-		return JSONUtil.getBoolData(json, "promo");
+		return JSONUtil.getBoolData(getJSONData(), "promo");
 	}
 
 	/**
@@ -625,7 +700,7 @@ public class Card {
 	 */
 	public List<String> getPromoTypes()
 	{
-		return Arrays.asList(JSONUtil.getStringArrayData(json, "promo_types"));
+		return Arrays.asList(JSONUtil.getStringArrayData(getJSONData(), "promo_types"));
 	}
 
 	/**
@@ -633,14 +708,21 @@ public class Card {
 	 */
 	@SuppressWarnings("unchecked")
 	public HashMap<String, String> getPurchaseURIs() {
-		return new HashMap<String, String>(JSONUtil.getObject(json, "purchase_uris"));
+		return new HashMap<String, String>(JSONUtil.getObject(getJSONData(), "purchase_uris"));
 	}
 
 	/**
 	 * @return This card’s rarity. One of common, uncommon, rare, or mythic.
 	 */
 	public String getRarity() {
-		return JSONUtil.getStringData(json, "rarity");
+		return JSONUtil.getStringData(getJSONData(), "rarity");
+	}
+
+	/**
+	 * @return This card’s rarity, or null if it is one this library does not know.
+	 */
+	public Rarity getRarityType() {
+		return Rarity.fromCode(getRarity());
 	}
 
 	/**
@@ -649,56 +731,56 @@ public class Card {
 	 */
 	@SuppressWarnings("unchecked")
 	public HashMap<String, String> getRelatedURIs() {
-		return new HashMap<String, String>(JSONUtil.getObject(json, "related_uris"));
+		return new HashMap<String, String>(JSONUtil.getObject(getJSONData(), "related_uris"));
 	}
 
 	/**
 	 * @return The date this set was released at
 	 */
 	public Date getReleasedAt() {
-		return JSONUtil.getIsoDateData(json, "released_at");
+		return JSONUtil.getIsoDateData(getJSONData(), "released_at");
 	}
 
 	/**
 	 * @return True if this card is a reprint.
 	 */
 	public boolean isReprint() {
-		return JSONUtil.getBoolData(json, "reprint");
+		return JSONUtil.getBoolData(getJSONData(), "reprint");
 	}
 
 	/**
 	 * @return A link to this card’s set on Scryfall’s website. 
 	 */
 	public String getScryfallSetURI() {
-		return JSONUtil.getStringData(json, "scryfall_set_uri");
+		return JSONUtil.getStringData(getJSONData(), "scryfall_set_uri");
 	}
 
 	/**
 	 * @return A link to this card’s set on Scryfall’s website. 
 	 */
 	public String getSetName() {
-		return JSONUtil.getStringData(json, "set_name");
+		return JSONUtil.getStringData(getJSONData(), "set_name");
 	}
 
 	/**
 	 * @return A link to where you can begin paginating this card’s set on the Scryfall API.
 	 */
 	public String getSetSearchURI() {
-		return JSONUtil.getStringData(json, "set_search_uri");
+		return JSONUtil.getStringData(getJSONData(), "set_search_uri");
 	}
 
 	/**
 	 * @return The type of set this printing is in.
 	 */
 	public String getSetType() {
-		return JSONUtil.getStringData(json, "set_type");
+		return JSONUtil.getStringData(getJSONData(), "set_type");
 	}
 
 	/**
 	 * @return A link to this card’s set object on Scryfall’s API. 
 	 */
 	public String getSetURI() {
-		return JSONUtil.getStringData(json, "set_uri");
+		return JSONUtil.getStringData(getJSONData(), "set_uri");
 	}
 
 	/**
@@ -706,28 +788,28 @@ public class Card {
 	 */
 	public String getSetCode()
 	{
-		return JSONUtil.getStringData(json, "set");
+		return JSONUtil.getStringData(getJSONData(), "set");
 	}
 
 	/**
 	 * @return True if this card is a Story Spotlight. 
 	 */
 	public boolean isStorySpotlight() {
-		return JSONUtil.getBoolData(json, "story_spotlight");
+		return JSONUtil.getBoolData(getJSONData(), "story_spotlight");
 	}
 
 	/**
 	 * @return True if this card is textless.
 	 */
 	public boolean isTextless() {
-		return JSONUtil.getBoolData(json, "textless");
+		return JSONUtil.getBoolData(getJSONData(), "textless");
 	}
 
 	/**
 	 * @return True if this card is a variation of another printing. 
 	 */
 	public boolean isVariation() {
-		return JSONUtil.getBoolData(json, "variation");
+		return JSONUtil.getBoolData(getJSONData(), "variation");
 	}
 
 	/**
@@ -735,7 +817,7 @@ public class Card {
 	 */
 	public UUID getVariationOfUUID()
 	{
-		return UUID.fromString(JSONUtil.getStringData(json, "variation_of"));
+		return UUID.fromString(JSONUtil.getStringData(getJSONData(), "variation_of"));
 	}
 
 	/**
@@ -743,7 +825,7 @@ public class Card {
 	 */
 	public String getWatermark()
 	{
-		return JSONUtil.getStringData(json, "watermark");
+		return JSONUtil.getStringData(getJSONData(), "watermark");
 	}
 
 	/**
@@ -752,7 +834,7 @@ public class Card {
 	public Date getPreviewDate()
 	{
 		return JSONUtil.getIsoDateData(
-			JSONUtil.getObject(json, "preview"),
+			JSONUtil.getObject(getJSONData(), "preview"),
 			"previewed_at"
 		);
 	}
@@ -763,7 +845,7 @@ public class Card {
 	public String getPreviewSourceURI()
 	{
 		return JSONUtil.getStringData(
-			JSONUtil.getObject(json, "preview"),
+			JSONUtil.getObject(getJSONData(), "preview"),
 			"source_uri"
 		);
 	}
@@ -774,7 +856,7 @@ public class Card {
 	public String getPreviewSource()
 	{
 		return JSONUtil.getStringData(
-			JSONUtil.getObject(json, "preview"),
+			JSONUtil.getObject(getJSONData(), "preview"),
 			"source"
 		);
 	}
@@ -798,14 +880,15 @@ public class Card {
 	}
 
 	/** 
-	 * Equals method; checks for name and set code equality. Auto-generated.
+	 * Equals method; checks for name and set code equality. A compiled card
+	 * equals the plain card it was built from.
 	 */
 	public boolean equals(Object obj) {
 		if (this == obj)
 			return true;
 		if (obj == null)
 			return false;
-		if (getClass() != obj.getClass())
+		if (!(obj instanceof Card))
 			return false;
 		Card other = (Card) obj;
 		if (getName() == null) {
@@ -2,16 +2,16 @@ package forohfor.scryfall.api;
 
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.net.URL;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
 
-import javax.imageio.ImageIO;
-
 import org.json.simple.JSONObject;
 
+import forohfor.scryfall.image.ImageService;
+
 /**
  * Represents one face of a multi-faced card. Notably, fewer fields than a full card.
  * @author ForOhForError
@@ -22,7 +22,12 @@ public class CardFace {
 	
 	public CardFace(JSONObject cardData)
 	{
-		json = new JSONObject(cardData);
+		this(cardData, true);
+	}
+
+	CardFace(JSONObject cardData, boolean copy)
+	{
+		json = copy ? new JSONObject(cardData) : cardData;
 	}
 
 	/**
@@ -43,14 +48,22 @@ public class CardFace {
 	}
 
 	/**
+	 * Fetches the image through {@link ImageService#getShared()}, which can be
+	 * replaced with one that caches.
 	 * @param format - the image format to fetch
-	 * @return The image for this card, in the given format
+	 * @return The image for this card, in the given format, or null if it
+	 * could not be fetched
 	 */
 	public BufferedImage getImage(String format)
 	{
+		String uri = getImageURI(format);
+		if(uri == null)
+		{
+			return null;
+		}
 		try
 		{
-			return ImageIO.read(new URL(getImageURI(format)));
+			return ImageService.getShared().getImage(uri);
 		}
 		catch(IOException e)
 		{
@@ -82,6 +95,14 @@ public class CardFace {
 		return Arrays.asList(JSONUtil.getStringArrayData(json, "colors"));
 	}
 
+	/**
+	 * @return This face’s colors as a set, empty if the face has no colors defined. 
+	 */
+	public EnumSet<Color> getColorSet()
+	{
+		return Color.fromMask(Color.toMask(JSONUtil.getArray(json, "colors")));
+	}
+
 	/**
 	 * @return The flavor text, if any. 
 	 */
@@ -0,0 +1,180 @@
+package forohfor.scryfall.api;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.UUID;
+
+import org.json.simple.JSONObject;
+
+/**
+ * Identifies a single card for a /cards/collection lookup. Each identifier
+ * resolves to at most one printing.
+ * @author ForOhForError
+ */
+
+public class CardIdentifier {
+
+	private final JSONObject json;
+
+	private CardIdentifier(JSONObject json)
+	{
+		this.json = json;
+	}
+
+	/**
+	 * @param id The Scryfall ID of the printing
+	 * @return An identifier for the printing with the given Scryfall ID
+	 */
+	@SuppressWarnings("unchecked")
+	public static CardIdentifier byScryfallId(UUID id)
+	{
+		JSONObject json = new JSONObject();
+		json.put("id", id.toString());
+		return new CardIdentifier(json);
+	}
+
+	/**
+	 * @param name The exact name of the card
+	 * @return An identifier for a printing of the card with the given name
+	 */
+	@SuppressWarnings("unchecked")
+	public static CardIdentifier byName(String name)
+	{
+		JSONObject json = new JSONObject();
+		json.put("name", name);
+		return new CardIdentifier(json);
+	}
+
+	/**
+	 * @param set The set code of the printing
+	 * @param collectorNumber The collector number of the printing within its set
+	 * @return An identifier for the printing with the given set and collector number
+	 */
+	@SuppressWarnings("unchecked")
+	public static CardIdentifier bySetAndCollectorNumber(String set, String collectorNumber)
+	{
+		JSONObject json = new JSONObject();
+		json.put("set", set);
+		json.put("collector_number", collectorNumber);
+		return new CardIdentifier(json);
+	}
+
+	/**
+	 * @param mtgoId The Magic Online ID of the printing
+	 * @return An identifier for the printing with the given Magic Online ID
+	 */
+	@SuppressWarnings("unchecked")
+	public static CardIdentifier byMtgoId(int mtgoId)
+	{
+		JSONObject json = new JSONObject();
+		json.put("mtgo_id", Long.valueOf(mtgoId));
+		return new CardIdentifier(json);
+	}
+
+	/**
+	 * Rebuilds an identifier from its JSON form, as echoed back by the API.
+	 */
+	static CardIdentifier fromJSON(JSONObject json)
+	{
+		return new CardIdentifier(new JSONObject(json));
+	}
+
+	/**
+	 * @return The JSON form of this identifier, as sent to the API.
+	 */
+	public JSONObject getJSONData()
+	{
+		return json;
+	}
+
+	/**
+	 * Checks whether the given card is one this identifier could have resolved to.
+	 * Names match either the whole card name or the name of any of its faces,
+	 * ignoring case, accents and punctuation as the API does.
+	 * @param card The card to check
+	 * @return True if the card matches this identifier
+	 */
+	public boolean matches(Card card)
+	{
+		if(json.containsKey("id"))
+		{
+			return json.get("id").equals(JSONUtil.getStringData(card.getJSONData(), "id"));
+		}
+		if(json.containsKey("mtgo_id"))
+		{
+			return json.get("mtgo_id").equals(JSONUtil.getLongData(card.getJSONData(), "mtgo_id"));
+		}
+		if(json.containsKey("collector_number"))
+		{
+			return ((String)json.get("set")).equalsIgnoreCase(card.getSetCode())
+					&& json.get("collector_number").equals(card.getCollectorNumber());
+		}
+		String name = foldName((String)json.get("name"));
+		if(name.equals(foldName(card.getName())))
+		{
+			return true;
+		}
+		if(card.isMultifaced())
+		{
+			for(CardFace face:card.getCardFaces())
+			{
+				if(name.equals(foldName(face.getName())))
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reduces a card name to the form the API compares names in: lower case,
+	 * without accents, punctuation or spaces, and with ligatures such as Æ
+	 * spelled out.
+	 */
+	static String foldName(String name)
+	{
+		if(name == null)
+		{
+			return null;
+		}
+		String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD).toLowerCase(Locale.ROOT);
+		StringBuilder folded = new StringBuilder(decomposed.length());
+		for(int i = 0; i < decomposed.length(); i++)
+		{
+			char c = decomposed.charAt(i);
+			if(c == '\u00e6')
+			{
+				folded.append("ae");
+			}
+			else if(c == '\u0153')
+			{
+				folded.append("oe");
+			}
+			else if(Character.isLetterOrDigit(c))
+			{
+				folded.append(c);
+			}
+		}
+		return folded.toString();
+	}
+
+	@Override
+	public int hashCode() {
+		return json.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		return json.equals(((CardIdentifier)obj).json);
+	}
+
+	@Override
+	public String toString() {
+		return "CardIdentifier "+json.toJSONString();
+	}
+}
@@ -0,0 +1,44 @@
+package forohfor.scryfall.api;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A lazily fetched sequence of cards, such as the results of a search. Pages
+ * are requested from the API only as the iterator reaches them, so stopping
+ * early never costs the remaining pages. An iterator closes itself once it is
+ * exhausted; one that is abandoned early should be closed to release its
+ * connection. Failures while fetching are thrown as
+ * {@link java.io.UncheckedIOException}.
+ * @author ForOhForError
+ */
+
+public interface CardIterator extends Iterator<Card>, Closeable {
+
+	/**
+	 * @return The total number of cards the query matched, as reported by the
+	 * API with the first page, or null if not yet known.
+	 */
+	Integer getTotalCards();
+
+	/**
+	 * Stops iteration and releases any open connection.
+	 */
+	@Override
+	void close();
+
+	/**
+	 * @return A sequential stream over the remaining cards, which closes this
+	 * iterator when it is closed.
+	 */
+	default Stream<Card> stream()
+	{
+		Spliterator<Card> split = Spliterators.spliteratorUnknownSize(this,
+				Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(split, false).onClose(this::close);
+	}
+}
@@ -14,14 +14,17 @@ import org.json.simple.JSONObject;
 public class CardReference {
 
 	private JSONObject json;
-	private Card card;
+	private volatile Card card;
 
 	/**
 	 * Constructs a new card with the given name, API URI, and scryfall id.
 	 */
 	public CardReference(JSONObject object) {
-		super();
-		json = new JSONObject(object);
+		this(object, true);
+	}
+
+	CardReference(JSONObject object, boolean copy) {
+		json = copy ? new JSONObject(object) : object;
 	}
 
 	/**
@@ -74,20 +77,54 @@ public class CardReference {
 	
 	/**
 	 * Returns the card this object references. This is created by querying the
-	 * API when first called on this object. If there is no connection, will return null.
+	 * API when first called on this object, unless a {@link ReferenceResolver}
+	 * has already filled it in. Only one request is made however many threads
+	 * ask at once. If the card cannot be fetched, will return null.
 	 */
 	public Card getCard() {
-		if(card == null){
-			try
-			{
-				card = MTGCardQuery.getCardFromURI(getURI());
-			}
-			catch(IOException e)
+		Card resolved = card;
+		if(resolved == null)
+		{
+			synchronized(this)
 			{
-				System.err.println("IO Error on card part resolution");
+				resolved = card;
+				if(resolved == null)
+				{
+					try
+					{
+						resolved = MTGCardQuery.getCardFromURI(getURI());
+						card = resolved;
+					}
+					catch(IOException e)
+					{
+						//Documented to return null; fetch through a ReferenceResolver to see the failure
+					}
+				}
 			}
 		}
-		return card;
+		return resolved;
+	}
+
+	/**
+	 * @return True if the referenced card has been fetched or filled in.
+	 */
+	public boolean isResolved()
+	{
+		return card != null;
+	}
+
+	/**
+	 * Fills in the referenced card unless it is already known.
+	 * @param resolved The referenced card
+	 * @return True if this call filled it in
+	 */
+	synchronized boolean fill(Card resolved)
+	{
+		if(card != null || resolved == null)
+		{
+			return false;
+		}
+		card = resolved;
+		return true;
 	}
-	
 }
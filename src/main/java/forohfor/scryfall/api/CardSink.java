@@ -0,0 +1,20 @@
+package forohfor.scryfall.api;
+
+import java.io.IOException;
+
+/**
+ * Receives cards one at a time as they are decoded, for example from a bulk
+ * data file. A sink that keeps only what it needs from each card lets a whole
+ * catalog pass through in constant memory.
+ * @author ForOhForError
+ */
+
+public interface CardSink {
+
+	/**
+	 * Takes the next card.
+	 * @param card The decoded card
+	 * @throws IOException To stop reading early with an error
+	 */
+	void accept(Card card) throws IOException;
+}
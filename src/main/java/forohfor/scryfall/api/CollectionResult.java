@@ -0,0 +1,80 @@
+package forohfor.scryfall.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of resolving a list of card identifiers. Results are kept in the
+ * same order as the identifiers they were resolved from.
+ * @author ForOhForError
+ */
+
+public class CollectionResult {
+
+	private final List<CardIdentifier> identifiers;
+	private final List<Card> results;
+
+	CollectionResult(List<CardIdentifier> identifiers, List<Card> results)
+	{
+		this.identifiers = Collections.unmodifiableList(identifiers);
+		this.results = Collections.unmodifiableList(results);
+	}
+
+	/**
+	 * @return The identifiers that were looked up, in the order given.
+	 */
+	public List<CardIdentifier> getIdentifiers()
+	{
+		return identifiers;
+	}
+
+	/**
+	 * @return The card each identifier resolved to, at the same index as its
+	 * identifier, or null where it was not found.
+	 */
+	public List<Card> getResults()
+	{
+		return results;
+	}
+
+	/**
+	 * @return The cards that were found, in the order of their identifiers.
+	 */
+	public ArrayList<Card> getCards()
+	{
+		ArrayList<Card> cards = new ArrayList<Card>();
+		for(Card card:results)
+		{
+			if(card != null)
+			{
+				cards.add(card);
+			}
+		}
+		return cards;
+	}
+
+	/**
+	 * @return The identifiers that did not match any card, in the order given.
+	 */
+	public List<CardIdentifier> getNotFound()
+	{
+		List<CardIdentifier> notFound = new ArrayList<CardIdentifier>();
+		for(int i = 0; i < identifiers.size(); i++)
+		{
+			if(results.get(i) == null)
+			{
+				notFound.add(identifiers.get(i));
+			}
+		}
+		return notFound;
+	}
+
+	/**
+	 * @return True if every identifier was found.
+	 */
+	public boolean isComplete()
+	{
+		return !results.contains(null);
+	}
+}
@@ -0,0 +1,100 @@
+package forohfor.scryfall.api;
+
+import java.util.Collection;
+import java.util.EnumSet;
+
+/**
+ * One of the five colors of Magic, in WUBRG order. A set of colors can also
+ * be packed into an int, with each color's ordinal as its bit.
+ * @author ForOhForError
+ */
+
+public enum Color {
+
+	WHITE('W'),
+	BLUE('U'),
+	BLACK('B'),
+	RED('R'),
+	GREEN('G');
+
+	private static final Color[] VALUES = values();
+
+	private final char symbol;
+
+	private Color(char symbol)
+	{
+		this.symbol = symbol;
+	}
+
+	/**
+	 * @return The color's symbol as used by the API, such as 'U'.
+	 */
+	public char getSymbol()
+	{
+		return symbol;
+	}
+
+	/**
+	 * @return This color's bit in a color mask.
+	 */
+	public int getMask()
+	{
+		return 1 << ordinal();
+	}
+
+	/**
+	 * @param symbol The color's symbol, in either case
+	 * @return The matching color, or null if the symbol is not a color.
+	 */
+	public static Color fromSymbol(char symbol)
+	{
+		switch(Character.toUpperCase(symbol))
+		{
+			case 'W': return WHITE;
+			case 'U': return BLUE;
+			case 'B': return BLACK;
+			case 'R': return RED;
+			case 'G': return GREEN;
+			default: return null;
+		}
+	}
+
+	/**
+	 * @param symbols Color symbols as given by the API, such as ["U", "R"]
+	 * @return The mask of the colors named. Unknown symbols are ignored.
+	 */
+	public static int toMask(Collection<?> symbols)
+	{
+		int mask = 0;
+		if(symbols != null)
+		{
+			for(Object symbol:symbols)
+			{
+				String s = String.valueOf(symbol);
+				Color color = s.length() == 1 ? fromSymbol(s.charAt(0)) : null;
+				if(color != null)
+				{
+					mask |= color.getMask();
+				}
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * @param mask A color mask
+	 * @return A new set holding the colors in the mask.
+	 */
+	public static EnumSet<Color> fromMask(int mask)
+	{
+		EnumSet<Color> colors = EnumSet.noneOf(Color.class);
+		for(Color color:VALUES)
+		{
+			if((mask & color.getMask()) != 0)
+			{
+				colors.add(color);
+			}
+		}
+		return colors;
+	}
+}
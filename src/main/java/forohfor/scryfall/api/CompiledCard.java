@@ -0,0 +1,490 @@
+package forohfor.scryfall.api;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+/**
+ * A Card whose commonly used fields are decoded once, when it is built,
+ * rather than looked up in the JSON on every call. Getters return the same
+ * objects each time, so sorting or filtering a large list of compiled cards
+ * by mana value, color or rarity allocates nothing. The full JSON is still
+ * kept, and fields not decoded here are read from it as usual.
+ *
+ * The overridden getters behave exactly as a plain Card's do: lists and
+ * maps are returned as fresh copies, and absent fields throw where a plain
+ * Card would. The shared, unmodifiable lists and map behind them are
+ * available without copying through the view accessors, such as
+ * {@link #getColorsView()}.
+ * @author ForOhForError
+ */
+
+public class CompiledCard extends Card {
+
+	private final UUID scryfallUUID;
+	private final UUID oracleID;
+	private final UUID illustrationUUID;
+	private final Integer arenaID;
+	private final Integer edhrecRank;
+	private final String name;
+	private final String lang;
+	private final String layout;
+	private final String manaCost;
+	private final String typeLine;
+	private final String oracleText;
+	private final String power;
+	private final String toughness;
+	private final String loyalty;
+	private final String rarity;
+	private final Rarity rarityType;
+	private final Layout layoutType;
+	private final String setCode;
+	private final String setName;
+	private final String collectorNumber;
+	private final String artist;
+	private final Double cmc;
+	private final double manaValue;
+	private final List<String> colors;
+	private final List<String> colorIdentity;
+	private final List<String> colorIndicator;
+	private final List<String> keywords;
+	private final int colorMask;
+	private final int colorIdentityMask;
+	private final Map<String,String> legalities;
+	private final Long releasedAt;
+	private final Boolean foil;
+	private final Boolean nonfoil;
+	private final Boolean digital;
+	private final Boolean promo;
+	private final Boolean reprint;
+	private final Boolean reserved;
+	private final int hash;
+
+	/**
+	 * Constructs a compiled card from a JSON object
+	 * @param cardData
+	 */
+	public CompiledCard(JSONObject cardData)
+	{
+		this(cardData, true);
+	}
+
+	private CompiledCard(JSONObject cardData, boolean copy)
+	{
+		super(cardData, copy);
+		JSONObject json = getJSONData();
+		scryfallUUID = uuid(json, "id");
+		oracleID = uuid(json, "oracle_id");
+		illustrationUUID = uuid(json, "illustration_id");
+		arenaID = JSONUtil.getIntData(json, "arena_id");
+		edhrecRank = JSONUtil.getIntData(json, "edhrec_rank");
+		name = JSONUtil.getStringData(json, "name");
+		lang = JSONUtil.getStringData(json, "lang");
+		layout = JSONUtil.getStringData(json, "layout");
+		manaCost = JSONUtil.getStringData(json, "mana_cost");
+		typeLine = JSONUtil.getStringData(json, "type_line");
+		oracleText = JSONUtil.getStringData(json, "oracle_text");
+		power = JSONUtil.getStringData(json, "power");
+		toughness = JSONUtil.getStringData(json, "toughness");
+		loyalty = JSONUtil.getStringData(json, "loyalty");
+		rarity = JSONUtil.getStringData(json, "rarity");
+		rarityType = Rarity.fromCode(rarity);
+		layoutType = Layout.fromCode(layout);
+		setCode = JSONUtil.getStringData(json, "set");
+		setName = JSONUtil.getStringData(json, "set_name");
+		collectorNumber = JSONUtil.getStringData(json, "collector_number");
+		artist = JSONUtil.getStringData(json, "artist");
+		cmc = JSONUtil.getDoubleData(json, "cmc");
+		Double mv = number(json.get("cmc"));
+		manaValue = mv == null ? Double.NaN : mv;
+		colors = strings(json, "colors");
+		colorIdentity = strings(json, "color_identity");
+		colorIndicator = strings(json, "color_indicator");
+		keywords = strings(json, "keywords");
+		colorMask = Color.toMask(colors);
+		colorIdentityMask = Color.toMask(colorIdentity);
+		HashMap<String,String> legal = JSONUtil.getStringMap(json, "legalities");
+		legalities = legal == null ? null : Collections.unmodifiableMap(legal);
+		Date released = JSONUtil.getIsoDateData(json, "released_at");
+		releasedAt = released == null ? null : released.getTime();
+		foil = JSONUtil.getBoolData(json, "foil");
+		nonfoil = JSONUtil.getBoolData(json, "nonfoil");
+		digital = JSONUtil.getBoolData(json, "digital");
+		promo = JSONUtil.getBoolData(json, "promo");
+		reprint = JSONUtil.getBoolData(json, "reprint");
+		reserved = JSONUtil.getBoolData(json, "reserved");
+		hash = super.hashCode();
+	}
+
+	/**
+	 * Builds a compiled card that takes ownership of a freshly decoded JSON
+	 * object instead of copying it. Neither the object nor anything nested in
+	 * it may be modified by the caller afterwards.
+	 * @param cardData The card's JSON data
+	 * @return The card
+	 */
+	public static CompiledCard fromOwnedJSON(JSONObject cardData)
+	{
+		return new CompiledCard(cardData, false);
+	}
+
+	/**
+	 * @param card The card to compile
+	 * @return The card itself if it is already compiled, otherwise a compiled
+	 * copy of it.
+	 */
+	public static CompiledCard of(Card card)
+	{
+		if(card instanceof CompiledCard)
+		{
+			return (CompiledCard)card;
+		}
+		return new CompiledCard(card.getJSONData());
+	}
+
+	private static UUID uuid(JSONObject json, String key)
+	{
+		String value = JSONUtil.getStringData(json, key);
+		return value == null ? null : UUID.fromString(value);
+	}
+
+	private static Double number(Object value)
+	{
+		if(value instanceof Double)
+		{
+			return (Double)value;
+		}
+		if(value instanceof Number)
+		{
+			return ((Number)value).doubleValue();
+		}
+		return null;
+	}
+
+	private static List<String> strings(JSONObject json, String key)
+	{
+		Object value = json.get(key);
+		if(!(value instanceof JSONArray))
+		{
+			return null;
+		}
+		return Collections.unmodifiableList(Arrays.asList(JSONUtil.getStringArrayData(json, key)));
+	}
+
+	private static List<String> copy(List<String> shared)
+	{
+		return Arrays.asList(shared.toArray(new String[shared.size()]));
+	}
+
+	/**
+	 * @return The card's mana value as a primitive, or NaN if it has none.
+	 */
+	public double getManaValue()
+	{
+		return manaValue;
+	}
+
+	/**
+	 * @return The card's colors as a mask of {@link Color} bits. Zero for
+	 * colorless cards.
+	 */
+	public int getColorMask()
+	{
+		return colorMask;
+	}
+
+	/**
+	 * @return The card's color identity as a mask of {@link Color} bits.
+	 */
+	public int getColorIdentityMask()
+	{
+		return colorIdentityMask;
+	}
+
+	/**
+	 * @return The card's keywords as a list shared between calls, which
+	 * cannot be modified, or null if it has none listed.
+	 */
+	public List<String> getKeywordsView()
+	{
+		return keywords;
+	}
+
+	/**
+	 * @return The card's colors as a list shared between calls, which cannot
+	 * be modified, or null if they are only given on its faces.
+	 */
+	public List<String> getColorsView()
+	{
+		return colors;
+	}
+
+	/**
+	 * @return The card's color identity as a list shared between calls,
+	 * which cannot be modified, or null if it is not given.
+	 */
+	public List<String> getColorIdentityView()
+	{
+		return colorIdentity;
+	}
+
+	/**
+	 * @return The colors in the card's color indicator as a list shared
+	 * between calls, which cannot be modified, or null if it has none.
+	 */
+	public List<String> getColorIndicatorView()
+	{
+		return colorIndicator;
+	}
+
+	/**
+	 * @return The card's legality in each format as a map shared between
+	 * calls, which cannot be modified, or null if it is not given.
+	 */
+	public Map<String,String> getLegalitiesView()
+	{
+		return legalities;
+	}
+
+	@Override
+	public Integer getArenaID()
+	{
+		return arenaID;
+	}
+
+	@Override
+	public UUID getScryfallUUID()
+	{
+		return scryfallUUID == null ? super.getScryfallUUID() : scryfallUUID;
+	}
+
+	@Override
+	public String getLang()
+	{
+		return lang;
+	}
+
+	@Override
+	public UUID getOracleID()
+	{
+		return oracleID == null ? super.getOracleID() : oracleID;
+	}
+
+	@Override
+	public Double getCmc()
+	{
+		return cmc;
+	}
+
+	@Override
+	public List<String> getKeywords()
+	{
+		return keywords == null ? super.getKeywords() : copy(keywords);
+	}
+
+	@Override
+	public List<String> getColors()
+	{
+		return colors == null ? super.getColors() : copy(colors);
+	}
+
+	@Override
+	public List<String> getColorIdentity()
+	{
+		return colorIdentity == null ? super.getColorIdentity() : copy(colorIdentity);
+	}
+
+	@Override
+	public List<String> getColorIndicator()
+	{
+		return colorIndicator == null ? super.getColorIndicator() : copy(colorIndicator);
+	}
+
+	@Override
+	public Integer getEDHRecRank()
+	{
+		return edhrecRank;
+	}
+
+	@Override
+	public boolean hasFoil()
+	{
+		return foil == null ? super.hasFoil() : foil;
+	}
+
+	@Override
+	public String getLayout()
+	{
+		return layout;
+	}
+
+	@Override
+	public Layout getLayoutType()
+	{
+		return layoutType;
+	}
+
+	@Override
+	public HashMap<String, String> getLegalities()
+	{
+		return legalities == null ? super.getLegalities() : new HashMap<String, String>(legalities);
+	}
+
+	@Override
+	public String getLegality(String format)
+	{
+		return legalities == null ? null : legalities.get(format.toLowerCase());
+	}
+
+	@Override
+	public Legality getLegalityStatus(String format)
+	{
+		return Legality.fromCode(getLegality(format));
+	}
+
+	@Override
+	public EnumSet<Color> getColorSet()
+	{
+		return Color.fromMask(colorMask);
+	}
+
+	@Override
+	public EnumSet<Color> getColorIdentitySet()
+	{
+		return Color.fromMask(colorIdentityMask);
+	}
+
+	@Override
+	public String getLoyalty()
+	{
+		return loyalty;
+	}
+
+	@Override
+	public String getManaCost()
+	{
+		return manaCost;
+	}
+
+	@Override
+	public String getName()
+	{
+		return name;
+	}
+
+	@Override
+	public boolean hasNonfoil()
+	{
+		return nonfoil == null ? super.hasNonfoil() : nonfoil;
+	}
+
+	@Override
+	public String getOracleText()
+	{
+		return oracleText;
+	}
+
+	@Override
+	public String getPower()
+	{
+		return power;
+	}
+
+	@Override
+	public boolean isReserved()
+	{
+		return reserved == null ? super.isReserved() : reserved;
+	}
+
+	@Override
+	public String getToughness()
+	{
+		return toughness;
+	}
+
+	@Override
+	public String getTypeLine()
+	{
+		return typeLine;
+	}
+
+	@Override
+	public String getArtist()
+	{
+		return artist;
+	}
+
+	@Override
+	public String getCollectorNumber()
+	{
+		return collectorNumber;
+	}
+
+	@Override
+	public boolean isDigital()
+	{
+		return digital == null ? super.isDigital() : digital;
+	}
+
+	@Override
+	public UUID getIllustrationUUID()
+	{
+		return illustrationUUID == null ? super.getIllustrationUUID() : illustrationUUID;
+	}
+
+	@Override
+	public boolean isPromo()
+	{
+		return promo == null ? super.isPromo() : promo;
+	}
+
+	@Override
+	public String getRarity()
+	{
+		return rarity;
+	}
+
+	@Override
+	public Rarity getRarityType()
+	{
+		return rarityType;
+	}
+
+	@Override
+	public Date getReleasedAt()
+	{
+		return releasedAt == null ? null : new Date(releasedAt);
+	}
+
+	@Override
+	public boolean isReprint()
+	{
+		return reprint == null ? super.isReprint() : reprint;
+	}
+
+	@Override
+	public String getSetName()
+	{
+		return setName;
+	}
+
+	@Override
+	public String getSetCode()
+	{
+		return setCode;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hash;
+	}
+}
@@ -0,0 +1,369 @@
+package forohfor.scryfall.api;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Incrementally decodes a JSON document straight from a stream, without first
+ * reading it into a String. The elements of the document's item array (the
+ * "data" array of a Scryfall list object, or the document itself if it is an array)
+ * are handed back one at a time as each finishes parsing, and are never
+ * collected into a single array.
+ *
+ * Object keys, and the values of fields drawn from a small vocabulary such as
+ * rarity, layout or set code, are interned in a {@link SymbolTable} so that
+ * the many cards decoded share one copy of each. Fields with many distinct
+ * values, such as names, type lines and artists, are only interned into a
+ * table the caller owns, never into the shared one, which would otherwise
+ * keep every name ever decoded for the life of the process.
+ * @author ForOhForError
+ */
+
+public class JSONStreamReader implements Closeable {
+
+	private static final String ITEM_KEY = "data";
+	private static final String LEGALITIES_KEY = "legalities";
+	private static final HashSet<String> VOCABULARY = new HashSet<String>(Arrays.asList(
+			"object", "lang", "layout", "colors", "color_identity", "color_indicator", "keywords",
+			"produced_mana", "games", "finishes", "frame", "frame_effects", "border_color",
+			"security_stamp", "image_status", "promo_types", "rarity", "set", "set_type", "component"));
+	private static final HashSet<String> OWNED_VOCABULARY = new HashSet<String>(Arrays.asList(
+			"name", "mana_cost", "type_line", "power", "toughness", "loyalty", "set_name", "set_id",
+			"collector_number", "artist", "artist_ids", "watermark", "card_back_id", "block",
+			"block_code", "parent_set_code", "icon_svg_uri"));
+	private static final Double[] WHOLE_NUMBERS = new Double[21];
+
+	static
+	{
+		for(int i = 0; i < WHOLE_NUMBERS.length; i++)
+		{
+			WHOLE_NUMBERS[i] = (double)i;
+		}
+	}
+
+	private final Reader in;
+	private final JSONParser parser = new JSONParser();
+	private final Handler handler;
+	private boolean started;
+
+	/**
+	 * Creates a reader over the given character stream, interning into the
+	 * shared symbol table.
+	 * @param in The stream to decode
+	 */
+	public JSONStreamReader(Reader in)
+	{
+		this(in, SymbolTable.getShared());
+	}
+
+	/**
+	 * Creates a reader over the given character stream. Unless the table is
+	 * the shared one, fields with many distinct values such as names, type
+	 * lines and artists are interned into it as well, so it should only live
+	 * as long as the cards decoded with it.
+	 * @param in The stream to decode
+	 * @param symbols The table to intern keys and vocabulary into, or null to intern nothing
+	 */
+	public JSONStreamReader(Reader in, SymbolTable symbols)
+	{
+		this.in = in;
+		this.handler = new Handler(symbols);
+	}
+
+	/**
+	 * Creates a reader over the given UTF-8 encoded byte stream.
+	 * @param in The stream to decode
+	 */
+	public JSONStreamReader(InputStream in)
+	{
+		this(in, SymbolTable.getShared());
+	}
+
+	/**
+	 * Creates a reader over the given UTF-8 encoded byte stream.
+	 * @param in The stream to decode
+	 * @param symbols The table to intern keys and vocabulary into, or null to intern nothing
+	 * @see #JSONStreamReader(Reader, SymbolTable)
+	 */
+	public JSONStreamReader(InputStream in, SymbolTable symbols)
+	{
+		this(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), symbols);
+	}
+
+	/**
+	 * Decodes the next element of the item array.
+	 * @return The next element, or null once the item array is exhausted.
+	 * @throws IOException If the stream cannot be read or is not valid JSON
+	 */
+	public Object next() throws IOException
+	{
+		if(handler.ended)
+		{
+			return null;
+		}
+		parse();
+		if(handler.hasItem)
+		{
+			Object item = handler.item;
+			handler.item = null;
+			handler.hasItem = false;
+			return item;
+		}
+		return null;
+	}
+
+	/**
+	 * Decodes the next element of the item array as a JSON object.
+	 * @return The next element, or null once the item array is exhausted.
+	 * @throws IOException If the stream cannot be read, or a
+	 * {@link ScryfallException} if it is not valid JSON or the element is not an object
+	 */
+	public JSONObject nextObject() throws IOException
+	{
+		Object item = next();
+		if(item == null || item instanceof JSONObject)
+		{
+			return (JSONObject)item;
+		}
+		throw new ScryfallException("Expected a JSON object but found "+item, null);
+	}
+
+	/**
+	 * Decodes the document as a single value. Used for responses that are a
+	 * single object rather than a list. If called before {@link #next()}, the
+	 * value is returned whole; otherwise only the rest of the root is kept.
+	 * @return The root value of the document
+	 * @throws IOException If the stream cannot be read or is not valid JSON
+	 */
+	public Object readValue() throws IOException
+	{
+		if(!started)
+		{
+			handler.whole = true;
+		}
+		while(!handler.ended)
+		{
+			next();
+		}
+		return handler.root;
+	}
+
+	/**
+	 * Returns the fields of the root object other than the item array. Fields
+	 * that follow the item array in the document are only present once
+	 * {@link #next()} has returned null.
+	 * @return The root object's other fields, or null if the root is not an object
+	 */
+	public JSONObject getHeader()
+	{
+		return handler.header;
+	}
+
+	/**
+	 * @return True if the whole document has been decoded.
+	 */
+	public boolean isFinished()
+	{
+		return handler.ended;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		in.close();
+	}
+
+	private void parse() throws IOException
+	{
+		try
+		{
+			parser.parse(in, handler, started);
+			started = true;
+		}
+		catch(ParseException e)
+		{
+			throw new ScryfallException("Malformed JSON at position "+e.getPosition(), e);
+		}
+		catch(RuntimeException e)
+		{
+			throw new ScryfallException("Malformed JSON", e);
+		}
+	}
+
+	/**
+	 * Builds values the same way json-simple's own parser does, except that
+	 * elements of the item array are handed back one at a time instead of being added
+	 * to it. Returning false from a callback pauses the parser until the next call.
+	 */
+	private static final class Handler implements ContentHandler
+	{
+		private final SymbolTable symbols;
+		private final boolean owned;
+		private final LinkedList<Object> stack = new LinkedList<Object>();
+		private final LinkedList<String> keys = new LinkedList<String>();
+		private JSONObject header;
+		private JSONArray items;
+		private Object root;
+		private Object item;
+		private boolean hasItem;
+		private boolean ended;
+		private boolean whole;
+
+		private Handler(SymbolTable symbols)
+		{
+			this.symbols = symbols;
+			this.owned = symbols != null && symbols != SymbolTable.getShared();
+		}
+
+		@Override
+		public void startJSON()
+		{
+			ended = false;
+		}
+
+		@Override
+		public void endJSON()
+		{
+			ended = true;
+		}
+
+		@Override
+		public boolean startObject()
+		{
+			JSONObject obj = new JSONObject();
+			if(stack.isEmpty())
+			{
+				header = obj;
+			}
+			stack.push(obj);
+			return true;
+		}
+
+		@Override
+		public boolean endObject()
+		{
+			return attach(stack.pop());
+		}
+
+		@Override
+		public boolean startObjectEntry(String key)
+		{
+			keys.push(symbols == null ? key : symbols.intern(key));
+			return true;
+		}
+
+		@Override
+		public boolean endObjectEntry()
+		{
+			keys.pop();
+			return true;
+		}
+
+		@Override
+		public boolean startArray()
+		{
+			JSONArray arr = new JSONArray();
+			if(items == null && !whole && isItemPosition())
+			{
+				items = arr;
+			}
+			stack.push(arr);
+			return true;
+		}
+
+		@Override
+		public boolean endArray()
+		{
+			Object arr = stack.pop();
+			if(arr == items)
+			{
+				return true;
+			}
+			return attach(arr);
+		}
+
+		@Override
+		public boolean primitive(Object value)
+		{
+			if(symbols != null)
+			{
+				value = canonical(value);
+			}
+			return attach(value);
+		}
+
+		/**
+		 * Swaps vocabulary strings for their interned copies, and small whole
+		 * numbers such as mana values for shared instances.
+		 */
+		private Object canonical(Object value)
+		{
+			if(value instanceof String && !keys.isEmpty())
+			{
+				if(VOCABULARY.contains(keys.peek()) || (owned && OWNED_VOCABULARY.contains(keys.peek()))
+						|| (keys.size() > 1 && stack.peek() instanceof JSONObject && LEGALITIES_KEY.equals(keys.get(1))))
+				{
+					return symbols.intern((String)value);
+				}
+			}
+			else if(value instanceof Double)
+			{
+				double d = (Double)value;
+				if(d >= 0 && d < WHOLE_NUMBERS.length && d == Math.floor(d))
+				{
+					return WHOLE_NUMBERS[(int)d];
+				}
+			}
+			return value;
+		}
+
+		private boolean isItemPosition()
+		{
+			if(stack.isEmpty())
+			{
+				return true;
+			}
+			return stack.size() == 1 && stack.peek() == header && ITEM_KEY.equals(keys.peek());
+		}
+
+		@SuppressWarnings("unchecked")
+		private boolean attach(Object value)
+		{
+			if(stack.isEmpty())
+			{
+				root = value;
+				return true;
+			}
+			Object parent = stack.peek();
+			if(parent == items)
+			{
+				item = value;
+				hasItem = true;
+				return false;
+			}
+			if(parent instanceof JSONObject)
+			{
+				((JSONObject)parent).put(keys.peek(), value);
+			}
+			else
+			{
+				((JSONArray)parent).add(value);
+			}
+			return true;
+		}
+	}
+}
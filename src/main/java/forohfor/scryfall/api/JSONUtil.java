@@ -163,7 +163,11 @@ public class JSONUtil {
 		{
 			return null;
 		}
-		String date = getStringData(data,key);
+		return parseIsoDate(getStringData(data,key));
+	}
+
+	public static Date parseIsoDate(String date)
+	{
 		if(date==null)
 		{
 			return null;
@@ -190,4 +194,17 @@ public class JSONUtil {
 		}
 		return null;
 	}
+
+	public static JSONArray getArray(JSONObject data, String key)
+	{
+		if(data == null)
+		{
+			return null;
+		}
+		Object obj = data.get(key);
+		if(obj instanceof JSONArray){
+			return (JSONArray)obj;
+		}
+		return null;
+	}
 }
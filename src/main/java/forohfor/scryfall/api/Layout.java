@@ -0,0 +1,143 @@
+package forohfor.scryfall.api;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The layout of a card, which decides how its faces and parts are arranged.
+ * @author ForOhForError
+ */
+
+public enum Layout {
+
+	/**
+	 * A standard card.
+	 */
+	NORMAL("normal"),
+	/**
+	 * Two halves printed side by side.
+	 */
+	SPLIT("split"),
+	/**
+	 * Cards that invert vertically with the flip keyword.
+	 */
+	FLIP("flip"),
+	/**
+	 * Double-faced cards that transform.
+	 */
+	TRANSFORM("transform"),
+	/**
+	 * Double-faced cards that can be played from either side.
+	 */
+	MODAL_DFC("modal_dfc"),
+	/**
+	 * Cards with meld parts printed on the back.
+	 */
+	MELD("meld"),
+	/**
+	 * Cards with level up.
+	 */
+	LEVELER("leveler"),
+	/**
+	 * Class-type enchantment cards.
+	 */
+	CLASS("class"),
+	/**
+	 * Case-type enchantment cards.
+	 */
+	CASE("case"),
+	/**
+	 * Saga-type cards.
+	 */
+	SAGA("saga"),
+	/**
+	 * Cards with an adventure spell part.
+	 */
+	ADVENTURE("adventure"),
+	/**
+	 * Cards with mutate.
+	 */
+	MUTATE("mutate"),
+	/**
+	 * Cards with prototype.
+	 */
+	PROTOTYPE("prototype"),
+	/**
+	 * Battle-type cards.
+	 */
+	BATTLE("battle"),
+	/**
+	 * Plane and phenomenon cards.
+	 */
+	PLANAR("planar"),
+	/**
+	 * Scheme cards.
+	 */
+	SCHEME("scheme"),
+	/**
+	 * Vanguard cards.
+	 */
+	VANGUARD("vanguard"),
+	/**
+	 * Token cards.
+	 */
+	TOKEN("token"),
+	/**
+	 * Tokens with another token printed on the back.
+	 */
+	DOUBLE_FACED_TOKEN("double_faced_token"),
+	/**
+	 * Emblem cards.
+	 */
+	EMBLEM("emblem"),
+	/**
+	 * Cards with augment.
+	 */
+	AUGMENT("augment"),
+	/**
+	 * Host-type cards.
+	 */
+	HOST("host"),
+	/**
+	 * Art series collectable double-faced cards.
+	 */
+	ART_SERIES("art_series"),
+	/**
+	 * Cards with two sides that are unrelated.
+	 */
+	REVERSIBLE_CARD("reversible_card");
+
+	private static final Map<String,Layout> BY_CODE = new HashMap<String,Layout>();
+
+	static
+	{
+		for(Layout layout:values())
+		{
+			BY_CODE.put(layout.code, layout);
+		}
+	}
+
+	private final String code;
+
+	private Layout(String code)
+	{
+		this.code = code;
+	}
+
+	/**
+	 * @return The layout as named by the API, such as "modal_dfc".
+	 */
+	public String getCode()
+	{
+		return code;
+	}
+
+	/**
+	 * @param code The layout as named by the API
+	 * @return The matching layout, or null if the code is null or unknown.
+	 */
+	public static Layout fromCode(String code)
+	{
+		return code == null ? null : BY_CODE.get(code);
+	}
+}
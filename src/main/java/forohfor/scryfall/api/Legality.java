@@ -0,0 +1,54 @@
+package forohfor.scryfall.api;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The status of a card in one play format.
+ * @author ForOhForError
+ */
+
+public enum Legality {
+
+	LEGAL("legal"),
+	NOT_LEGAL("not_legal"),
+	/**
+	 * Legal, but limited to one copy per deck.
+	 */
+	RESTRICTED("restricted"),
+	BANNED("banned");
+
+	private static final Map<String,Legality> BY_CODE = new HashMap<String,Legality>();
+
+	static
+	{
+		for(Legality legality:values())
+		{
+			BY_CODE.put(legality.code, legality);
+		}
+	}
+
+	private final String code;
+
+	private Legality(String code)
+	{
+		this.code = code;
+	}
+
+	/**
+	 * @return The status as named by the API, such as "not_legal".
+	 */
+	public String getCode()
+	{
+		return code;
+	}
+
+	/**
+	 * @param code The status as named by the API
+	 * @return The matching status, or null if the code is null or unknown.
+	 */
+	public static Legality fromCode(String code)
+	{
+		return code == null ? null : BY_CODE.get(code);
+	}
+}
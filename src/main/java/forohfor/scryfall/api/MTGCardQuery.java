@@ -1,27 +1,45 @@
 package forohfor.scryfall.api;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.URL;
-import java.net.URLConnection;
-import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Collection;
-
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * Top-level class, provides a static way to search for cards.
+ * Every method delegates to a shared {@link ScryfallClient}, and is safe to
+ * call from several threads at once. The methods ending in Async return at
+ * once, running the lookup on the client's executor instead of the caller's
+ * thread.
  * @author ForOhForError
  */
 
 public class MTGCardQuery {
 
-	private static final String API_URI = "https://api.scryfall.com";
-	private static JSONParser JSON_PARSER = new JSONParser();
+	private static volatile ScryfallClient client = new ScryfallClient();
+
+	/**
+	 * @return The shared client the static methods of this class delegate to.
+	 */
+	public static ScryfallClient getClient()
+	{
+		return client;
+	}
+
+	/**
+	 * Replaces the client the static methods of this class delegate to, for
+	 * example with one that keeps responses in a {@link forohfor.scryfall.http.DiskResponseCache}.
+	 * @param client The client to use from now on
+	 */
+	public static void setClient(ScryfallClient client)
+	{
+		if(client == null)
+		{
+			throw new IllegalArgumentException("Client must not be null");
+		}
+		MTGCardQuery.client = client;
+	}
 
 	/**
 	 * Returns a list of card objects containing all cards matching any
@@ -34,64 +52,42 @@ public class MTGCardQuery {
 	 */
 	public static ArrayList<Card> toCardList(Collection<String> cardnames, boolean listDuplicates)
 	{
-		ArrayList<Card> result = new ArrayList<Card>();
-		for(String cardname:cardnames)
-		{
-			String query;
-			if(listDuplicates)
-			{
-				query ="++!\""+cardname+"\"";
-			}
-			else
-			{
-				query ="!\""+cardname+"\"";
-			}
-			result.addAll(search(query));
-		}
-		return result;
+		return client.toCardList(cardnames, listDuplicates);
+	}
+	
+	/**
+	 * Resolves each identifier to a single printing, packing up to 75
+	 * identifiers into each request.
+	 * @param identifiers The cards to look up
+	 * @return The card found for each identifier, in the order given, along with
+	 * the identifiers that were not found
+	 * @throws IOException If any request fails
+	 */
+	public static CollectionResult getCollection(List<CardIdentifier> identifiers) throws IOException
+	{
+		return client.getCollection(identifiers);
 	}
 	
 	/**
 	 * @return A list of all sets in magic's history.
+	 * @throws java.io.UncheckedIOException If the sets could not be fetched
 	 */
 	public static ArrayList<Set> getSets()
 	{
-		ArrayList<Set> s = new ArrayList<>();
-		try{
-			URL url = new URL("https://api.scryfall.com/sets");
-			URLConnection conn = url.openConnection();
-
-			BufferedReader in = new BufferedReader(new InputStreamReader(
-					conn.getInputStream(), "UTF-8"));
-
-
-			String json = "";
-			String line = "";
-			while(line != null)
-			{
-				json+=line;
-				line = in.readLine();
-			}
-
-			JSONObject root = null;
-			try {
-				root = (JSONObject)MTGCardQuery.JSON_PARSER.parse(json);
-			} catch (ParseException e) {
-			}
-
-			in.close();
-
-			JSONArray sets = (JSONArray)root.get("data");
-
-			for (int i = 0; i < sets.size(); i++)
-			{
-				JSONObject setData = ((JSONObject)sets.get(i));
-				s.add(new Set(setData));
-			}
-		}catch(IOException e){
-
-		}
-		return s;
+		return client.getSets();
+	}
+	
+	/**
+	 * Downloads a bulk data file and passes each of its cards to a sink as it is
+	 * decoded, without holding the file in memory.
+	 * @param type The bulk data file to download
+	 * @param sink The sink to receive the cards
+	 * @return The number of cards read
+	 * @throws IOException If the file could not be downloaded or decoded, or the sink fails
+	 */
+	public static long readBulkData(BulkDataType type, CardSink sink) throws IOException
+	{
+		return client.readBulkData(type, sink);
 	}
 	
 	/**
@@ -100,47 +96,73 @@ public class MTGCardQuery {
 	 * https://www.scryfall.com/docs/syntax
 	 * @param query The query to match cards to
 	 * @return A list of card objects that match the query. 
+	 * @throws java.io.UncheckedIOException If the results could not be fetched
 	 */
 	public static ArrayList<Card> search(String query)
 	{
-		String escapedQuery = "";
-		try{
-			escapedQuery = URLEncoder.encode(query,"UTF-8");
-		}catch(IOException e){}
-		String uri = API_URI+"/cards/search?q="+escapedQuery;
+		return client.search(query);
+	}
+
+	/**
+	 * Returns a lazy iterator over the cards that match the query. Pages of
+	 * results are only requested as the iterator reaches them.
+	 * @param query The query to match cards to
+	 * @return An iterator over the matching cards
+	 */
+	public static CardIterator searchIterator(String query)
+	{
+		return client.searchIterator(query);
+	}
 
-		return getCardsFromURI(uri);
+	/**
+	 * Returns an iterator over the cards that match the query, which fetches
+	 * pages of results in the background ahead of the caller.
+	 * @param query The query to match cards to
+	 * @param prefetchPages The most pages to fetch ahead of the one being read,
+	 * or 0 to fetch each page only when it is reached
+	 * @return An iterator over the matching cards
+	 */
+	public static CardIterator searchIterator(String query, int prefetchPages)
+	{
+		return client.searchIterator(query, prefetchPages);
+	}
+
+	/**
+	 * Returns a lazy stream of the cards that match the query. Pages of
+	 * results are only requested as the stream reaches them.
+	 * @param query The query to match cards to
+	 * @return A stream of the matching cards, which should be closed if not
+	 * consumed to the end
+	 */
+	public static Stream<Card> searchStream(String query)
+	{
+		return client.searchStream(query);
+	}
+
+	/**
+	 * Returns a stream of the cards that match the query, which fetches pages
+	 * of results in the background ahead of the caller.
+	 * @param query The query to match cards to
+	 * @param prefetchPages The most pages to fetch ahead of the one being read,
+	 * or 0 to fetch each page only when it is reached
+	 * @return A stream of the matching cards, which should be closed if not
+	 * consumed to the end
+	 */
+	public static Stream<Card> searchStream(String query, int prefetchPages)
+	{
+		return client.searchStream(query, prefetchPages);
 	}
 
 	/**
 	 * Returns a single card object representing the card with the given ID
 	 * @param id The URI to pull data fromScryfall ID of the card
 	 * @return A single card object representing the card with the given ID
+	 * @throws ScryfallException If there is no card with the given ID, or the API
+	 * reported another error
 	 */
 	public static Card getCardByScryfallId(String id) throws IOException
 	{
-		URL url = new URL("https://api.scryfall.com/cards/"+id);
-		URLConnection conn = url.openConnection();
-		BufferedReader in = new BufferedReader(new InputStreamReader(
-				conn.getInputStream(), "UTF-8"));
-
-		String json = "";
-		String line = "";
-		while(line != null)
-		{
-			json+=line;
-			line = in.readLine();
-		}
-
-		JSONObject root = null;
-		try {
-			root = (JSONObject)MTGCardQuery.JSON_PARSER.parse(json);
-		} catch (ParseException e) {
-		}
-
-		in.close();
-
-		return new Card(root);
+		return client.getCardByScryfallId(id);
 	}
 	
 	/**
@@ -150,86 +172,93 @@ public class MTGCardQuery {
 	 */
 	public static Card getCardFromURI(String uri) throws IOException
 	{
-		String escapedQuery = "";
-		try{
-			escapedQuery = URLEncoder.encode(uri,"UTF-8");
-		}catch(IOException e){}
-		URL url = new URL(escapedQuery);
-		URLConnection conn = url.openConnection();
-		BufferedReader in = new BufferedReader(new InputStreamReader(
-				conn.getInputStream(), "UTF-8"));
-
-		String json = "";
-		String line = "";
-		while(line != null)
-		{
-			json+=line;
-			line = in.readLine();
-		}
-
-		JSONObject root = null;
-		try {
-			root = (JSONObject)MTGCardQuery.JSON_PARSER.parse(json);
-		} catch (ParseException e) {
-		}
-
-		in.close();
-
-		return new Card(root);
+		return client.getCardFromURI(uri);
 	}
 
 	/**
 	 * Returns a list of card objects from the given URI
 	 * @param uri The URI to pull data from
 	 * @return A list of card objects from the uri
+	 * @throws java.io.UncheckedIOException If a page could not be fetched, even after retrying
 	 */
 	public static ArrayList<Card> getCardsFromURI(String uri)
 	{
-		ArrayList<Card> cards = new ArrayList<Card>();
-		try{
-			URL url = new URL(uri);
-			URLConnection conn = url.openConnection();
-
-			BufferedReader in = new BufferedReader(new InputStreamReader(
-					conn.getInputStream(), "UTF-8"));
-
-
-			String json = "";
-			String line = "";
-			while(line != null)
-			{
-				json+=line;
-				line = in.readLine();
-			}
-
-			JSONObject root = null;
-			try {
-				root = (JSONObject)MTGCardQuery.JSON_PARSER.parse(json);
-			} catch (ParseException e) {
-			}
-
-			in.close();
-
-			JSONArray jsonCards = (JSONArray)root.get("data");
-
-			for (int i = 0; i < jsonCards.size(); i++)
-			{
-				JSONObject cardData = ((JSONObject)jsonCards.get(i));
-				cards.add(new Card(cardData));
-			}
-
-			if(root.containsKey("has_more") && ((Boolean)root.get("has_more")).booleanValue()){
-				String next = (String)root.get("next_page");
-				try {
-					//Requested wait time between queries
-					Thread.sleep(50);
-				} catch (InterruptedException e) { }
-				cards.addAll(getCardsFromURI(next));
-			}
-		}catch(IOException e){
+		return client.getCardsFromURI(uri);
+	}
 
-		}
+	/**
+	 * Searches without blocking the calling thread.
+	 * @param query The query to match cards to
+	 * @return A future completed with the matching cards
+	 * @see ScryfallClient#searchAsync(String)
+	 */
+	public static CompletableFuture<ArrayList<Card>> searchAsync(String query)
+	{
+		return client.searchAsync(query);
+	}
+
+	/**
+	 * Passes each card that matches the query to a sink, without blocking the
+	 * calling thread or holding the results in memory. Pages are requested only
+	 * as fast as the sink takes their cards.
+	 * @param query The query to match cards to
+	 * @param sink The sink to receive the cards
+	 * @return A future completed with the number of cards passed to the sink
+	 * @see ScryfallClient#searchAsync(String, CardSink)
+	 */
+	public static CompletableFuture<Long> searchAsync(String query, CardSink sink)
+	{
+		return client.searchAsync(query, sink);
+	}
+
+	/**
+	 * Looks up a card by ID without blocking the calling thread.
+	 * @param id The Scryfall ID of the card
+	 * @return A future completed with the card
+	 */
+	public static CompletableFuture<Card> getCardByScryfallIdAsync(String id)
+	{
+		return client.getCardByScryfallIdAsync(id);
+	}
 
-		return cards;
+	/**
+	 * Reads a card from a URI without blocking the calling thread.
+	 * @param uri The URI to pull data from
+	 * @return A future completed with the card
+	 */
+	public static CompletableFuture<Card> getCardFromURIAsync(String uri)
+	{
+		return client.getCardFromURIAsync(uri);
+	}
+
+	/**
+	 * Fetches every set without blocking the calling thread.
+	 * @return A future completed with all sets in magic's history
+	 */
+	public static CompletableFuture<ArrayList<Set>> getSetsAsync()
+	{
+		return client.getSetsAsync();
+	}
+
+	/**
+	 * Looks up cards by name without blocking the calling thread.
+	 * @param cardnames The collection of cardnames to get a list of objects from
+	 * @param listDuplicates If true, the list will contain all editions of any
+	 * card in the input collection.
+	 * @return A future completed with the matching cards
+	 */
+	public static CompletableFuture<ArrayList<Card>> toCardListAsync(Collection<String> cardnames, boolean listDuplicates)
+	{
+		return client.toCardListAsync(cardnames, listDuplicates);
+	}
+
+	/**
+	 * Resolves identifiers without blocking the calling thread.
+	 * @param identifiers The cards to look up
+	 * @return A future completed with the card found for each identifier
+	 */
+	public static CompletableFuture<CollectionResult> getCollectionAsync(List<CardIdentifier> identifiers)
+	{
+		return client.getCollectionAsync(identifiers);
 	}
 }
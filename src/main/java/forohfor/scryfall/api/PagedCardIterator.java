@@ -0,0 +1,200 @@
+package forohfor.scryfall.api;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
+
+import org.json.simple.JSONObject;
+
+/**
+ * Walks a paginated list one card at a time. Each page is decoded straight
+ * from its response as the caller advances, and the next page is only opened
+ * once the current one is used up. If a page fails part way through, it is
+ * requested again under the client's retry policy and the cards already
+ * returned from it are skipped, so iteration resumes where it stopped.
+ * @author ForOhForError
+ */
+
+class PagedCardIterator implements CardIterator {
+
+	private final ScryfallClient client;
+	private String pageURI;
+	private JSONStreamReader page;
+	private int readFromPage;
+	private boolean firstPage = true;
+	private Integer totalCards;
+	private Card next;
+	private boolean closed;
+
+	/**
+	 * @param client The client to fetch pages with
+	 * @param uri The URI of the first page
+	 */
+	PagedCardIterator(ScryfallClient client, String uri)
+	{
+		this.client = client;
+		this.pageURI = uri;
+	}
+
+	@Override
+	public Integer getTotalCards()
+	{
+		return totalCards;
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		if(next == null && !closed)
+		{
+			try
+			{
+				next = advance();
+			}
+			catch(IOException e)
+			{
+				close();
+				throw new UncheckedIOException(e);
+			}
+		}
+		return next != null;
+	}
+
+	@Override
+	public Card next()
+	{
+		if(!hasNext())
+		{
+			throw new NoSuchElementException();
+		}
+		Card card = next;
+		next = null;
+		return card;
+	}
+
+	@Override
+	public void close()
+	{
+		closed = true;
+		pageURI = null;
+		closePage();
+	}
+
+	/**
+	 * Decodes the next card, retrying the current page if it fails.
+	 * @return The next card, or null if there are no more.
+	 */
+	private Card advance() throws IOException
+	{
+		int attempt = 1;
+		while(true)
+		{
+			try
+			{
+				return readNext();
+			}
+			catch(IOException e)
+			{
+				closePage();
+				if(!client.getRetryPolicy().awaitRetry(attempt++, e))
+				{
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Decodes the next card, moving on to the next page when the current one
+	 * is used up.
+	 * @return The next card, or null if there are no more.
+	 */
+	private Card readNext() throws IOException
+	{
+		while(true)
+		{
+			if(page == null)
+			{
+				if(pageURI == null || !openPage())
+				{
+					close();
+					return null;
+				}
+			}
+			JSONObject cardData = page.nextObject();
+			if(totalCards == null)
+			{
+				totalCards = JSONUtil.getIntData(page.getHeader(), "total_cards");
+			}
+			if(cardData != null)
+			{
+				readFromPage++;
+				return Card.fromOwnedJSON(cardData);
+			}
+			pageURI = nextPageURI(page.getHeader());
+			readFromPage = 0;
+			closePage();
+		}
+	}
+
+	/**
+	 * Opens the current page, skipping any cards already returned from it by
+	 * an earlier attempt.
+	 * @return False if the query matched nothing
+	 */
+	private boolean openPage() throws IOException
+	{
+		try
+		{
+			page = client.open(pageURI);
+		}
+		catch(ScryfallException e)
+		{
+			//The API answers a search with no matches with a 404
+			if(firstPage && e.isNotFound())
+			{
+				totalCards = 0;
+				return false;
+			}
+			throw e;
+		}
+		firstPage = false;
+		for(int i = 0; i < readFromPage; i++)
+		{
+			if(page.nextObject() == null)
+			{
+				break;
+			}
+		}
+		return true;
+	}
+
+	private void closePage()
+	{
+		if(page != null)
+		{
+			try
+			{
+				page.close();
+			}
+			catch(IOException e)
+			{
+			}
+			page = null;
+		}
+	}
+
+	/**
+	 * @return The URI of the page after the one with the given header, or null
+	 * if it was the last.
+	 */
+	static String nextPageURI(JSONObject header)
+	{
+		Boolean hasMore = JSONUtil.getBoolData(header, "has_more");
+		if(hasMore != null && hasMore.booleanValue())
+		{
+			return JSONUtil.getStringData(header, "next_page");
+		}
+		return null;
+	}
+}
@@ -0,0 +1,231 @@
+package forohfor.scryfall.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+import org.json.simple.JSONObject;
+
+/**
+ * Walks a paginated list while fetching the pages ahead of the caller in the
+ * background. A task on the client's executor downloads and decodes up to a
+ * fixed number of pages past the one being read, so the caller does not wait
+ * for a round-trip at each page boundary. Requests still go through the
+ * client's rate limiter, and a page that fails is retried as a whole under the
+ * client's retry policy.
+ * @author ForOhForError
+ */
+
+class PrefetchingCardIterator implements CardIterator {
+
+	private static final Page END = new Page(Collections.<Card>emptyList(), null, null);
+
+	private final BlockingQueue<Page> pages = new LinkedBlockingQueue<Page>();
+	private final Semaphore lookahead;
+	private final Future<?> producer;
+	private volatile boolean closed;
+	private volatile Integer totalCards;
+	private Iterator<Card> current = Collections.<Card>emptyList().iterator();
+	private boolean exhausted;
+
+	/**
+	 * @param client The client to fetch pages with
+	 * @param uri The URI of the first page
+	 * @param depth The most pages to hold ahead of the one being read
+	 */
+	PrefetchingCardIterator(final ScryfallClient client, final String uri, int depth)
+	{
+		if(depth < 1)
+		{
+			throw new IllegalArgumentException("Prefetch depth must be at least 1");
+		}
+		lookahead = new Semaphore(depth);
+		producer = client.getExecutor().submit(new Runnable() {
+			@Override
+			public void run() {
+				fetchAll(client, uri);
+			}
+		});
+	}
+
+	@Override
+	public Integer getTotalCards()
+	{
+		return totalCards;
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		while(!current.hasNext())
+		{
+			if(exhausted || closed)
+			{
+				return false;
+			}
+			Page page;
+			try
+			{
+				page = pages.take();
+			}
+			catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				close();
+				throw new UncheckedIOException(new InterruptedIOException("Interrupted waiting for a page"));
+			}
+			lookahead.release();
+			if(page.failure != null)
+			{
+				close();
+				throw new UncheckedIOException(page.failure);
+			}
+			if(page == END)
+			{
+				exhausted = true;
+				return false;
+			}
+			current = page.cards.iterator();
+		}
+		return true;
+	}
+
+	@Override
+	public Card next()
+	{
+		if(!hasNext())
+		{
+			throw new NoSuchElementException();
+		}
+		return current.next();
+	}
+
+	@Override
+	public void close()
+	{
+		closed = true;
+		producer.cancel(true);
+		pages.clear();
+		current = Collections.<Card>emptyList().iterator();
+	}
+
+	/**
+	 * Runs on the executor: fetches each page in turn, waiting whenever the
+	 * caller is the full lookahead depth behind. However fetching ends, the
+	 * last thing queued is either END or a failure, so the caller is never
+	 * left waiting on a page that will not come.
+	 */
+	private void fetchAll(ScryfallClient client, String uri)
+	{
+		boolean firstPage = true;
+		boolean finished = false;
+		IOException failure = null;
+		try
+		{
+			while(uri != null && !closed)
+			{
+				lookahead.acquire();
+				final String pageURI = uri;
+				Page page;
+				try
+				{
+					page = client.retrying(new ScryfallClient.IOSupplier<Page>() {
+						@Override
+						public Page get() throws IOException {
+							return readPage(client, pageURI);
+						}
+					});
+				}
+				catch(ScryfallException e)
+				{
+					//The API answers a search with no matches with a 404
+					if(!firstPage || !e.isNotFound())
+					{
+						throw e;
+					}
+					totalCards = 0;
+					break;
+				}
+				if(firstPage)
+				{
+					totalCards = JSONUtil.getIntData(page.header, "total_cards");
+					firstPage = false;
+				}
+				pages.put(page);
+				uri = PagedCardIterator.nextPageURI(page.header);
+			}
+			finished = true;
+		}
+		catch(InterruptedException e)
+		{
+			//Usually closed by the caller, who will not read the failure
+			failure = new InterruptedIOException("Interrupted fetching pages");
+		}
+		catch(UncheckedIOException e)
+		{
+			failure = e.getCause();
+		}
+		catch(IOException e)
+		{
+			failure = e;
+		}
+		catch(RuntimeException e)
+		{
+			failure = new ScryfallException("Could not decode a page of results", e);
+		}
+		finally
+		{
+			if(finished)
+			{
+				pages.add(END);
+			}
+			else
+			{
+				pages.add(new Page(null, null, failure != null ? failure : new IOException("Fetching pages stopped unexpectedly")));
+			}
+		}
+	}
+
+	/**
+	 * Downloads and decodes a whole page.
+	 */
+	private static Page readPage(ScryfallClient client, String uri) throws IOException
+	{
+		List<Card> cards = new ArrayList<Card>();
+		try(JSONStreamReader in = client.open(uri))
+		{
+			JSONObject cardData;
+			while((cardData = in.nextObject()) != null)
+			{
+				cards.add(Card.fromOwnedJSON(cardData));
+			}
+			return new Page(cards, in.getHeader(), null);
+		}
+	}
+
+	/**
+	 * One decoded page of results, or the failure that ended fetching.
+	 */
+	private static final class Page
+	{
+		private final List<Card> cards;
+		private final JSONObject header;
+		private final IOException failure;
+
+		private Page(List<Card> cards, JSONObject header, IOException failure)
+		{
+			this.cards = cards;
+			this.header = header;
+			this.failure = failure;
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package forohfor.scryfall.api;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The rarity of a printing, in increasing order of scarcity.
+ * @author ForOhForError
+ */
+
+public enum Rarity {
+
+	COMMON("common"),
+	UNCOMMON("uncommon"),
+	RARE("rare"),
+	/**
+	 * Timeshifted and other one-off rarities.
+	 */
+	SPECIAL("special"),
+	MYTHIC("mythic"),
+	/**
+	 * Power Nine reprints and other bonus sheet cards.
+	 */
+	BONUS("bonus");
+
+	private static final Map<String,Rarity> BY_CODE = new HashMap<String,Rarity>();
+
+	static
+	{
+		for(Rarity rarity:values())
+		{
+			BY_CODE.put(rarity.code, rarity);
+		}
+	}
+
+	private final String code;
+
+	private Rarity(String code)
+	{
+		this.code = code;
+	}
+
+	/**
+	 * @return The rarity as named by the API, such as "mythic".
+	 */
+	public String getCode()
+	{
+		return code;
+	}
+
+	/**
+	 * @param code The rarity as named by the API
+	 * @return The matching rarity, or null if the code is null or unknown.
+	 */
+	public static Rarity fromCode(String code)
+	{
+		return code == null ? null : BY_CODE.get(code);
+	}
+}
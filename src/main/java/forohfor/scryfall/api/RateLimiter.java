@@ -0,0 +1,250 @@
+package forohfor.scryfall.api;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free token bucket that every request to the API waits on. Tokens
+ * refill at a steady rate up to a burst size, and each request takes one.
+ * The bucket is kept as a single timestamp (the time at which it would next be
+ * empty) updated by compare-and-set, so no lock is held while waiting.
+ * <p>
+ * A fair limiter hands out start times in the order callers arrive and each
+ * caller simply sleeps until its turn. An unfair limiter lets callers retry
+ * once tokens are available, so a late arrival may start before an earlier one
+ * that is still asleep.
+ * @author ForOhForError
+ */
+
+public class RateLimiter {
+
+	private static final RateLimiter SHARED = new RateLimiter(50, TimeUnit.MILLISECONDS);
+
+	private final AtomicLong emptyAt;
+	private volatile long intervalNanos;
+	private volatile long toleranceNanos;
+	private volatile boolean fair;
+
+	private final LongAdder acquired = new LongAdder();
+	private final LongAdder delayed = new LongAdder();
+	private final LongAdder waitNanos = new LongAdder();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+	private final AtomicLong waiting = new AtomicLong();
+
+	/**
+	 * Creates a fair limiter allowing one request per interval, with no bursts.
+	 * @param interval The minimum time between the start of two requests
+	 * @param unit The unit of the interval
+	 */
+	public RateLimiter(long interval, TimeUnit unit)
+	{
+		if(interval < 0)
+		{
+			throw new IllegalArgumentException("Interval must not be negative");
+		}
+		emptyAt = new AtomicLong(System.nanoTime());
+		intervalNanos = unit.toNanos(interval);
+		toleranceNanos = 0;
+		fair = true;
+	}
+
+	/**
+	 * Creates a limiter with the given rate and burst size.
+	 * @param permitsPerSecond The steady number of requests allowed per second
+	 * @param burst The most requests that may start at once after a quiet period
+	 * @param fair True to serve callers strictly in arrival order
+	 */
+	public RateLimiter(double permitsPerSecond, int burst, boolean fair)
+	{
+		this(0, TimeUnit.NANOSECONDS);
+		configure(permitsPerSecond, burst, fair);
+	}
+
+	/**
+	 * @return The process-wide limiter used by clients that are not given one.
+	 * It starts out allowing one request every 50ms as Scryfall asks, and can
+	 * be changed with {@link #configure(double, int, boolean)}.
+	 */
+	public static RateLimiter getShared()
+	{
+		return SHARED;
+	}
+
+	/**
+	 * Changes the rate, burst size and fairness. Takes effect for callers that
+	 * arrive afterwards.
+	 * @param permitsPerSecond The steady number of requests allowed per second
+	 * @param burst The most requests that may start at once after a quiet period
+	 * @param fair True to serve callers strictly in arrival order
+	 */
+	public void configure(double permitsPerSecond, int burst, boolean fair)
+	{
+		if(!(permitsPerSecond > 0) || burst < 1)
+		{
+			throw new IllegalArgumentException("Rate must be positive and burst at least 1");
+		}
+		long interval = (long)(TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+		intervalNanos = interval;
+		toleranceNanos = interval * (burst - 1);
+		this.fair = fair;
+	}
+
+	/**
+	 * Blocks until the caller may start a request.
+	 * @throws InterruptedException If interrupted while waiting
+	 */
+	public void acquire() throws InterruptedException
+	{
+		long arrived = System.nanoTime();
+		waiting.incrementAndGet();
+		try
+		{
+			if(fair)
+			{
+				acquireFair(arrived);
+			}
+			else
+			{
+				acquireUnfair();
+			}
+		}
+		finally
+		{
+			waiting.decrementAndGet();
+		}
+		long waited = System.nanoTime() - arrived;
+		acquired.increment();
+		waitNanos.add(waited);
+		maxWaitNanos.accumulateAndGet(waited, Math::max);
+		if(waited > TimeUnit.MILLISECONDS.toNanos(1))
+		{
+			delayed.increment();
+		}
+	}
+
+	/**
+	 * Takes a token without waiting, if one is available.
+	 * @return True if the caller may start a request now
+	 */
+	public boolean tryAcquire()
+	{
+		if(take())
+		{
+			acquired.increment();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Takes a token if one is available now.
+	 */
+	private boolean take()
+	{
+		while(true)
+		{
+			long now = System.nanoTime();
+			long empty = emptyAt.get();
+			long from = empty - now > 0 ? empty : now;
+			if(from - toleranceNanos - now > 0)
+			{
+				return false;
+			}
+			if(emptyAt.compareAndSet(empty, from + intervalNanos))
+			{
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Reserves the next start time with a single compare-and-set, then sleeps
+	 * until it arrives.
+	 */
+	private void acquireFair(long now) throws InterruptedException
+	{
+		long start;
+		while(true)
+		{
+			long empty = emptyAt.get();
+			long from = empty - now > 0 ? empty : now;
+			start = from - toleranceNanos;
+			if(emptyAt.compareAndSet(empty, from + intervalNanos))
+			{
+				break;
+			}
+			now = System.nanoTime();
+		}
+		long wait = start - now;
+		if(wait > 0)
+		{
+			TimeUnit.NANOSECONDS.sleep(wait);
+		}
+	}
+
+	/**
+	 * Sleeps until a token should be free, then competes for it again.
+	 */
+	private void acquireUnfair() throws InterruptedException
+	{
+		while(!take())
+		{
+			long wait = emptyAt.get() - toleranceNanos - System.nanoTime();
+			TimeUnit.NANOSECONDS.sleep(Math.max(wait, 1000));
+		}
+	}
+
+	/**
+	 * @return The number of times a caller has been allowed to start a request.
+	 */
+	public long getAcquireCount()
+	{
+		return acquired.sum();
+	}
+
+	/**
+	 * @return The number of acquisitions that waited more than a millisecond for a token.
+	 */
+	public long getDelayedCount()
+	{
+		return delayed.sum();
+	}
+
+	/**
+	 * @param unit The unit to report in
+	 * @return The total time callers have spent waiting for tokens.
+	 */
+	public long getTotalWaitTime(TimeUnit unit)
+	{
+		return unit.convert(waitNanos.sum(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param unit The unit to report in
+	 * @return The longest any single caller has waited for a token.
+	 */
+	public long getMaxWaitTime(TimeUnit unit)
+	{
+		return unit.convert(maxWaitNanos.get(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @return The number of callers currently waiting for a token.
+	 */
+	public long getWaitingCount()
+	{
+		return waiting.get();
+	}
+
+	/**
+	 * Clears the wait metrics.
+	 */
+	public void resetMetrics()
+	{
+		acquired.reset();
+		delayed.reset();
+		waitNanos.reset();
+		maxWaitNanos.set(0);
+	}
+}
@@ -0,0 +1,271 @@
+package forohfor.scryfall.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Fills in many {@link CardReference}s at once. Rather than each reference
+ * fetching its card with a request of its own, the missing ids are looked
+ * up in cards this resolver already knows, then in an optional lookup, and
+ * the rest are fetched through the collection endpoint, 75 to a request. An
+ * id that another thread is already fetching is waited on rather than
+ * fetched twice.
+ * <p>
+ * To resolve against cards held elsewhere, such as a
+ * {@link forohfor.scryfall.local.CardCatalog} or a
+ * {@link forohfor.scryfall.store.CardStore}, pass a lookup like
+ * {@code catalog::getCard} rather than feeding every card in. Cards fed to it
+ * as a {@link CardSink} are kept on the heap by the resolver.
+ * @author ForOhForError
+ */
+
+public class ReferenceResolver implements CardSink {
+
+	private final ScryfallClient client;
+	private final Function<UUID,Card> lookup;
+	private final ConcurrentHashMap<UUID,Card> known = new ConcurrentHashMap<UUID,Card>();
+	private final ConcurrentHashMap<UUID,CompletableFuture<Card>> pending =
+			new ConcurrentHashMap<UUID,CompletableFuture<Card>>();
+
+	/**
+	 * Creates a resolver fetching through the client used by {@link MTGCardQuery}.
+	 */
+	public ReferenceResolver()
+	{
+		this(MTGCardQuery.getClient());
+	}
+
+	/**
+	 * Creates a resolver.
+	 * @param client The client to fetch missing cards through
+	 */
+	public ReferenceResolver(ScryfallClient client)
+	{
+		this(client, null);
+	}
+
+	/**
+	 * Creates a resolver which checks a lookup before asking the API.
+	 * @param client The client to fetch missing cards through
+	 * @param lookup Finds a card by its scryfall id, returning null if it does
+	 * not have it. Cards it returns are not kept by the resolver.
+	 */
+	public ReferenceResolver(ScryfallClient client, Function<UUID,Card> lookup)
+	{
+		this.client = client;
+		this.lookup = lookup;
+	}
+
+	/**
+	 * Remembers a card, so references to it are filled without a request.
+	 * @param card The card
+	 */
+	@Override
+	public void accept(Card card)
+	{
+		UUID id = card.getScryfallUUID();
+		if(id != null)
+		{
+			known.put(id, card);
+		}
+	}
+
+	/**
+	 * Remembers several cards.
+	 * @param cards The cards
+	 */
+	public void addKnown(Collection<? extends Card> cards)
+	{
+		for(Card card:cards)
+		{
+			accept(card);
+		}
+	}
+
+	/**
+	 * @param id A card's scryfall id
+	 * @return The card, if this resolver has seen or fetched it, otherwise null
+	 */
+	public Card getKnownCard(UUID id)
+	{
+		return known.get(id);
+	}
+
+	/**
+	 * @return The number of cards this resolver has seen or fetched.
+	 */
+	public int getKnownCount()
+	{
+		return known.size();
+	}
+
+	/**
+	 * Fills in the references of every part of the given cards, such as the
+	 * tokens they make or the other halves of meld pairs. The references are
+	 * the ones each card's {@link Card#getAllParts()} returns, so later calls on
+	 * the same card objects see them filled in.
+	 * @param cards The cards whose parts to resolve
+	 * @return The number of references filled in by this call
+	 * @throws IOException If a request fails
+	 */
+	public int resolveParts(Collection<? extends Card> cards) throws IOException
+	{
+		ArrayList<CardReference> references = new ArrayList<CardReference>();
+		for(Card card:cards)
+		{
+			List<CardReference> parts = card.getAllParts();
+			if(parts != null)
+			{
+				references.addAll(parts);
+			}
+		}
+		return resolve(references);
+	}
+
+	/**
+	 * Fills in the given references, so that {@link CardReference#getCard()}
+	 * returns without a request. References already filled in are left as
+	 * they are, and each missing card is fetched at most once. References to
+	 * cards the API no longer has stay unresolved.
+	 * @param references The references to resolve
+	 * @return The number of references filled in by this call
+	 * @throws IOException If a request fails
+	 */
+	public int resolve(Collection<CardReference> references) throws IOException
+	{
+		int filled = 0;
+		LinkedHashMap<UUID,CompletableFuture<Card>> claimed = new LinkedHashMap<UUID,CompletableFuture<Card>>();
+		LinkedHashMap<UUID,CompletableFuture<Card>> joined = new LinkedHashMap<UUID,CompletableFuture<Card>>();
+		ArrayList<CardReference> waiting = new ArrayList<CardReference>();
+		for(CardReference reference:references)
+		{
+			if(reference.isResolved())
+			{
+				continue;
+			}
+			UUID id = reference.getScryfallUUID();
+			Card card = known.get(id);
+			if(card == null && lookup != null)
+			{
+				card = lookup.apply(id);
+			}
+			if(card != null)
+			{
+				if(reference.fill(card))
+				{
+					filled++;
+				}
+				continue;
+			}
+			waiting.add(reference);
+			if(claimed.containsKey(id) || joined.containsKey(id))
+			{
+				continue;
+			}
+			CompletableFuture<Card> future = new CompletableFuture<Card>();
+			CompletableFuture<Card> running = pending.putIfAbsent(id, future);
+			if(running == null)
+			{
+				claimed.put(id, future);
+			}
+			else
+			{
+				joined.put(id, running);
+			}
+		}
+		if(waiting.isEmpty())
+		{
+			return filled;
+		}
+
+		if(!claimed.isEmpty())
+		{
+			fetch(claimed);
+		}
+
+		Map<UUID,Card> found = new LinkedHashMap<UUID,Card>();
+		try
+		{
+			for(Map.Entry<UUID,CompletableFuture<Card>> entry:claimed.entrySet())
+			{
+				found.put(entry.getKey(), entry.getValue().get());
+			}
+			for(Map.Entry<UUID,CompletableFuture<Card>> entry:joined.entrySet())
+			{
+				found.put(entry.getKey(), entry.getValue().get());
+			}
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for referenced cards");
+		}
+		catch(ExecutionException e)
+		{
+			if(e.getCause() instanceof IOException)
+			{
+				throw (IOException)e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+
+		for(CardReference reference:waiting)
+		{
+			if(reference.fill(found.get(reference.getScryfallUUID())))
+			{
+				filled++;
+			}
+		}
+		return filled;
+	}
+
+	/**
+	 * Fetches the claimed ids in one collection lookup and completes their
+	 * futures, with null for ids the API does not have.
+	 */
+	private void fetch(Map<UUID,CompletableFuture<Card>> claimed)
+	{
+		try
+		{
+			ArrayList<CardIdentifier> identifiers = new ArrayList<CardIdentifier>();
+			for(UUID id:claimed.keySet())
+			{
+				identifiers.add(CardIdentifier.byScryfallId(id));
+			}
+			for(Card card:client.getCollection(identifiers).getCards())
+			{
+				accept(card);
+			}
+			for(Map.Entry<UUID,CompletableFuture<Card>> entry:claimed.entrySet())
+			{
+				entry.getValue().complete(known.get(entry.getKey()));
+			}
+		}
+		catch(IOException | RuntimeException e)
+		{
+			for(CompletableFuture<Card> future:claimed.values())
+			{
+				future.completeExceptionally(e);
+			}
+		}
+		finally
+		{
+			for(Map.Entry<UUID,CompletableFuture<Card>> entry:claimed.entrySet())
+			{
+				//Never leave other threads waiting on an id nobody is fetching
+				entry.getValue().cancel(false);
+				pending.remove(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+}
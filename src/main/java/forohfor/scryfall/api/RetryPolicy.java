@@ -0,0 +1,144 @@
+package forohfor.scryfall.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether and when a failed request is tried again. Rate limiting,
+ * server errors and dropped connections are retried with exponential backoff
+ * and full jitter, or after the delay the API asked for in Retry-After if it
+ * gave one, never sooner. Missing cards, bad requests and unparseable responses are never
+ * retried.
+ * @author ForOhForError
+ */
+
+public class RetryPolicy {
+
+	private static final RetryPolicy DEFAULT = new RetryPolicy(4, 250, 10000, TimeUnit.MILLISECONDS);
+	private static final RetryPolicy NONE = new RetryPolicy(1, 0, 0, TimeUnit.MILLISECONDS);
+
+	private final int maxAttempts;
+	private final long baseDelayMillis;
+	private final long maxDelayMillis;
+
+	/**
+	 * Creates a retry policy.
+	 * @param maxAttempts The most times a request is tried, including the first
+	 * @param baseDelay The delay before the first retry; each further retry doubles it
+	 * @param maxDelay The longest delay between two attempts. A request the
+	 * API asks to retry later than this is not retried.
+	 * @param unit The unit of the delays
+	 */
+	public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, TimeUnit unit)
+	{
+		if(maxAttempts < 1)
+		{
+			throw new IllegalArgumentException("At least one attempt is required");
+		}
+		this.maxAttempts = maxAttempts;
+		this.baseDelayMillis = unit.toMillis(baseDelay);
+		this.maxDelayMillis = unit.toMillis(maxDelay);
+	}
+
+	/**
+	 * @return The policy clients use unless given another: four attempts,
+	 * starting at 250ms apart and backing off to at most 10 seconds.
+	 */
+	public static RetryPolicy getDefault()
+	{
+		return DEFAULT;
+	}
+
+	/**
+	 * @return A policy that never retries.
+	 */
+	public static RetryPolicy none()
+	{
+		return NONE;
+	}
+
+	/**
+	 * @return The most times a request is tried, including the first.
+	 */
+	public int getMaxAttempts()
+	{
+		return maxAttempts;
+	}
+
+	/**
+	 * @param failure The failure to check
+	 * @return True if the failure is worth trying again.
+	 */
+	public boolean isRetryable(IOException failure)
+	{
+		if(failure instanceof ScryfallException)
+		{
+			ScryfallException.Reason reason = ((ScryfallException)failure).getReason();
+			return reason == ScryfallException.Reason.RATE_LIMITED
+					|| reason == ScryfallException.Reason.SERVER_ERROR;
+		}
+		if(failure instanceof SocketTimeoutException)
+		{
+			return true;
+		}
+		return !(failure instanceof InterruptedIOException || failure instanceof MalformedURLException);
+	}
+
+	/**
+	 * Works out how long to wait before trying again.
+	 * @param attempt The number of attempts made so far
+	 * @param failure The failure of the last attempt
+	 * @return The delay in milliseconds, or -1 if the request should not be
+	 * retried. A server's Retry-After is waited out in full, and one longer
+	 * than the maximum delay stops the retries.
+	 */
+	public long getRetryDelay(int attempt, IOException failure)
+	{
+		if(attempt >= maxAttempts || !isRetryable(failure))
+		{
+			return -1;
+		}
+		if(failure instanceof ScryfallException)
+		{
+			long retryAfter = ((ScryfallException)failure).getRetryAfterMillis();
+			if(retryAfter >= 0)
+			{
+				//Retrying before the server allows it only earns another 429
+				return retryAfter > maxDelayMillis ? -1 : retryAfter;
+			}
+		}
+		long ceiling = baseDelayMillis << Math.min(attempt - 1, 30);
+		if(ceiling <= 0 || ceiling > maxDelayMillis)
+		{
+			ceiling = maxDelayMillis;
+		}
+		return ThreadLocalRandom.current().nextLong(ceiling + 1);
+	}
+
+	/**
+	 * Sleeps for the retry delay.
+	 * @return False if the request should not be retried
+	 */
+	boolean awaitRetry(int attempt, IOException failure) throws InterruptedIOException
+	{
+		long delay = getRetryDelay(attempt, failure);
+		if(delay < 0)
+		{
+			return false;
+		}
+		try
+		{
+			Thread.sleep(delay);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting to retry");
+		}
+		return true;
+	}
+}
@@ -0,0 +1,1167 @@
+package forohfor.scryfall.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+import forohfor.scryfall.http.CachePolicy;
+import forohfor.scryfall.http.CachedResponse;
+import forohfor.scryfall.http.HttpRequest;
+import forohfor.scryfall.http.HttpResponse;
+import forohfor.scryfall.http.HttpTransport;
+import forohfor.scryfall.http.ResponseCache;
+import forohfor.scryfall.http.UrlConnectionTransport;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+/**
+ * An instance-based way to query the API. Clients hold no per-request state, so
+ * a single client may be shared between any number of threads. Every request
+ * made through a client first passes through its rate limiter, which by default
+ * is shared with every other client in the process. Failed requests are retried
+ * according to the client's retry policy; failures that remain are thrown as a
+ * {@link ScryfallException} where the API gave a reason, or wrapped in an
+ * {@link UncheckedIOException} by methods that do not declare IOException.
+ * @author ForOhForError
+ */
+
+public class ScryfallClient {
+
+	/**
+	 * The base URI of Scryfall's API.
+	 */
+	public static final String API_URI = "https://api.scryfall.com";
+
+	private static final ExecutorService DEFAULT_EXECUTOR = createDefaultExecutor();
+
+	private static final HttpTransport DEFAULT_TRANSPORT = new UrlConnectionTransport();
+
+	private static final int COLLECTION_BATCH_SIZE = 75;
+	private static final int MAX_QUERY_LENGTH = 900;
+	private static final int HTTP_NOT_MODIFIED = 304;
+
+	private final String apiURI;
+	private final ExecutorService executor;
+	private final RateLimiter limiter;
+	private final HttpTransport transport;
+	private final RetryPolicy retryPolicy;
+	private final ResponseCache cache;
+	private final CachePolicy cachePolicy;
+
+	/**
+	 * Creates a client using the default executor and the shared rate limiter.
+	 * The default executor runs each task on a virtual thread when the runtime
+	 * provides them, and on a cached pool of daemon threads otherwise.
+	 */
+	public ScryfallClient()
+	{
+		this(DEFAULT_EXECUTOR);
+	}
+
+	/**
+	 * Creates a client that runs parallel work on the given executor, using the
+	 * shared rate limiter.
+	 * @param executor The executor to run parallel queries on
+	 */
+	public ScryfallClient(ExecutorService executor)
+	{
+		this(API_URI, executor, RateLimiter.getShared());
+	}
+
+	/**
+	 * Creates a client using the default transport.
+	 * @param apiURI The base URI of the API, without a trailing slash
+	 * @param executor The executor to run parallel queries on
+	 * @param limiter The rate limiter every request made by this client waits on
+	 */
+	public ScryfallClient(String apiURI, ExecutorService executor, RateLimiter limiter)
+	{
+		this(apiURI, executor, limiter, DEFAULT_TRANSPORT);
+	}
+
+	/**
+	 * Creates a fully configured client.
+	 * @param apiURI The base URI of the API, without a trailing slash
+	 * @param executor The executor to run parallel queries on
+	 * @param limiter The rate limiter every request made by this client waits on
+	 * @param transport The transport requests are carried over
+	 */
+	public ScryfallClient(String apiURI, ExecutorService executor, RateLimiter limiter, HttpTransport transport)
+	{
+		this(apiURI, executor, limiter, transport, RetryPolicy.getDefault(), null, CachePolicy.getDefault());
+	}
+
+	private ScryfallClient(String apiURI, ExecutorService executor, RateLimiter limiter, HttpTransport transport,
+			RetryPolicy retryPolicy, ResponseCache cache, CachePolicy cachePolicy)
+	{
+		this.apiURI = apiURI;
+		this.executor = executor;
+		this.limiter = limiter;
+		this.transport = transport;
+		this.retryPolicy = retryPolicy;
+		this.cache = cache;
+		this.cachePolicy = cachePolicy;
+	}
+
+	/**
+	 * @param executor The executor to run parallel queries and asynchronous
+	 * lookups on. It should not have a small fixed number of threads, since a
+	 * lookup may wait on parallel work queued behind it.
+	 * @return A copy of this client that runs its work on the given executor
+	 */
+	public ScryfallClient withExecutor(ExecutorService executor)
+	{
+		return new ScryfallClient(apiURI, executor, limiter, transport, retryPolicy, cache, cachePolicy);
+	}
+
+	/**
+	 * @param transport The transport to use
+	 * @return A copy of this client that carries requests over the given transport
+	 */
+	public ScryfallClient withTransport(HttpTransport transport)
+	{
+		return new ScryfallClient(apiURI, executor, limiter, transport, retryPolicy, cache, cachePolicy);
+	}
+
+	/**
+	 * @param retryPolicy The retry policy to use
+	 * @return A copy of this client that retries failed requests according to the given policy
+	 */
+	public ScryfallClient withRetryPolicy(RetryPolicy retryPolicy)
+	{
+		return new ScryfallClient(apiURI, executor, limiter, transport, retryPolicy, cache, cachePolicy);
+	}
+
+	/**
+	 * @param cache The cache to keep responses in, or null for none
+	 * @return A copy of this client that answers repeated requests from the given
+	 * cache, using the default cache policy
+	 */
+	public ScryfallClient withCache(ResponseCache cache)
+	{
+		return withCache(cache, CachePolicy.getDefault());
+	}
+
+	/**
+	 * @param cache The cache to keep responses in, or null for none
+	 * @param cachePolicy How long responses for each endpoint stay fresh
+	 * @return A copy of this client that answers repeated requests from the given cache
+	 */
+	public ScryfallClient withCache(ResponseCache cache, CachePolicy cachePolicy)
+	{
+		return new ScryfallClient(apiURI, executor, limiter, transport, retryPolicy, cache, cachePolicy);
+	}
+
+	/**
+	 * @return The base URI requests are made against.
+	 */
+	public String getApiURI()
+	{
+		return apiURI;
+	}
+
+	/**
+	 * @return The executor parallel queries and asynchronous lookups run on.
+	 */
+	public ExecutorService getExecutor()
+	{
+		return executor;
+	}
+
+	/**
+	 * @return The rate limiter every request made by this client waits on.
+	 */
+	public RateLimiter getRateLimiter()
+	{
+		return limiter;
+	}
+
+	/**
+	 * @return The transport requests are carried over.
+	 */
+	public HttpTransport getTransport()
+	{
+		return transport;
+	}
+
+	/**
+	 * @return The policy failed requests are retried under.
+	 */
+	public RetryPolicy getRetryPolicy()
+	{
+		return retryPolicy;
+	}
+
+	/**
+	 * @return The cache responses are kept in, or null if this client does not cache.
+	 */
+	public ResponseCache getCache()
+	{
+		return cache;
+	}
+
+	/**
+	 * Returns a list of card objects containing all cards matching any
+	 * of the card names passed as an argument, in the order of the names.
+	 * Single printings are resolved through /cards/collection, 75 names per
+	 * request; all printings are found by searching for many names at once.
+	 * Names that match no card are left out.
+	 * @param cardnames The collection of cardnames to get a list of objects from
+	 * @param listDuplicates If true, the returned list will contain all
+	 * editions of any card in the input collection.
+	 * @return A list of card objects that match the query.
+	 * @throws UncheckedIOException If the cards could not be fetched
+	 */
+	public ArrayList<Card> toCardList(Collection<String> cardnames, boolean listDuplicates)
+	{
+		if(listDuplicates)
+		{
+			return searchAllPrintings(cardnames);
+		}
+		List<CardIdentifier> identifiers = new ArrayList<CardIdentifier>();
+		for(String cardname:cardnames)
+		{
+			identifiers.add(CardIdentifier.byName(cardname));
+		}
+		try
+		{
+			return getCollection(identifiers).getCards();
+		}
+		catch(IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Resolves each identifier to a single printing through /cards/collection.
+	 * Identifiers are de-duplicated and packed 75 to a request, and the requests
+	 * are run in parallel on this client's executor, still under its rate limiter.
+	 * @param identifiers The cards to look up
+	 * @return The card found for each identifier, in the order given, along with
+	 * the identifiers that were not found
+	 * @throws IOException If any request fails
+	 */
+	public CollectionResult getCollection(List<CardIdentifier> identifiers) throws IOException
+	{
+		List<CardIdentifier> distinct = new ArrayList<CardIdentifier>(new LinkedHashSet<CardIdentifier>(identifiers));
+		List<Future<Map<CardIdentifier,Card>>> futures = new ArrayList<Future<Map<CardIdentifier,Card>>>();
+		for(int i = 0; i < distinct.size(); i += COLLECTION_BATCH_SIZE)
+		{
+			final List<CardIdentifier> batch = distinct.subList(i, Math.min(distinct.size(), i+COLLECTION_BATCH_SIZE));
+			futures.add(executor.submit(new Callable<Map<CardIdentifier,Card>>() {
+				@Override
+				public Map<CardIdentifier,Card> call() throws IOException {
+					return retrying(new IOSupplier<Map<CardIdentifier,Card>>() {
+						@Override
+						public Map<CardIdentifier,Card> get() throws IOException {
+							return fetchCollection(batch);
+						}
+					});
+				}
+			}));
+		}
+		Map<CardIdentifier,Card> found = new HashMap<CardIdentifier,Card>();
+		try
+		{
+			for(Future<Map<CardIdentifier,Card>> future:futures)
+			{
+				found.putAll(future.get());
+			}
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for a collection batch");
+		}
+		catch(ExecutionException e)
+		{
+			if(e.getCause() instanceof IOException)
+			{
+				throw (IOException)e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		finally
+		{
+			for(Future<Map<CardIdentifier,Card>> future:futures)
+			{
+				future.cancel(true);
+			}
+		}
+		List<Card> results = new ArrayList<Card>();
+		for(CardIdentifier identifier:identifiers)
+		{
+			results.add(found.get(identifier));
+		}
+		return new CollectionResult(new ArrayList<CardIdentifier>(identifiers), results);
+	}
+
+	/**
+	 * @return A list of all sets in magic's history.
+	 * @throws UncheckedIOException If the sets could not be fetched
+	 */
+	public ArrayList<Set> getSets()
+	{
+		try
+		{
+			return retrying(new IOSupplier<ArrayList<Set>>() {
+				@Override
+				public ArrayList<Set> get() throws IOException {
+					ArrayList<Set> s = new ArrayList<>();
+					try(JSONStreamReader in = open(apiURI+"/sets"))
+					{
+						JSONObject setData;
+						while((setData = in.nextObject()) != null)
+						{
+							s.add(Set.fromOwnedJSON(setData));
+						}
+					}
+					return s;
+				}
+			});
+		}
+		catch(IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @param type The bulk data file to look up
+	 * @return The URI the current copy of the file can be downloaded from.
+	 * @throws IOException If the bulk data index could not be fetched
+	 */
+	public String getBulkDataURI(final BulkDataType type) throws IOException
+	{
+		return retrying(new IOSupplier<String>() {
+			@Override
+			public String get() throws IOException {
+				Object bulkData;
+				try(JSONStreamReader in = open(apiURI+"/bulk-data/"+type.getType()))
+				{
+					bulkData = in.readValue();
+				}
+				String uri = bulkData instanceof JSONObject ?
+						JSONUtil.getStringData((JSONObject)bulkData, "download_uri") : null;
+				if(uri == null)
+				{
+					throw new ScryfallException("Bulk data object has no download_uri", null);
+				}
+				return uri;
+			}
+		});
+	}
+
+	/**
+	 * Downloads a bulk data file, decoding its cards one at a time as they
+	 * arrive. The file is never held in memory or stored in the response cache.
+	 * @param type The bulk data file to download
+	 * @return A reader over the file's cards, which the caller must close
+	 * @throws IOException If the download could not be started
+	 */
+	public BulkDataReader openBulkData(BulkDataType type) throws IOException
+	{
+		final HttpRequest request = HttpRequest.get(getBulkDataURI(type));
+		HttpResponse response = retrying(new IOSupplier<HttpResponse>() {
+			@Override
+			public HttpResponse get() throws IOException {
+				return send(request);
+			}
+		});
+		return new BulkDataReader(response.getBody());
+	}
+
+	/**
+	 * Downloads a bulk data file and passes each of its cards to a sink as it is
+	 * decoded, so that a whole catalog can be loaded in constant memory.
+	 * @param type The bulk data file to download
+	 * @param sink The sink to receive the cards
+	 * @return The number of cards read
+	 * @throws IOException If the file could not be downloaded or decoded, or the sink fails
+	 */
+	public long readBulkData(BulkDataType type, CardSink sink) throws IOException
+	{
+		return openBulkData(type).readAll(sink);
+	}
+
+	/**
+	 * Returns a list of card objects that match the query.
+	 * The query should be formatted using scryfall's syntax:
+	 * https://www.scryfall.com/docs/syntax
+	 * @param query The query to match cards to
+	 * @return A list of card objects that match the query, which is empty if
+	 * nothing matched.
+	 * @throws UncheckedIOException If the results could not be fetched
+	 */
+	public ArrayList<Card> search(String query)
+	{
+		return getCardsFromURI(searchURI(query));
+	}
+
+	/**
+	 * Runs several searches in parallel on this client's executor. The searches
+	 * still share this client's rate limiter.
+	 * @param queries The queries to run
+	 * @return The results of each query, in the same order as the queries
+	 * @throws InterruptedException If interrupted while waiting for the results
+	 * @throws UncheckedIOException If any of the searches failed
+	 */
+	public List<ArrayList<Card>> searchAll(Collection<String> queries) throws InterruptedException
+	{
+		List<Future<ArrayList<Card>>> futures = new ArrayList<Future<ArrayList<Card>>>();
+		for(final String query:queries)
+		{
+			futures.add(executor.submit(new Callable<ArrayList<Card>>() {
+				@Override
+				public ArrayList<Card> call() {
+					return search(query);
+				}
+			}));
+		}
+		List<ArrayList<Card>> results = new ArrayList<ArrayList<Card>>();
+		try
+		{
+			for(Future<ArrayList<Card>> future:futures)
+			{
+				results.add(future.get());
+			}
+		}
+		catch(ExecutionException e)
+		{
+			if(e.getCause() instanceof RuntimeException)
+			{
+				throw (RuntimeException)e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		finally
+		{
+			for(Future<ArrayList<Card>> future:futures)
+			{
+				future.cancel(true);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Returns a single card object representing the card with the given ID
+	 * @param id The Scryfall ID of the card
+	 * @return A single card object representing the card with the given ID
+	 * @throws ScryfallException If there is no card with the given ID, or the API
+	 * reported another error
+	 */
+	public Card getCardByScryfallId(String id) throws IOException
+	{
+		return readCard(apiURI+"/cards/"+id);
+	}
+
+	/**
+	 * Returns a single card object from the given URI
+	 * @param uri The URI to pull data from, such as a card's or card
+	 * reference's API URI. It is requested as given, so must already be escaped.
+	 * @return A single card object from the uri
+	 * @throws ScryfallException If there is no card at the URI, or the API
+	 * reported another error
+	 */
+	public Card getCardFromURI(String uri) throws IOException
+	{
+		return readCard(uri);
+	}
+
+	/**
+	 * Returns a list of card objects from the given URI, following every
+	 * following page of results.
+	 * @param uri The URI to pull data from
+	 * @return A list of card objects from the uri
+	 * @throws UncheckedIOException If a page could not be fetched, even after retrying
+	 */
+	public ArrayList<Card> getCardsFromURI(String uri)
+	{
+		ArrayList<Card> cards = new ArrayList<Card>();
+		try(CardIterator it = getCardIterator(uri))
+		{
+			while(it.hasNext())
+			{
+				cards.add(it.next());
+			}
+		}
+		return cards;
+	}
+
+	/**
+	 * Runs {@link #search(String)} on this client's executor.
+	 * @param query The query to match cards to
+	 * @return A future completed with the matching cards, or failed with the
+	 * IOException that stopped the search
+	 */
+	public CompletableFuture<ArrayList<Card>> searchAsync(final String query)
+	{
+		return async(new IOSupplier<ArrayList<Card>>() {
+			@Override
+			public ArrayList<Card> get() {
+				return search(query);
+			}
+		});
+	}
+
+	/**
+	 * Passes each card that matches the query to a sink on this client's
+	 * executor, without collecting the results in memory. A page is only
+	 * requested once the sink has taken every card of the one before, so a
+	 * slow sink slows the search rather than letting results pile up.
+	 * @param query The query to match cards to
+	 * @param sink The sink to receive the cards
+	 * @return A future completed with the number of cards passed to the sink,
+	 * or failed with the IOException from a request or from the sink.
+	 * Cancelling it stops the search.
+	 */
+	public CompletableFuture<Long> searchAsync(final String query, final CardSink sink)
+	{
+		return async(new IOSupplier<Long>() {
+			@Override
+			public Long get() throws IOException {
+				long count = 0;
+				try(CardIterator it = searchIterator(query))
+				{
+					while(it.hasNext())
+					{
+						if(Thread.interrupted())
+						{
+							throw new InterruptedIOException("Search cancelled");
+						}
+						sink.accept(it.next());
+						count++;
+					}
+				}
+				return count;
+			}
+		});
+	}
+
+	/**
+	 * Runs {@link #getCardByScryfallId(String)} on this client's executor.
+	 * @param id The Scryfall ID of the card
+	 * @return A future completed with the card, or failed with a
+	 * {@link ScryfallException} if there is no card with the given ID
+	 */
+	public CompletableFuture<Card> getCardByScryfallIdAsync(final String id)
+	{
+		return async(new IOSupplier<Card>() {
+			@Override
+			public Card get() throws IOException {
+				return getCardByScryfallId(id);
+			}
+		});
+	}
+
+	/**
+	 * Runs {@link #getCardFromURI(String)} on this client's executor.
+	 * @param uri The URI to pull data from
+	 * @return A future completed with the card, or failed with a
+	 * {@link ScryfallException} if there is no card at the URI
+	 */
+	public CompletableFuture<Card> getCardFromURIAsync(final String uri)
+	{
+		return async(new IOSupplier<Card>() {
+			@Override
+			public Card get() throws IOException {
+				return getCardFromURI(uri);
+			}
+		});
+	}
+
+	/**
+	 * Runs {@link #getSets()} on this client's executor.
+	 * @return A future completed with every set, or failed with the
+	 * IOException that stopped the request
+	 */
+	public CompletableFuture<ArrayList<Set>> getSetsAsync()
+	{
+		return async(new IOSupplier<ArrayList<Set>>() {
+			@Override
+			public ArrayList<Set> get() {
+				return getSets();
+			}
+		});
+	}
+
+	/**
+	 * Runs {@link #toCardList(Collection, boolean)} on this client's executor.
+	 * The names are copied before this returns.
+	 * @param cardnames The collection of cardnames to get a list of objects from
+	 * @param listDuplicates If true, the list will contain all editions of any
+	 * card in the input collection.
+	 * @return A future completed with the matching cards, or failed with the
+	 * IOException that stopped the lookup
+	 */
+	public CompletableFuture<ArrayList<Card>> toCardListAsync(Collection<String> cardnames, final boolean listDuplicates)
+	{
+		final List<String> names = new ArrayList<String>(cardnames);
+		return async(new IOSupplier<ArrayList<Card>>() {
+			@Override
+			public ArrayList<Card> get() {
+				return toCardList(names, listDuplicates);
+			}
+		});
+	}
+
+	/**
+	 * Runs {@link #getCollection(List)} on this client's executor. The
+	 * identifiers are copied before this returns.
+	 * @param identifiers The cards to look up
+	 * @return A future completed with the lookup's result, or failed with the
+	 * IOException that stopped it
+	 */
+	public CompletableFuture<CollectionResult> getCollectionAsync(List<CardIdentifier> identifiers)
+	{
+		final List<CardIdentifier> copy = new ArrayList<CardIdentifier>(identifiers);
+		return async(new IOSupplier<CollectionResult>() {
+			@Override
+			public CollectionResult get() throws IOException {
+				return getCollection(copy);
+			}
+		});
+	}
+
+	/**
+	 * Returns a lazy iterator over the cards that match the query. Each page of
+	 * results is only requested once the iterator reaches it.
+	 * @param query The query to match cards to
+	 * @return An iterator over the matching cards
+	 */
+	public CardIterator searchIterator(String query)
+	{
+		return getCardIterator(searchURI(query));
+	}
+
+	/**
+	 * Returns an iterator over the cards that match the query, which fetches
+	 * pages of results in the background ahead of the caller.
+	 * @param query The query to match cards to
+	 * @param prefetchPages The most pages to fetch ahead of the one being read,
+	 * or 0 to fetch each page only when it is reached
+	 * @return An iterator over the matching cards
+	 */
+	public CardIterator searchIterator(String query, int prefetchPages)
+	{
+		return getCardIterator(searchURI(query), prefetchPages);
+	}
+
+	/**
+	 * Returns a lazy stream of the cards that match the query. Each page of
+	 * results is only requested once the stream reaches it, so a short-circuiting
+	 * stream such as one ending in limit(50) never fetches the rest.
+	 * @param query The query to match cards to
+	 * @return A stream of the matching cards, which should be closed if not
+	 * consumed to the end
+	 */
+	public Stream<Card> searchStream(String query)
+	{
+		return searchIterator(query).stream();
+	}
+
+	/**
+	 * Returns a stream of the cards that match the query, which fetches pages
+	 * of results in the background ahead of the caller.
+	 * @param query The query to match cards to
+	 * @param prefetchPages The most pages to fetch ahead of the one being read,
+	 * or 0 to fetch each page only when it is reached
+	 * @return A stream of the matching cards, which should be closed if not
+	 * consumed to the end
+	 */
+	public Stream<Card> searchStream(String query, int prefetchPages)
+	{
+		return searchIterator(query, prefetchPages).stream();
+	}
+
+	/**
+	 * Returns a lazy iterator over the cards in the paginated list at the given URI.
+	 * @param uri The URI of the first page
+	 * @return An iterator over the cards in the list
+	 */
+	public CardIterator getCardIterator(String uri)
+	{
+		return new PagedCardIterator(this, uri);
+	}
+
+	/**
+	 * Returns an iterator over the cards in the paginated list at the given URI,
+	 * which fetches pages in the background on this client's executor.
+	 * @param uri The URI of the first page
+	 * @param prefetchPages The most pages to fetch ahead of the one being read,
+	 * or 0 to fetch each page only when it is reached
+	 * @return An iterator over the cards in the list
+	 */
+	public CardIterator getCardIterator(String uri, int prefetchPages)
+	{
+		if(prefetchPages <= 0)
+		{
+			return getCardIterator(uri);
+		}
+		return new PrefetchingCardIterator(this, uri, prefetchPages);
+	}
+
+	/**
+	 * Looks up one batch of at most 75 identifiers. The API returns the cards
+	 * it found in the order they were asked for, followed by the identifiers it
+	 * could not find, so each card is paired with the next identifier not listed
+	 * as missing. This holds even when the API resolved a name spelled
+	 * differently from the card's own. Only if the counts disagree, in case the
+	 * API ever skips one, are cards matched to identifiers by their contents.
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<CardIdentifier,Card> fetchCollection(List<CardIdentifier> batch) throws IOException
+	{
+		JSONArray ids = new JSONArray();
+		for(CardIdentifier identifier:batch)
+		{
+			ids.add(identifier.getJSONData());
+		}
+		JSONObject body = new JSONObject();
+		body.put("identifiers", ids);
+
+		List<Card> cards = new ArrayList<Card>();
+		HashSet<CardIdentifier> notFound = new HashSet<CardIdentifier>();
+		try(JSONStreamReader in = post(apiURI+"/cards/collection", body))
+		{
+			JSONObject cardData;
+			while((cardData = in.nextObject()) != null)
+			{
+				cards.add(Card.fromOwnedJSON(cardData));
+			}
+			Object missing = in.getHeader().get("not_found");
+			if(missing instanceof JSONArray)
+			{
+				for(Object o:(JSONArray)missing)
+				{
+					notFound.add(CardIdentifier.fromJSON((JSONObject)o));
+				}
+			}
+		}
+
+		List<CardIdentifier> resolved = new ArrayList<CardIdentifier>();
+		for(CardIdentifier identifier:batch)
+		{
+			if(!notFound.contains(identifier))
+			{
+				resolved.add(identifier);
+			}
+		}
+		Map<CardIdentifier,Card> found = new HashMap<CardIdentifier,Card>();
+		if(resolved.size() == cards.size())
+		{
+			for(int i = 0; i < cards.size(); i++)
+			{
+				found.put(resolved.get(i), cards.get(i));
+			}
+			return found;
+		}
+		for(CardIdentifier identifier:resolved)
+		{
+			for(Card card:cards)
+			{
+				if(identifier.matches(card))
+				{
+					found.put(identifier, card);
+					break;
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Finds every printing of each of the given names by packing as many exact
+	 * name matches into each search as the query length allows, then groups the
+	 * results back into the order of the names.
+	 */
+	private ArrayList<Card> searchAllPrintings(Collection<String> cardnames)
+	{
+		List<String> queries = new ArrayList<String>();
+		StringBuilder query = new StringBuilder();
+		for(String cardname:cardnames)
+		{
+			String term = "!\""+cardname+"\"";
+			if(query.length() > 0 && query.length()+term.length()+4 > MAX_QUERY_LENGTH)
+			{
+				queries.add("++("+query+")");
+				query.setLength(0);
+			}
+			if(query.length() > 0)
+			{
+				query.append(" or ");
+			}
+			query.append(term);
+		}
+		if(query.length() > 0)
+		{
+			queries.add("++("+query+")");
+		}
+
+		LinkedHashMap<String,ArrayList<Card>> byName = new LinkedHashMap<String,ArrayList<Card>>();
+		for(String cardname:cardnames)
+		{
+			byName.put(CardIdentifier.foldName(cardname), new ArrayList<Card>());
+		}
+		ArrayList<Card> unmatched = new ArrayList<Card>();
+		try
+		{
+			for(ArrayList<Card> cards:searchAll(queries))
+			{
+				for(Card card:cards)
+				{
+					ArrayList<Card> group = byName.get(CardIdentifier.foldName(card.getName()));
+					if(group == null && card.isMultifaced())
+					{
+						for(CardFace face:card.getCardFaces())
+						{
+							group = byName.get(CardIdentifier.foldName(face.getName()));
+							if(group != null)
+							{
+								break;
+							}
+						}
+					}
+					(group == null ? unmatched : group).add(card);
+				}
+			}
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new UncheckedIOException(new InterruptedIOException("Interrupted waiting for search results"));
+		}
+
+		ArrayList<Card> result = new ArrayList<Card>();
+		for(ArrayList<Card> group:byName.values())
+		{
+			result.addAll(group);
+		}
+		result.addAll(unmatched);
+		return result;
+	}
+
+	/**
+	 * Builds the search URI for the given query.
+	 */
+	String searchURI(String query)
+	{
+		String escapedQuery = "";
+		try{
+			escapedQuery = URLEncoder.encode(query,"UTF-8");
+		}catch(IOException e){}
+		return apiURI+"/cards/search?q="+escapedQuery;
+	}
+
+	/**
+	 * Opens a streaming reader over the response body of the given URI.
+	 */
+	JSONStreamReader open(String uri) throws IOException
+	{
+		return new JSONStreamReader(execute(HttpRequest.get(uri)).getBody());
+	}
+
+	/**
+	 * Posts the given JSON body and opens a streaming reader over the response.
+	 */
+	JSONStreamReader post(String uri, JSONObject body) throws IOException
+	{
+		byte[] bytes = body.toJSONString().getBytes(StandardCharsets.UTF_8);
+		return new JSONStreamReader(execute(HttpRequest.post(uri, "application/json", bytes)).getBody());
+	}
+
+	/**
+	 * Reads a single card object from the given URI, retrying as needed.
+	 */
+	private Card readCard(final String uri) throws IOException
+	{
+		return retrying(new IOSupplier<Card>() {
+			@Override
+			public Card get() throws IOException {
+				try(JSONStreamReader in = open(uri))
+				{
+					Object card = in.readValue();
+					if(!(card instanceof JSONObject))
+					{
+						throw new ScryfallException("Expected a card object from "+uri, null);
+					}
+					return Card.fromOwnedJSON((JSONObject)card);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Runs each task on a virtual thread where the runtime has them, so that
+	 * thousands of requests can wait on the rate limiter or the network without
+	 * holding a platform thread each. Looked up reflectively, since this
+	 * library still targets Java 8. Otherwise falls back to a cached pool of
+	 * daemon threads.
+	 */
+	private static ExecutorService createDefaultExecutor()
+	{
+		try
+		{
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch(ReflectiveOperationException | RuntimeException e)
+		{
+			return Executors.newCachedThreadPool(new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "scryfall-client-"+count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Runs the given work on this client's executor. The future fails with the
+	 * work's IOException, unwrapped from an UncheckedIOException where needed,
+	 * and cancelling it interrupts the work.
+	 */
+	private <T> CompletableFuture<T> async(final IOSupplier<T> work)
+	{
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+		try
+		{
+			final Future<?> task = executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					try
+					{
+						future.complete(work.get());
+					}
+					catch(UncheckedIOException e)
+					{
+						future.completeExceptionally(e.getCause());
+					}
+					catch(IOException | RuntimeException e)
+					{
+						future.completeExceptionally(e);
+					}
+				}
+			});
+			future.whenComplete(new BiConsumer<T,Throwable>() {
+				@Override
+				public void accept(T result, Throwable failure) {
+					if(future.isCancelled())
+					{
+						task.cancel(true);
+					}
+				}
+			});
+		}
+		catch(RejectedExecutionException e)
+		{
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * Runs the given request and response handling, trying again under the
+	 * retry policy whenever it fails. Since the whole exchange is repeated, a
+	 * failure part way through reading a response is retried just like one
+	 * reported by the API.
+	 */
+	<T> T retrying(IOSupplier<T> exchange) throws IOException
+	{
+		int attempt = 1;
+		while(true)
+		{
+			try
+			{
+				return exchange.get();
+			}
+			catch(IOException e)
+			{
+				if(!retryPolicy.awaitRetry(attempt++, e))
+				{
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Performs the request once, answering it from the cache if a fresh
+	 * response is stored there. Otherwise waits for the rate limiter and sends
+	 * it, storing the response if its endpoint is cacheable. A stale response
+	 * with an ETag or Last-Modified header is revalidated with a conditional
+	 * request, and reused if the API answers 304 Not Modified. Error statuses
+	 * are thrown as a {@link ScryfallException}.
+	 * @return The successful response, whose body the caller must close
+	 */
+	HttpResponse execute(HttpRequest request) throws IOException
+	{
+		long ttl = cache == null ? 0 : cachePolicy.getTtlMillis(request);
+		CachedResponse cached = null;
+		if(ttl > 0)
+		{
+			cached = cache.get(request.getURI());
+			if(cached != null && cached.isFresh(System.currentTimeMillis()))
+			{
+				return cached.toResponse();
+			}
+			if(cached != null && cached.isRevalidatable())
+			{
+				if(cached.getHeader("ETag") != null)
+				{
+					request = request.withHeader("If-None-Match", cached.getHeader("ETag"));
+				}
+				if(cached.getHeader("Last-Modified") != null)
+				{
+					request = request.withHeader("If-Modified-Since", cached.getHeader("Last-Modified"));
+				}
+			}
+		}
+		HttpResponse response = send(request);
+		if(response.getStatus() == HTTP_NOT_MODIFIED && cached != null)
+		{
+			response.close();
+			long now = System.currentTimeMillis();
+			CachedResponse refreshed = cached.refresh(response, now, now + ttl);
+			cache.put(refreshed);
+			return refreshed.toResponse();
+		}
+		if(ttl > 0)
+		{
+			long now = System.currentTimeMillis();
+			CachedResponse stored;
+			try(InputStream in = response.getBody())
+			{
+				stored = new CachedResponse(request.getURI(), response.getStatus(), response.getHeaders(),
+						readAll(in), now, now + ttl);
+			}
+			cache.put(stored);
+			return stored.toResponse();
+		}
+		return response;
+	}
+
+	/**
+	 * Waits for the rate limiter, then sends the request over the transport.
+	 */
+	private HttpResponse send(HttpRequest request) throws IOException
+	{
+		try
+		{
+			limiter.acquire();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for the rate limiter");
+		}
+		HttpResponse response = transport.execute(request);
+		if(!response.isSuccessful() && response.getStatus() != HTTP_NOT_MODIFIED)
+		{
+			throw errorFor(response);
+		}
+		return response;
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int n;
+		while((n = in.read(buffer)) >= 0)
+		{
+			out.write(buffer, 0, n);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Builds the exception for an error response, reading the details from the
+	 * API's error object if it sent one.
+	 */
+	private static ScryfallException errorFor(HttpResponse response)
+	{
+		String details = null;
+		try(JSONStreamReader in = new JSONStreamReader(response.getBody()))
+		{
+			Object error = in.readValue();
+			if(error instanceof JSONObject)
+			{
+				details = JSONUtil.getStringData((JSONObject)error, "details");
+			}
+		}
+		catch(IOException e)
+		{
+		}
+		return new ScryfallException(response.getStatus(), details,
+				parseRetryAfter(response.getHeader("Retry-After")));
+	}
+
+	/**
+	 * @return The delay a Retry-After header asks for in milliseconds, whether
+	 * given in seconds or as a date, or -1 if absent or unreadable.
+	 */
+	static long parseRetryAfter(String value)
+	{
+		if(value == null)
+		{
+			return -1;
+		}
+		try
+		{
+			return Math.max(0, Long.parseLong(value.trim()) * 1000);
+		}
+		catch(NumberFormatException e)
+		{
+		}
+		try
+		{
+			long at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+			return Math.max(0, at - System.currentTimeMillis());
+		}
+		catch(DateTimeParseException e)
+		{
+			return -1;
+		}
+	}
+
+	/**
+	 * A piece of I/O work that can be run again.
+	 */
+	interface IOSupplier<T>
+	{
+		T get() throws IOException;
+	}
+}
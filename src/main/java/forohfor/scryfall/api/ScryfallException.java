@@ -0,0 +1,134 @@
+package forohfor.scryfall.api;
+
+import java.io.IOException;
+
+/**
+ * A failure reported by the API, or a response that could not be understood.
+ * The reason tells apart the failures callers usually want to handle
+ * differently.
+ * @author ForOhForError
+ */
+
+public class ScryfallException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The kinds of failure.
+	 */
+	public enum Reason
+	{
+		/**
+		 * The API answered 429 Too Many Requests.
+		 */
+		RATE_LIMITED,
+		/**
+		 * The API answered 404; the card or list does not exist, or a search matched nothing.
+		 */
+		NOT_FOUND,
+		/**
+		 * The API answered with any other 4xx status, such as for a malformed query.
+		 */
+		CLIENT_ERROR,
+		/**
+		 * The API answered with a 5xx status.
+		 */
+		SERVER_ERROR,
+		/**
+		 * The response was not valid JSON, or not the JSON that was expected.
+		 */
+		PARSE_ERROR
+	}
+
+	private final Reason reason;
+	private final int status;
+	private final String details;
+	private final long retryAfterMillis;
+
+	/**
+	 * Creates an exception for an error response.
+	 * @param status The HTTP status code
+	 * @param details The error details the API sent, if any
+	 * @param retryAfterMillis How long the API asked callers to wait, or -1 if it did not say
+	 */
+	public ScryfallException(int status, String details, long retryAfterMillis)
+	{
+		super("HTTP "+status+(details == null ? "" : ": "+details));
+		this.reason = reasonFor(status);
+		this.status = status;
+		this.details = details;
+		this.retryAfterMillis = retryAfterMillis;
+	}
+
+	/**
+	 * Creates an exception for a response that could not be parsed.
+	 * @param message A description of the problem
+	 * @param cause The underlying parse failure, if any
+	 */
+	public ScryfallException(String message, Throwable cause)
+	{
+		super(message, cause);
+		this.reason = Reason.PARSE_ERROR;
+		this.status = -1;
+		this.details = null;
+		this.retryAfterMillis = -1;
+	}
+
+	private static Reason reasonFor(int status)
+	{
+		if(status == 429)
+		{
+			return Reason.RATE_LIMITED;
+		}
+		if(status == 404)
+		{
+			return Reason.NOT_FOUND;
+		}
+		if(status >= 500)
+		{
+			return Reason.SERVER_ERROR;
+		}
+		return Reason.CLIENT_ERROR;
+	}
+
+	/**
+	 * @return The kind of failure.
+	 */
+	public Reason getReason()
+	{
+		return reason;
+	}
+
+	/**
+	 * @return The HTTP status code, or -1 for a parse error.
+	 */
+	public int getStatus()
+	{
+		return status;
+	}
+
+	/**
+	 * @return The human-readable details the API sent with the error, if any.
+	 */
+	public String getDetails()
+	{
+		return details;
+	}
+
+	/**
+	 * @return How long the API asked callers to wait before retrying, in
+	 * milliseconds, or -1 if it did not say.
+	 */
+	public long getRetryAfterMillis()
+	{
+		return retryAfterMillis;
+	}
+
+	/**
+	 * @return True if this is a 404.
+	 */
+	public boolean isNotFound()
+	{
+		return reason == Reason.NOT_FOUND;
+	}
+}
@@ -20,7 +20,23 @@ public class Set {
 	 */
 	public Set(JSONObject setData) 
 	{
-		json = new JSONObject(setData);
+		this(setData, true);
+	}
+
+	private Set(JSONObject setData, boolean copy)
+	{
+		json = copy ? new JSONObject(setData) : setData;
+	}
+
+	/**
+	 * Builds a Set that takes ownership of a freshly decoded JSON object
+	 * instead of copying it. The caller must not modify the object afterwards.
+	 * @param setData The JSON object representing the set.
+	 * @return The set
+	 */
+	public static Set fromOwnedJSON(JSONObject setData)
+	{
+		return new Set(setData, false);
 	}
 
 	/**
@@ -0,0 +1,63 @@
+package forohfor.scryfall.api;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares one instance of each string among all the cards decoded. Object
+ * keys and short vocabulary values such as rarities, layouts, set codes,
+ * colors and keywords repeat tens of thousands of times in a full catalog,
+ * and interning them keeps a single copy of each.
+ *
+ * Unlike String.intern(), the table only ever holds what it has been given,
+ * and can be cleared. The shared table is only given values with few
+ * distinct members, so it stays small however long the process runs. A
+ * table created for one bulk data read also shares names, type lines and
+ * artists, and is dropped along with the reader.
+ * @author ForOhForError
+ */
+
+public final class SymbolTable {
+
+	private static final SymbolTable SHARED = new SymbolTable();
+
+	private final ConcurrentHashMap<String,String> symbols = new ConcurrentHashMap<String,String>();
+
+	/**
+	 * @return The table used when decoding API responses.
+	 */
+	public static SymbolTable getShared()
+	{
+		return SHARED;
+	}
+
+	/**
+	 * @param value The string to intern
+	 * @return The table's instance of an equal string, which is the given
+	 * string itself if none was held yet. Null if the value is null.
+	 */
+	public String intern(String value)
+	{
+		if(value == null)
+		{
+			return null;
+		}
+		String existing = symbols.putIfAbsent(value, value);
+		return existing == null ? value : existing;
+	}
+
+	/**
+	 * @return The number of distinct strings held.
+	 */
+	public int size()
+	{
+		return symbols.size();
+	}
+
+	/**
+	 * Forgets every string held. Strings already handed out stay shared.
+	 */
+	public void clear()
+	{
+		symbols.clear();
+	}
+}
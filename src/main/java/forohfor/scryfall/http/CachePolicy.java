@@ -0,0 +1,103 @@
+package forohfor.scryfall.http;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how long a response stays fresh, based on the path of the request.
+ * Rules match by path prefix, and the longest matching prefix wins. A time to
+ * live of zero means responses for that path are never cached.
+ * @author ForOhForError
+ */
+
+public class CachePolicy {
+
+	private static final CachePolicy DEFAULT = new CachePolicy(TimeUnit.HOURS.toMillis(1),
+			Collections.<Rule>emptyList())
+			.withTtl("/sets", 24, TimeUnit.HOURS)
+			.withTtl("/cards/", 12, TimeUnit.HOURS)
+			.withTtl("/cards/search", 1, TimeUnit.HOURS)
+			.withTtl("/cards/random", 0, TimeUnit.MILLISECONDS);
+
+	private final long defaultTtlMillis;
+	private final List<Rule> rules;
+
+	private CachePolicy(long defaultTtlMillis, List<Rule> rules)
+	{
+		this.defaultTtlMillis = defaultTtlMillis;
+		this.rules = rules;
+	}
+
+	/**
+	 * @return The default policy: sets stay fresh for a day, single cards for
+	 * twelve hours (prices change daily), searches and anything else for an
+	 * hour, and random cards are never cached.
+	 */
+	public static CachePolicy getDefault()
+	{
+		return DEFAULT;
+	}
+
+	/**
+	 * @param ttl How long responses stay fresh
+	 * @param unit The unit of the time to live
+	 * @return A policy with the same time to live for every path.
+	 */
+	public static CachePolicy uniform(long ttl, TimeUnit unit)
+	{
+		return new CachePolicy(unit.toMillis(ttl), Collections.<Rule>emptyList());
+	}
+
+	/**
+	 * @param pathPrefix The start of the request paths the rule applies to, such as "/sets"
+	 * @param ttl How long matching responses stay fresh, or 0 to never cache them
+	 * @param unit The unit of the time to live
+	 * @return A copy of this policy with the given rule added.
+	 */
+	public CachePolicy withTtl(String pathPrefix, long ttl, TimeUnit unit)
+	{
+		List<Rule> copy = new ArrayList<Rule>(rules);
+		copy.add(new Rule(pathPrefix, unit.toMillis(ttl)));
+		return new CachePolicy(defaultTtlMillis, copy);
+	}
+
+	/**
+	 * @param request The request to check
+	 * @return How long the response to the given request stays fresh, in
+	 * milliseconds, or 0 if it should not be cached. Only GET requests are cached.
+	 */
+	public long getTtlMillis(HttpRequest request)
+	{
+		if(!"GET".equals(request.getMethod()))
+		{
+			return 0;
+		}
+		String path = URI.create(request.getURI()).getPath();
+		long ttl = defaultTtlMillis;
+		int matched = -1;
+		for(Rule rule:rules)
+		{
+			if(path != null && path.startsWith(rule.prefix) && rule.prefix.length() > matched)
+			{
+				ttl = rule.ttlMillis;
+				matched = rule.prefix.length();
+			}
+		}
+		return ttl;
+	}
+
+	private static final class Rule
+	{
+		private final String prefix;
+		private final long ttlMillis;
+
+		private Rule(String prefix, long ttlMillis)
+		{
+			this.prefix = prefix;
+			this.ttlMillis = ttlMillis;
+		}
+	}
+}
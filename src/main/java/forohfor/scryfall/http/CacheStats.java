@@ -0,0 +1,87 @@
+package forohfor.scryfall.http;
+
+/**
+ * A snapshot of a response cache's counters.
+ * @author ForOhForError
+ */
+
+public class CacheStats {
+
+	private final long hits;
+	private final long misses;
+	private final long evictions;
+	private final long entryCount;
+	private final long byteSize;
+
+	/**
+	 * Creates a snapshot.
+	 * @param hits Lookups answered with a fresh response
+	 * @param misses Lookups that found nothing, or only a stale response
+	 * @param evictions Entries dropped to stay within the cache's bounds
+	 * @param entryCount Entries currently stored
+	 * @param byteSize Approximate bytes currently stored
+	 */
+	public CacheStats(long hits, long misses, long evictions, long entryCount, long byteSize)
+	{
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.entryCount = entryCount;
+		this.byteSize = byteSize;
+	}
+
+	/**
+	 * @return Lookups answered with a fresh response.
+	 */
+	public long getHitCount()
+	{
+		return hits;
+	}
+
+	/**
+	 * @return Lookups that found nothing, or only a stale response.
+	 */
+	public long getMissCount()
+	{
+		return misses;
+	}
+
+	/**
+	 * @return The fraction of lookups that were hits, or 0 if there were none.
+	 */
+	public double getHitRate()
+	{
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double)hits / lookups;
+	}
+
+	/**
+	 * @return Entries dropped to stay within the cache's bounds.
+	 */
+	public long getEvictionCount()
+	{
+		return evictions;
+	}
+
+	/**
+	 * @return Entries currently stored.
+	 */
+	public long getEntryCount()
+	{
+		return entryCount;
+	}
+
+	/**
+	 * @return Approximate bytes currently stored.
+	 */
+	public long getByteSize()
+	{
+		return byteSize;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStats [hits=" + hits + ", misses=" + misses + ", evictions=" + evictions
+				+ ", entries=" + entryCount + ", bytes=" + byteSize + "]";
+	}
+}
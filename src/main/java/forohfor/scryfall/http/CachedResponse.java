@@ -0,0 +1,160 @@
+package forohfor.scryfall.http;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A stored copy of a successful response, kept until it expires. Header names
+ * are matched without regard to case.
+ * @author ForOhForError
+ */
+
+public class CachedResponse {
+
+	private final String uri;
+	private final int status;
+	private final Map<String,List<String>> headers;
+	private final byte[] body;
+	private final long storedAt;
+	private final long expiresAt;
+
+	/**
+	 * Creates a cache entry.
+	 * @param uri The URI the response was fetched from
+	 * @param status The HTTP status code
+	 * @param headers The response headers
+	 * @param body The complete response body
+	 * @param storedAt When the response was received, in epoch milliseconds
+	 * @param expiresAt When the response stops being fresh, in epoch milliseconds
+	 */
+	public CachedResponse(String uri, int status, Map<String,List<String>> headers, byte[] body,
+			long storedAt, long expiresAt)
+	{
+		this.uri = uri;
+		this.status = status;
+		TreeMap<String,List<String>> copy = new TreeMap<String,List<String>>(String.CASE_INSENSITIVE_ORDER);
+		copy.putAll(headers);
+		this.headers = Collections.unmodifiableMap(copy);
+		this.body = body;
+		this.storedAt = storedAt;
+		this.expiresAt = expiresAt;
+	}
+
+	/**
+	 * @return The URI the response was fetched from.
+	 */
+	public String getURI()
+	{
+		return uri;
+	}
+
+	/**
+	 * @return The HTTP status code.
+	 */
+	public int getStatus()
+	{
+		return status;
+	}
+
+	/**
+	 * @return The response headers.
+	 */
+	public Map<String,List<String>> getHeaders()
+	{
+		return headers;
+	}
+
+	/**
+	 * @param name The header name
+	 * @return The first value of the header, or null if it was not sent.
+	 */
+	public String getHeader(String name)
+	{
+		List<String> values = headers.get(name);
+		if(values == null || values.isEmpty())
+		{
+			return null;
+		}
+		return values.get(0);
+	}
+
+	/**
+	 * @return True if the response carries an ETag or Last-Modified header, so
+	 * that it can be revalidated with a conditional request once stale.
+	 */
+	public boolean isRevalidatable()
+	{
+		return getHeader("ETag") != null || getHeader("Last-Modified") != null;
+	}
+
+	/**
+	 * @return The complete response body. Must not be modified.
+	 */
+	public byte[] getBody()
+	{
+		return body;
+	}
+
+	/**
+	 * @return When the response was received, in epoch milliseconds.
+	 */
+	public long getStoredAt()
+	{
+		return storedAt;
+	}
+
+	/**
+	 * @return When the response stops being fresh, in epoch milliseconds.
+	 */
+	public long getExpiresAt()
+	{
+		return expiresAt;
+	}
+
+	/**
+	 * @param now The current time in epoch milliseconds
+	 * @return True if the response may still be served without asking the API.
+	 */
+	public boolean isFresh(long now)
+	{
+		return now < expiresAt;
+	}
+
+	/**
+	 * @return The approximate memory the entry occupies, in bytes.
+	 */
+	public long getSize()
+	{
+		return body.length + 2L * uri.length() + 256;
+	}
+
+	/**
+	 * Builds the entry that replaces this one after the API answered a
+	 * conditional request with 304 Not Modified. The body is kept, and any
+	 * headers sent with the 304 replace the stored ones.
+	 * @param notModified The 304 response
+	 * @param now The current time in epoch milliseconds
+	 * @param expiresAt When the refreshed response stops being fresh, in epoch milliseconds
+	 * @return The refreshed entry
+	 */
+	public CachedResponse refresh(HttpResponse notModified, long now, long expiresAt)
+	{
+		TreeMap<String,List<String>> merged = new TreeMap<String,List<String>>(String.CASE_INSENSITIVE_ORDER);
+		merged.putAll(headers);
+		merged.putAll(notModified.getHeaders());
+		merged.remove("Content-Length");
+		merged.remove("Content-Encoding");
+		return new CachedResponse(uri, status, merged, body, now, expiresAt);
+	}
+
+	/**
+	 * @return A new response that reads this entry's body.
+	 */
+	public HttpResponse toResponse()
+	{
+		return new HttpResponse(status, headers, new ByteArrayInputStream(body));
+	}
+}
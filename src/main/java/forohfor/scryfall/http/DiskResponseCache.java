@@ -0,0 +1,452 @@
+package forohfor.scryfall.http;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A response cache kept in a directory, so that it survives restarts. Each
+ * response is stored in its own file named by a hash of its URI, along with
+ * the ETag and Last-Modified headers needed to revalidate it once it goes
+ * stale. When the total size passes the cap, the least recently used files
+ * are deleted. Several caches must not share a directory.
+ * @author ForOhForError
+ */
+
+public class DiskResponseCache implements ResponseCache {
+
+	private static final int FORMAT_VERSION = 1;
+	private static final String SUFFIX = ".response";
+	private static final String[] KEPT_HEADERS = {"ETag", "Last-Modified", "Content-Type", "Date"};
+
+	private final Path directory;
+	private final long maxBytes;
+	private final ConcurrentHashMap<String,Entry> index = new ConcurrentHashMap<String,Entry>();
+	private final AtomicLong bytes = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Opens a cache in the given directory, creating it if needed and picking up
+	 * any responses stored there by an earlier run.
+	 * @param directory The directory to keep responses in
+	 * @param maxBytes The most bytes of responses to keep on disk
+	 * @throws IOException If the directory cannot be created or read
+	 */
+	public DiskResponseCache(Path directory, long maxBytes) throws IOException
+	{
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		Files.createDirectories(directory);
+		try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*"+SUFFIX))
+		{
+			for(Path file:files)
+			{
+				BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+				String key = file.getFileName().toString();
+				key = key.substring(0, key.length() - SUFFIX.length());
+				index.put(key, new Entry(attrs.size(), attrs.lastModifiedTime().toMillis()));
+				bytes.addAndGet(attrs.size());
+			}
+		}
+		evict();
+	}
+
+	@Override
+	public CachedResponse get(String uri)
+	{
+		String key = keyFor(uri);
+		Entry entry = index.get(key);
+		CachedResponse response = null;
+		if(entry != null)
+		{
+			try
+			{
+				response = read(fileFor(key));
+				if(!uri.equals(response.getURI()))
+				{
+					response = null;
+				}
+				else
+				{
+					entry.lastAccess = System.currentTimeMillis();
+					Files.setLastModifiedTime(fileFor(key), FileTime.fromMillis(entry.lastAccess));
+				}
+			}
+			catch(IOException e)
+			{
+				//Missing or unreadable; treat as absent
+				discard(key);
+				response = null;
+			}
+		}
+		if(response != null && response.isFresh(System.currentTimeMillis()))
+		{
+			hits.incrementAndGet();
+		}
+		else
+		{
+			misses.incrementAndGet();
+		}
+		return response;
+	}
+
+	/**
+	 * Copies the body of a fresh stored response to a channel. The body goes
+	 * straight from the file to the channel, without passing through the
+	 * heap where the platform allows it, which suits forwarding large bodies
+	 * such as images to a socket.
+	 * @param uri The request URI
+	 * @param target The channel to write the body to, in blocking mode
+	 * @return The number of bytes copied, or -1 if no fresh response is stored.
+	 * A stored file shorter than its recorded body is forgotten and reported as
+	 * absent.
+	 * @throws IOException If the channel cannot be written, or the file was cut
+	 * short while it was being copied
+	 */
+	public long transferBody(String uri, WritableByteChannel target) throws IOException
+	{
+		String key = keyFor(uri);
+		Entry entry = index.get(key);
+		FileChannel channel = null;
+		Head head = null;
+		if(entry != null)
+		{
+			try
+			{
+				channel = FileChannel.open(fileFor(key), StandardOpenOption.READ);
+				head = readHead(new DataInputStream(Channels.newInputStream(channel)));
+			}
+			catch(IOException e)
+			{
+				//Missing or unreadable; treat as absent
+				discard(key);
+			}
+		}
+		try
+		{
+			if(head == null || !uri.equals(head.uri) || System.currentTimeMillis() >= head.expiresAt)
+			{
+				misses.incrementAndGet();
+				return -1;
+			}
+			long offset = channel.position();
+			if(channel.size() - offset < head.bodyLength)
+			{
+				//Truncated or partly written
+				discard(key);
+				misses.incrementAndGet();
+				return -1;
+			}
+			hits.incrementAndGet();
+			entry.lastAccess = System.currentTimeMillis();
+			Files.setLastModifiedTime(fileFor(key), FileTime.fromMillis(entry.lastAccess));
+			long copied = 0;
+			while(copied < head.bodyLength)
+			{
+				long sent = channel.transferTo(offset + copied, head.bodyLength - copied, target);
+				if(sent <= 0 && offset + copied >= channel.size())
+				{
+					discard(key);
+					throw new IOException("Cached body of "+uri+" ended after "+copied+" of "+head.bodyLength+" bytes");
+				}
+				copied += sent;
+			}
+			return copied;
+		}
+		finally
+		{
+			if(channel != null)
+			{
+				channel.close();
+			}
+		}
+	}
+
+	@Override
+	public void put(CachedResponse response)
+	{
+		String key = keyFor(response.getURI());
+		Path file = fileFor(key);
+		try
+		{
+			Path temp = Files.createTempFile(directory, key, ".tmp");
+			try
+			{
+				write(response, temp);
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			finally
+			{
+				Files.deleteIfExists(temp);
+			}
+			long size = Files.size(file);
+			Entry old = index.put(key, new Entry(size, System.currentTimeMillis()));
+			bytes.addAndGet(size - (old == null ? 0 : old.size));
+		}
+		catch(IOException e)
+		{
+			//Caching is best effort; the response itself is still served
+			return;
+		}
+		evict();
+	}
+
+	@Override
+	public void remove(String uri)
+	{
+		String key = keyFor(uri);
+		try
+		{
+			Files.deleteIfExists(fileFor(key));
+		}
+		catch(IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		forget(key);
+	}
+
+	@Override
+	public void clear()
+	{
+		for(String key:new ArrayList<String>(index.keySet()))
+		{
+			try
+			{
+				Files.deleteIfExists(fileFor(key));
+			}
+			catch(IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+			forget(key);
+		}
+	}
+
+	@Override
+	public CacheStats getStats()
+	{
+		return new CacheStats(hits.get(), misses.get(), evictions.get(), index.size(), bytes.get());
+	}
+
+	/**
+	 * Deletes least recently used files until the cache is within its cap.
+	 */
+	private synchronized void evict()
+	{
+		if(bytes.get() <= maxBytes)
+		{
+			return;
+		}
+		List<Map.Entry<String,Entry>> entries = new ArrayList<Map.Entry<String,Entry>>(index.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String,Entry>>() {
+			@Override
+			public int compare(Map.Entry<String,Entry> a, Map.Entry<String,Entry> b) {
+				return Long.compare(a.getValue().lastAccess, b.getValue().lastAccess);
+			}
+		});
+		for(Map.Entry<String,Entry> entry:entries)
+		{
+			if(bytes.get() <= maxBytes)
+			{
+				break;
+			}
+			try
+			{
+				Files.deleteIfExists(fileFor(entry.getKey()));
+			}
+			catch(IOException e)
+			{
+				continue;
+			}
+			if(forget(entry.getKey()))
+			{
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Drops a corrupt entry, deleting its file so it cannot be read again.
+	 */
+	private void discard(String key)
+	{
+		try
+		{
+			Files.deleteIfExists(fileFor(key));
+		}
+		catch(IOException e)
+		{
+			//Forgotten all the same; a later put replaces the file
+		}
+		forget(key);
+	}
+
+	private boolean forget(String key)
+	{
+		Entry old = index.remove(key);
+		if(old != null)
+		{
+			bytes.addAndGet(-old.size);
+			return true;
+		}
+		return false;
+	}
+
+	private Path fileFor(String key)
+	{
+		return directory.resolve(key + SUFFIX);
+	}
+
+	private static String keyFor(String uri)
+	{
+		try
+		{
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(uri.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder();
+			for(byte b:hash)
+			{
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return hex.toString();
+		}
+		catch(NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void write(CachedResponse response, Path file) throws IOException
+	{
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file))))
+		{
+			out.writeInt(FORMAT_VERSION);
+			writeString(out, response.getURI());
+			out.writeInt(response.getStatus());
+			out.writeLong(response.getStoredAt());
+			out.writeLong(response.getExpiresAt());
+			List<String[]> headers = new ArrayList<String[]>();
+			for(String name:KEPT_HEADERS)
+			{
+				List<String> values = response.getHeaders().get(name);
+				if(values != null && !values.isEmpty())
+				{
+					headers.add(new String[]{name, values.get(0)});
+				}
+			}
+			out.writeInt(headers.size());
+			for(String[] header:headers)
+			{
+				writeString(out, header[0]);
+				writeString(out, header[1]);
+			}
+			out.writeInt(response.getBody().length);
+			out.write(response.getBody());
+		}
+	}
+
+	private static CachedResponse read(Path file) throws IOException
+	{
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+		{
+			Head head = readHead(in);
+			byte[] body = new byte[head.bodyLength];
+			in.readFully(body);
+			return new CachedResponse(head.uri, head.status, head.headers, body, head.storedAt, head.expiresAt);
+		}
+	}
+
+	/**
+	 * Reads everything in a cache file up to the body, leaving the stream at
+	 * the body's first byte.
+	 */
+	private static Head readHead(DataInputStream in) throws IOException
+	{
+		if(in.readInt() != FORMAT_VERSION)
+		{
+			throw new IOException("Unknown cache file version");
+		}
+		Head head = new Head();
+		head.uri = readString(in);
+		head.status = in.readInt();
+		head.storedAt = in.readLong();
+		head.expiresAt = in.readLong();
+		head.headers = new LinkedHashMap<String,List<String>>();
+		int headerCount = in.readInt();
+		for(int i = 0; i < headerCount; i++)
+		{
+			String name = readString(in);
+			head.headers.put(name, Collections.singletonList(readString(in)));
+		}
+		head.bodyLength = in.readInt();
+		return head;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException
+	{
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException
+	{
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * The part of a cache file before the body.
+	 */
+	private static final class Head
+	{
+		private String uri;
+		private int status;
+		private long storedAt;
+		private long expiresAt;
+		private Map<String,List<String>> headers;
+		private int bodyLength;
+	}
+
+	/**
+	 * What the cache remembers about a stored file without reading it.
+	 */
+	private static final class Entry
+	{
+		private final long size;
+		private volatile long lastAccess;
+
+		private Entry(long size, long lastAccess)
+		{
+			this.size = size;
+			this.lastAccess = lastAccess;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package forohfor.scryfall.http;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An immutable HTTP request.
+ * @author ForOhForError
+ */
+
+public class HttpRequest {
+
+	private final String method;
+	private final String uri;
+	private final Map<String,String> headers;
+	private final byte[] body;
+
+	/**
+	 * Creates a request.
+	 * @param method The HTTP method, such as GET or POST
+	 * @param uri The absolute URI to request
+	 * @param headers The request headers
+	 * @param body The request body, or null for none
+	 */
+	public HttpRequest(String method, String uri, Map<String,String> headers, byte[] body)
+	{
+		this.method = method;
+		this.uri = uri;
+		this.headers = Collections.unmodifiableMap(new LinkedHashMap<String,String>(headers));
+		this.body = body;
+	}
+
+	/**
+	 * @param uri The absolute URI to request
+	 * @return A GET request for the given URI
+	 */
+	public static HttpRequest get(String uri)
+	{
+		return new HttpRequest("GET", uri, Collections.<String,String>emptyMap(), null);
+	}
+
+	/**
+	 * @param uri The absolute URI to request
+	 * @param contentType The media type of the body
+	 * @param body The request body
+	 * @return A POST request sending the given body to the given URI
+	 */
+	public static HttpRequest post(String uri, String contentType, byte[] body)
+	{
+		return new HttpRequest("POST", uri, Collections.singletonMap("Content-Type", contentType), body);
+	}
+
+	/**
+	 * @param name The header name
+	 * @param value The header value
+	 * @return A copy of this request with the given header set
+	 */
+	public HttpRequest withHeader(String name, String value)
+	{
+		Map<String,String> copy = new LinkedHashMap<String,String>(headers);
+		copy.put(name, value);
+		return new HttpRequest(method, uri, copy, body);
+	}
+
+	/**
+	 * @return The HTTP method, such as GET or POST.
+	 */
+	public String getMethod()
+	{
+		return method;
+	}
+
+	/**
+	 * @return The absolute URI being requested.
+	 */
+	public String getURI()
+	{
+		return uri;
+	}
+
+	/**
+	 * @return The request headers.
+	 */
+	public Map<String,String> getHeaders()
+	{
+		return headers;
+	}
+
+	/**
+	 * @return The request body, or null if there is none.
+	 */
+	public byte[] getBody()
+	{
+		return body;
+	}
+
+	@Override
+	public String toString() {
+		return method+" "+uri;
+	}
+}
@@ -0,0 +1,96 @@
+package forohfor.scryfall.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An HTTP response whose body is read as a stream. Header names are matched
+ * without regard to case.
+ * @author ForOhForError
+ */
+
+public class HttpResponse implements Closeable {
+
+	private final int status;
+	private final Map<String,List<String>> headers;
+	private final InputStream body;
+
+	/**
+	 * Creates a response.
+	 * @param status The HTTP status code
+	 * @param headers The response headers
+	 * @param body The response body, or null for none
+	 */
+	public HttpResponse(int status, Map<String,List<String>> headers, InputStream body)
+	{
+		this.status = status;
+		TreeMap<String,List<String>> copy = new TreeMap<String,List<String>>(String.CASE_INSENSITIVE_ORDER);
+		for(Map.Entry<String,List<String>> header:headers.entrySet())
+		{
+			if(header.getKey() != null)
+			{
+				copy.put(header.getKey(), header.getValue());
+			}
+		}
+		this.headers = Collections.unmodifiableMap(copy);
+		this.body = body == null ? new ByteArrayInputStream(new byte[0]) : body;
+	}
+
+	/**
+	 * @return The HTTP status code.
+	 */
+	public int getStatus()
+	{
+		return status;
+	}
+
+	/**
+	 * @return True if the status code is in the 2xx range.
+	 */
+	public boolean isSuccessful()
+	{
+		return status >= 200 && status < 300;
+	}
+
+	/**
+	 * @return All response headers.
+	 */
+	public Map<String,List<String>> getHeaders()
+	{
+		return headers;
+	}
+
+	/**
+	 * @param name The header name. Case insensitive.
+	 * @return The first value of the given header, or null if it is absent.
+	 */
+	public String getHeader(String name)
+	{
+		List<String> values = headers.get(name);
+		if(values == null || values.isEmpty())
+		{
+			return null;
+		}
+		return values.get(0);
+	}
+
+	/**
+	 * @return The response body, already decompressed.
+	 */
+	public InputStream getBody()
+	{
+		return body;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		body.close();
+	}
+}
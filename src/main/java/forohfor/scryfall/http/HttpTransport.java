@@ -0,0 +1,23 @@
+package forohfor.scryfall.http;
+
+import java.io.IOException;
+
+/**
+ * Carries requests to the API and back. Implementations must be safe to use
+ * from several threads at once. The default is {@link UrlConnectionTransport};
+ * other implementations can wrap a different HTTP client, or answer requests
+ * from a local stub for testing.
+ * @author ForOhForError
+ */
+
+public interface HttpTransport {
+
+	/**
+	 * Performs a request. Responses with an error status are returned rather
+	 * than thrown, so that callers can read the error body.
+	 * @param request The request to perform
+	 * @return The response, whose body the caller must close
+	 * @throws IOException If the request could not be completed
+	 */
+	HttpResponse execute(HttpRequest request) throws IOException;
+}
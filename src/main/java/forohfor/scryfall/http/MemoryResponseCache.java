@@ -0,0 +1,96 @@
+package forohfor.scryfall.http;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An in-process response cache bounded by both entry count and total size.
+ * When either bound is exceeded the least recently used entries are dropped.
+ * @author ForOhForError
+ */
+
+public class MemoryResponseCache implements ResponseCache {
+
+	private final int maxEntries;
+	private final long maxBytes;
+	private final LinkedHashMap<String,CachedResponse> entries =
+			new LinkedHashMap<String,CachedResponse>(16, 0.75f, true);
+	private long bytes;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Creates a cache.
+	 * @param maxEntries The most responses to keep
+	 * @param maxBytes The most response bytes to keep
+	 */
+	public MemoryResponseCache(int maxEntries, long maxBytes)
+	{
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+
+	@Override
+	public synchronized CachedResponse get(String uri)
+	{
+		CachedResponse response = entries.get(uri);
+		if(response != null && response.isFresh(System.currentTimeMillis()))
+		{
+			hits++;
+		}
+		else
+		{
+			misses++;
+		}
+		return response;
+	}
+
+	@Override
+	public synchronized void put(CachedResponse response)
+	{
+		if(response.getSize() > maxBytes)
+		{
+			//Too big to keep, but the older response it replaces is stale
+			remove(response.getURI());
+			return;
+		}
+		CachedResponse old = entries.put(response.getURI(), response);
+		if(old != null)
+		{
+			bytes -= old.getSize();
+		}
+		bytes += response.getSize();
+		Iterator<Map.Entry<String,CachedResponse>> eldest = entries.entrySet().iterator();
+		while(entries.size() > maxEntries || bytes > maxBytes)
+		{
+			bytes -= eldest.next().getValue().getSize();
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	@Override
+	public synchronized void remove(String uri)
+	{
+		CachedResponse old = entries.remove(uri);
+		if(old != null)
+		{
+			bytes -= old.getSize();
+		}
+	}
+
+	@Override
+	public synchronized void clear()
+	{
+		entries.clear();
+		bytes = 0;
+	}
+
+	@Override
+	public synchronized CacheStats getStats()
+	{
+		return new CacheStats(hits, misses, evictions, entries.size(), bytes);
+	}
+}
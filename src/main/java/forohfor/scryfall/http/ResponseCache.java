@@ -0,0 +1,41 @@
+package forohfor.scryfall.http;
+
+/**
+ * Stores responses by request URI. Implementations must be safe to use from
+ * several threads at once, and decide for themselves which entries to drop
+ * when full.
+ * @author ForOhForError
+ */
+
+public interface ResponseCache {
+
+	/**
+	 * Looks up a stored response, whether or not it is still fresh, and counts
+	 * the lookup as a hit if it is fresh and a miss otherwise.
+	 * @param uri The request URI
+	 * @return The stored response, or null if there is none
+	 */
+	CachedResponse get(String uri);
+
+	/**
+	 * Stores a response, replacing any earlier one for the same URI.
+	 * @param response The response to store
+	 */
+	void put(CachedResponse response);
+
+	/**
+	 * Removes the stored response for a URI, if any.
+	 * @param uri The request URI
+	 */
+	void remove(String uri);
+
+	/**
+	 * Removes every stored response.
+	 */
+	void clear();
+
+	/**
+	 * @return A snapshot of the cache's counters.
+	 */
+	CacheStats getStats();
+}
@@ -0,0 +1,161 @@
+package forohfor.scryfall.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The default transport, built on the JDK's HttpURLConnection. The JDK keeps
+ * finished connections alive and hands them to later requests for the same
+ * host, and caches TLS sessions, so consecutive requests skip both the TCP and
+ * the full TLS handshake as long as each response body is read to the end or
+ * closed. The number of idle connections kept per host is set by the JDK's
+ * http.maxConnections property. Responses are requested gzip-compressed and
+ * decompressed transparently.
+ * @author ForOhForError
+ */
+
+public class UrlConnectionTransport implements HttpTransport {
+
+	/**
+	 * The default time allowed to establish a connection, in milliseconds.
+	 */
+	public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+
+	/**
+	 * The default time allowed between bytes of a response, in milliseconds.
+	 */
+	public static final int DEFAULT_READ_TIMEOUT = 30000;
+
+	private static final String USER_AGENT = "ScryfallAPIBinding";
+
+	private final int connectTimeout;
+	private final int readTimeout;
+
+	/**
+	 * Creates a transport with the default timeouts.
+	 */
+	public UrlConnectionTransport()
+	{
+		this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+	}
+
+	/**
+	 * Creates a transport with the given timeouts.
+	 * @param connectTimeout The time allowed to establish a connection, in milliseconds
+	 * @param readTimeout The time allowed between bytes of a response, in milliseconds
+	 */
+	public UrlConnectionTransport(int connectTimeout, int readTimeout)
+	{
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+	}
+
+	@Override
+	public HttpResponse execute(HttpRequest request) throws IOException
+	{
+		URLConnection urlConn = new URL(request.getURI()).openConnection();
+		if(!(urlConn instanceof HttpURLConnection))
+		{
+			throw new IOException("Not an HTTP URI: "+request.getURI());
+		}
+		HttpURLConnection conn = (HttpURLConnection)urlConn;
+		conn.setConnectTimeout(connectTimeout);
+		conn.setReadTimeout(readTimeout);
+		conn.setUseCaches(false);
+		conn.setRequestMethod(request.getMethod());
+		conn.setRequestProperty("Accept-Encoding", "gzip");
+		conn.setRequestProperty("Accept", "application/json;q=0.9,*/*;q=0.8");
+		conn.setRequestProperty("User-Agent", USER_AGENT);
+		for(Map.Entry<String,String> header:request.getHeaders().entrySet())
+		{
+			conn.setRequestProperty(header.getKey(), header.getValue());
+		}
+
+		byte[] body = request.getBody();
+		if(body != null)
+		{
+			conn.setDoOutput(true);
+			conn.setFixedLengthStreamingMode(body.length);
+			try(OutputStream out = conn.getOutputStream())
+			{
+				out.write(body);
+			}
+		}
+
+		int status = conn.getResponseCode();
+		InputStream in = status >= 400 ? conn.getErrorStream() : conn.getInputStream();
+		long length = conn.getContentLengthLong();
+		if(in != null && length >= 0)
+		{
+			in = new LengthCheckingInputStream(in, length);
+		}
+		if(in != null && status != HttpURLConnection.HTTP_NO_CONTENT && status != HttpURLConnection.HTTP_NOT_MODIFIED
+				&& "gzip".equalsIgnoreCase(conn.getContentEncoding()))
+		{
+			in = new GZIPInputStream(in);
+		}
+		return new HttpResponse(status, conn.getHeaderFields(), in);
+	}
+
+	/**
+	 * Turns a body that ends before its Content-Length into an IOException.
+	 * HttpURLConnection reports it as a normal end of stream, which would make
+	 * a dropped connection look like malformed JSON instead of a failure worth
+	 * retrying.
+	 */
+	private static final class LengthCheckingInputStream extends FilterInputStream
+	{
+		private long remaining;
+
+		private LengthCheckingInputStream(InputStream in, long length)
+		{
+			super(in);
+			remaining = length;
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			int b = super.read();
+			if(b < 0)
+			{
+				checkComplete();
+			}
+			else
+			{
+				remaining--;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			int n = super.read(b, off, len);
+			if(n < 0)
+			{
+				checkComplete();
+			}
+			else
+			{
+				remaining -= n;
+			}
+			return n;
+		}
+
+		private void checkComplete() throws IOException
+		{
+			if(remaining > 0)
+			{
+				throw new IOException("Connection closed with "+remaining+" bytes of the response unread");
+			}
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package forohfor.scryfall.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import forohfor.scryfall.http.CacheStats;
+
+/**
+ * Decoded images kept in memory, bounded by the bytes their pixels take.
+ * When the budget is exceeded the least recently used images are dropped.
+ * @author ForOhForError
+ */
+
+class DecodedImageCache {
+
+	private final long maxBytes;
+	private final LinkedHashMap<String,BufferedImage> entries =
+			new LinkedHashMap<String,BufferedImage>(16, 0.75f, true);
+	private long bytes;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	DecodedImageCache(long maxBytes)
+	{
+		this.maxBytes = maxBytes;
+	}
+
+	synchronized BufferedImage get(String uri)
+	{
+		BufferedImage image = entries.get(uri);
+		if(image != null)
+		{
+			hits++;
+		}
+		else
+		{
+			misses++;
+		}
+		return image;
+	}
+
+	synchronized void put(String uri, BufferedImage image)
+	{
+		long size = sizeOf(image);
+		if(size > maxBytes)
+		{
+			return;
+		}
+		BufferedImage old = entries.put(uri, image);
+		if(old != null)
+		{
+			bytes -= sizeOf(old);
+		}
+		bytes += size;
+		Iterator<Map.Entry<String,BufferedImage>> eldest = entries.entrySet().iterator();
+		while(bytes > maxBytes)
+		{
+			bytes -= sizeOf(eldest.next().getValue());
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	synchronized void clear()
+	{
+		entries.clear();
+		bytes = 0;
+	}
+
+	synchronized CacheStats getStats()
+	{
+		return new CacheStats(hits, misses, evictions, entries.size(), bytes);
+	}
+
+	/**
+	 * @return The bytes held by the image's pixel data.
+	 */
+	static long sizeOf(BufferedImage image)
+	{
+		DataBuffer data = image.getRaster().getDataBuffer();
+		return (long)data.getSize() * data.getNumBanks() * DataBuffer.getDataTypeSize(data.getDataType()) / 8;
+	}
+}
@@ -0,0 +1,203 @@
+package forohfor.scryfall.image;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+import forohfor.scryfall.api.ScryfallException;
+
+/**
+ * An image as it was downloaded, still encoded as JPEG or PNG. The bytes
+ * can be forwarded or stored as they are, which costs a small fraction of
+ * the memory the decoded pixels would, and the image is only decoded when
+ * asked, optionally at a reduced size.
+ * @author ForOhForError
+ */
+
+public class EncodedImage {
+
+	private final String uri;
+	private final String contentType;
+	private final byte[] bytes;
+	private volatile int[] size;
+
+	/**
+	 * Wraps downloaded bytes. The array is not copied and must not change.
+	 * @param uri The URI the image was downloaded from
+	 * @param contentType The image's media type, or null if unknown
+	 * @param bytes The encoded image
+	 */
+	public EncodedImage(String uri, String contentType, byte[] bytes)
+	{
+		this.uri = uri;
+		this.contentType = contentType;
+		this.bytes = bytes;
+	}
+
+	/**
+	 * @return The URI the image was downloaded from.
+	 */
+	public String getURI()
+	{
+		return uri;
+	}
+
+	/**
+	 * @return The image's media type, such as image/jpeg, or null if the
+	 * server did not say.
+	 */
+	public String getContentType()
+	{
+		return contentType;
+	}
+
+	/**
+	 * @return The number of encoded bytes.
+	 */
+	public int getLength()
+	{
+		return bytes.length;
+	}
+
+	/**
+	 * @return A read-only view of the encoded bytes.
+	 */
+	public ByteBuffer getBytes()
+	{
+		return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return A stream over the encoded bytes.
+	 */
+	public InputStream openStream()
+	{
+		return new ByteArrayInputStream(bytes);
+	}
+
+	/**
+	 * Writes the encoded bytes to a stream.
+	 * @param out The stream to write to
+	 * @throws IOException If the stream cannot be written
+	 */
+	public void writeTo(OutputStream out) throws IOException
+	{
+		out.write(bytes);
+	}
+
+	/**
+	 * @return The image's width in pixels, read from its header without
+	 * decoding it.
+	 * @throws IOException If the bytes are not a readable image
+	 */
+	public int getWidth() throws IOException
+	{
+		return size()[0];
+	}
+
+	/**
+	 * @return The image's height in pixels, read from its header without
+	 * decoding it.
+	 * @throws IOException If the bytes are not a readable image
+	 */
+	public int getHeight() throws IOException
+	{
+		return size()[1];
+	}
+
+	/**
+	 * @return The decoded image at full size.
+	 * @throws IOException If the bytes are not a readable image
+	 */
+	public BufferedImage decode() throws IOException
+	{
+		return decode(0, 0);
+	}
+
+	/**
+	 * Decodes a reduced copy of the image by reading only every nth pixel
+	 * in each direction, which is much faster than decoding the full image
+	 * and scaling it. Unless the image itself is smaller, the result is
+	 * never smaller than the given size, and is less than twice it in at
+	 * least one direction.
+	 * @param width The smallest width wanted, or 0 for the full size
+	 * @param height The smallest height wanted, or 0 for the full size
+	 * @return The decoded image
+	 * @throws IOException If the bytes are not a readable image
+	 */
+	public BufferedImage decode(int width, int height) throws IOException
+	{
+		ImageInputStream in = new MemoryCacheImageInputStream(openStream());
+		try
+		{
+			ImageReader reader = reader(in);
+			try
+			{
+				ImageReadParam param = reader.getDefaultReadParam();
+				if(width > 0 && height > 0)
+				{
+					int step = Math.max(1, Math.min(reader.getWidth(0) / width, reader.getHeight(0) / height));
+					param.setSourceSubsampling(step, step, 0, 0);
+				}
+				return reader.read(0, param);
+			}
+			finally
+			{
+				reader.dispose();
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	private int[] size() throws IOException
+	{
+		int[] known = size;
+		if(known == null)
+		{
+			ImageInputStream in = new MemoryCacheImageInputStream(openStream());
+			try
+			{
+				ImageReader reader = reader(in);
+				try
+				{
+					known = new int[]{reader.getWidth(0), reader.getHeight(0)};
+				}
+				finally
+				{
+					reader.dispose();
+				}
+			}
+			finally
+			{
+				in.close();
+			}
+			size = known;
+		}
+		return known;
+	}
+
+	private ImageReader reader(ImageInputStream in) throws IOException
+	{
+		Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+		if(!readers.hasNext())
+		{
+			throw new ScryfallException("Not a readable image: "+uri, null);
+		}
+		ImageReader reader = readers.next();
+		reader.setInput(in, true, true);
+		return reader;
+	}
+}
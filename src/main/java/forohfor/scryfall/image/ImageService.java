@@ -0,0 +1,521 @@
+package forohfor.scryfall.image;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import forohfor.scryfall.api.Card;
+import forohfor.scryfall.api.CardFace;
+import forohfor.scryfall.api.ScryfallException;
+import forohfor.scryfall.http.CacheStats;
+import forohfor.scryfall.http.CachedResponse;
+import forohfor.scryfall.http.DiskResponseCache;
+import forohfor.scryfall.http.HttpRequest;
+import forohfor.scryfall.http.HttpResponse;
+import forohfor.scryfall.http.HttpTransport;
+import forohfor.scryfall.http.ResponseCache;
+import forohfor.scryfall.http.UrlConnectionTransport;
+
+/**
+ * Downloads and decodes card images in the background. At most a fixed
+ * number of downloads and decodes run at once; asking for an image that is
+ * already being fetched joins that fetch instead of starting another.
+ * Images can also be fetched still encoded, for forwarding or storing them
+ * as they are, or decoded at a reduced size for thumbnails. Downloaded
+ * bytes can be kept in a {@link ResponseCache}, such as a
+ * {@link forohfor.scryfall.http.DiskResponseCache}, which names each file
+ * by a hash of the image URI. Scryfall puts a version stamp in every image
+ * URI, so cached images never go stale. Decoded images can also be kept in
+ * memory, up to a budget of pixel bytes.
+ * <p>
+ * Failures are reported through the returned futures: a
+ * {@link ScryfallException} for an error status or bytes that are not an
+ * image, or the IOException the transport threw. Cancelling a future does
+ * not stop a download another caller may be waiting on.
+ * @author ForOhForError
+ */
+
+public class ImageService implements Closeable {
+
+	/**
+	 * The default number of images downloaded at once.
+	 */
+	public static final int DEFAULT_MAX_DOWNLOADS = 8;
+
+	private static volatile ImageService shared;
+
+	private final HttpTransport transport;
+	private final ResponseCache diskCache;
+	private final DecodedImageCache memoryCache;
+	private final ExecutorService pool;
+	private final ConcurrentHashMap<String,CompletableFuture<EncodedImage>> downloads =
+			new ConcurrentHashMap<String,CompletableFuture<EncodedImage>>();
+	private final ConcurrentHashMap<String,CompletableFuture<BufferedImage>> decoding =
+			new ConcurrentHashMap<String,CompletableFuture<BufferedImage>>();
+
+	/**
+	 * Creates a service with the default transport and number of downloads,
+	 * which keeps nothing once an image has been delivered.
+	 */
+	public ImageService()
+	{
+		this(new UrlConnectionTransport(), DEFAULT_MAX_DOWNLOADS, null, 0);
+	}
+
+	/**
+	 * Creates a fully configured service.
+	 * @param transport The transport images are downloaded over
+	 * @param maxDownloads The most images downloaded at once
+	 * @param diskCache The cache to keep downloaded bytes in, or null for none
+	 * @param memoryBytes The most bytes of decoded pixels to keep in memory,
+	 * or 0 for none
+	 */
+	public ImageService(HttpTransport transport, int maxDownloads, ResponseCache diskCache, long memoryBytes)
+	{
+		if(maxDownloads < 1)
+		{
+			throw new IllegalArgumentException("At least one download must be allowed");
+		}
+		this.transport = transport;
+		this.diskCache = diskCache;
+		this.memoryCache = memoryBytes > 0 ? new DecodedImageCache(memoryBytes) : null;
+		this.pool = Executors.newFixedThreadPool(maxDownloads, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "scryfall-images-"+count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * @return The service Card.getImage and CardFace.getImage fetch through.
+	 */
+	public static ImageService getShared()
+	{
+		ImageService service = shared;
+		if(service == null)
+		{
+			synchronized(ImageService.class)
+			{
+				service = shared;
+				if(service == null)
+				{
+					service = new ImageService();
+					shared = service;
+				}
+			}
+		}
+		return service;
+	}
+
+	/**
+	 * Replaces the service Card.getImage and CardFace.getImage fetch
+	 * through, for instance with one that caches. The old service is not
+	 * closed.
+	 * @param service The service to use
+	 */
+	public static void setShared(ImageService service)
+	{
+		shared = service;
+	}
+
+	/**
+	 * Fetches and decodes an image in the background.
+	 * @param uri The image's URI
+	 * @return A future completed with the image
+	 */
+	public CompletableFuture<BufferedImage> fetch(String uri)
+	{
+		return decoded(uri, 0, 0);
+	}
+
+	/**
+	 * Fetches and decodes a card's image in the background.
+	 * @param card The card
+	 * @param format The image format, such as "normal" or "small"
+	 * @return A future completed with the image, or failed with an
+	 * IllegalArgumentException if the card has no image in that format
+	 */
+	public CompletableFuture<BufferedImage> fetch(Card card, String format)
+	{
+		String uri = card.getImageURI(format);
+		return uri == null ? ImageService.<BufferedImage>noImage(format) : fetch(uri);
+	}
+
+	/**
+	 * Fetches and decodes a card face's image in the background.
+	 * @param face The face
+	 * @param format The image format, such as "normal" or "small"
+	 * @return A future completed with the image, or failed with an
+	 * IllegalArgumentException if the face has no image in that format
+	 */
+	public CompletableFuture<BufferedImage> fetch(CardFace face, String format)
+	{
+		String uri = face.getImageURI(format);
+		return uri == null ? ImageService.<BufferedImage>noImage(format) : fetch(uri);
+	}
+
+	/**
+	 * Fetches and decodes the images of several cards in the background, as
+	 * many at once as the service allows.
+	 * @param cards The cards
+	 * @param format The image format, such as "normal" or "small"
+	 * @return A future for each card's image, in the order of the cards
+	 */
+	public List<CompletableFuture<BufferedImage>> fetchAll(Collection<Card> cards, String format)
+	{
+		List<CompletableFuture<BufferedImage>> futures = new ArrayList<CompletableFuture<BufferedImage>>(cards.size());
+		for(Card card:cards)
+		{
+			futures.add(fetch(card, format));
+		}
+		return futures;
+	}
+
+	/**
+	 * Fetches an image in the background and decodes a reduced copy of it,
+	 * as described by {@link EncodedImage#decode(int, int)}. Thumbnails are
+	 * kept in the in-memory cache separately from full images.
+	 * @param uri The image's URI
+	 * @param width The smallest width wanted
+	 * @param height The smallest height wanted
+	 * @return A future completed with the reduced image
+	 */
+	public CompletableFuture<BufferedImage> fetchThumbnail(String uri, int width, int height)
+	{
+		if(width <= 0 || height <= 0)
+		{
+			throw new IllegalArgumentException("Thumbnail size must be positive");
+		}
+		return decoded(uri, width, height);
+	}
+
+	/**
+	 * Fetches an image in the background without decoding it.
+	 * @param uri The image's URI
+	 * @return A future completed with the encoded image
+	 */
+	public CompletableFuture<EncodedImage> fetchEncoded(String uri)
+	{
+		return view(download(uri));
+	}
+
+	/**
+	 * Fetches a card's image in the background without decoding it.
+	 * @param card The card
+	 * @param format The image format, such as "png" or "large"
+	 * @return A future completed with the encoded image, or failed with an
+	 * IllegalArgumentException if the card has no image in that format
+	 */
+	public CompletableFuture<EncodedImage> fetchEncoded(Card card, String format)
+	{
+		String uri = card.getImageURI(format);
+		return uri == null ? ImageService.<EncodedImage>noImage(format) : fetchEncoded(uri);
+	}
+
+	/**
+	 * Fetches and decodes an image and waits for it.
+	 * @param uri The image's URI
+	 * @return The image
+	 * @throws IOException If the image could not be downloaded or decoded
+	 */
+	public BufferedImage getImage(String uri) throws IOException
+	{
+		return await(fetch(uri), uri);
+	}
+
+	/**
+	 * Fetches an image without decoding it and waits for it.
+	 * @param uri The image's URI
+	 * @return The encoded image
+	 * @throws IOException If the image could not be downloaded
+	 */
+	public EncodedImage getEncoded(String uri) throws IOException
+	{
+		return await(fetchEncoded(uri), uri);
+	}
+
+	/**
+	 * Writes an image's encoded bytes to a channel, such as a socket. If the
+	 * service's cache is a {@link DiskResponseCache} holding the image, the
+	 * bytes are copied straight from the cache file; otherwise the image is
+	 * fetched first.
+	 * @param uri The image's URI
+	 * @param target The channel to write to, in blocking mode
+	 * @return The number of bytes written
+	 * @throws IOException If the image could not be downloaded, or the
+	 * channel cannot be written
+	 */
+	public long transferTo(String uri, WritableByteChannel target) throws IOException
+	{
+		if(diskCache instanceof DiskResponseCache)
+		{
+			long copied = ((DiskResponseCache)diskCache).transferBody(uri, target);
+			if(copied >= 0)
+			{
+				return copied;
+			}
+		}
+		ByteBuffer bytes = getEncoded(uri).getBytes();
+		int length = bytes.remaining();
+		while(bytes.hasRemaining())
+		{
+			target.write(bytes);
+		}
+		return length;
+	}
+
+	/**
+	 * @return The number of images being downloaded or waiting for a turn.
+	 */
+	public int getInFlightCount()
+	{
+		return downloads.size();
+	}
+
+	/**
+	 * @return The counters of the in-memory cache, or null if the service
+	 * does not keep decoded images.
+	 */
+	public CacheStats getMemoryStats()
+	{
+		return memoryCache == null ? null : memoryCache.getStats();
+	}
+
+	/**
+	 * @return The cache downloaded bytes are kept in, or null if there is none.
+	 */
+	public ResponseCache getDiskCache()
+	{
+		return diskCache;
+	}
+
+	/**
+	 * Drops every decoded image kept in memory.
+	 */
+	public void clearMemory()
+	{
+		if(memoryCache != null)
+		{
+			memoryCache.clear();
+		}
+	}
+
+	/**
+	 * Stops the download threads. Fetches already queued still complete.
+	 */
+	@Override
+	public void close()
+	{
+		pool.shutdown();
+	}
+
+	/**
+	 * Decodes an image once it has been downloaded, joining any decode of
+	 * the same image at the same size that is already under way.
+	 */
+	private CompletableFuture<BufferedImage> decoded(final String uri, final int width, final int height)
+	{
+		final String key = width > 0 ? uri+" "+width+"x"+height : uri;
+		BufferedImage cached = memoryCache == null ? null : memoryCache.get(key);
+		if(cached != null)
+		{
+			return CompletableFuture.completedFuture(cached);
+		}
+		final CompletableFuture<BufferedImage> future = new CompletableFuture<BufferedImage>();
+		CompletableFuture<BufferedImage> existing = decoding.putIfAbsent(key, future);
+		if(existing != null)
+		{
+			return view(existing);
+		}
+		download(uri).thenApplyAsync(new Function<EncodedImage,BufferedImage>() {
+			@Override
+			public BufferedImage apply(EncodedImage encoded) {
+				try
+				{
+					BufferedImage image = encoded.decode(width, height);
+					if(memoryCache != null)
+					{
+						memoryCache.put(key, image);
+					}
+					return image;
+				}
+				catch(IOException e)
+				{
+					throw new CompletionException(e);
+				}
+			}
+		}, pool).whenComplete(new BiConsumer<BufferedImage,Throwable>() {
+			@Override
+			public void accept(BufferedImage image, Throwable failure) {
+				decoding.remove(key, future);
+				if(failure == null)
+				{
+					future.complete(image);
+				}
+				else
+				{
+					future.completeExceptionally(unwrap(failure));
+				}
+			}
+		});
+		return view(future);
+	}
+
+	/**
+	 * Downloads an image, or reads it from the cache, joining any download
+	 * of the same image that is already under way.
+	 */
+	private CompletableFuture<EncodedImage> download(final String uri)
+	{
+		final CompletableFuture<EncodedImage> future = new CompletableFuture<EncodedImage>();
+		CompletableFuture<EncodedImage> existing = downloads.putIfAbsent(uri, future);
+		if(existing != null)
+		{
+			return existing;
+		}
+		try
+		{
+			pool.execute(new Runnable() {
+				@Override
+				public void run() {
+					try
+					{
+						EncodedImage image = read(uri);
+						downloads.remove(uri, future);
+						future.complete(image);
+					}
+					catch(Throwable t)
+					{
+						downloads.remove(uri, future);
+						future.completeExceptionally(t);
+					}
+				}
+			});
+		}
+		catch(RejectedExecutionException e)
+		{
+			downloads.remove(uri, future);
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	private EncodedImage read(String uri) throws IOException
+	{
+		if(diskCache != null)
+		{
+			CachedResponse cached = diskCache.get(uri);
+			if(cached != null)
+			{
+				return new EncodedImage(uri, cached.getHeader("Content-Type"), cached.getBody());
+			}
+		}
+		HttpResponse response = transport.execute(HttpRequest.get(uri));
+		byte[] body;
+		try
+		{
+			if(!response.isSuccessful())
+			{
+				throw new ScryfallException(response.getStatus(), "Could not fetch "+uri, -1);
+			}
+			body = readFully(response.getBody());
+		}
+		finally
+		{
+			response.close();
+		}
+		if(diskCache != null)
+		{
+			diskCache.put(new CachedResponse(uri, response.getStatus(), response.getHeaders(), body,
+					System.currentTimeMillis(), Long.MAX_VALUE));
+		}
+		return new EncodedImage(uri, response.getHeader("Content-Type"), body);
+	}
+
+	/**
+	 * @return A future that completes with the given one, and that callers
+	 * can cancel without affecting anyone else waiting on the original.
+	 */
+	private static <T> CompletableFuture<T> view(CompletableFuture<T> future)
+	{
+		return future.thenApply(new Function<T,T>() {
+			@Override
+			public T apply(T value) {
+				return value;
+			}
+		});
+	}
+
+	private static <T> CompletableFuture<T> noImage(String format)
+	{
+		CompletableFuture<T> failed = new CompletableFuture<T>();
+		failed.completeExceptionally(new IllegalArgumentException("No image in the "+format+" format"));
+		return failed;
+	}
+
+	private static Throwable unwrap(Throwable failure)
+	{
+		return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+	}
+
+	private static <T> T await(CompletableFuture<T> future, String uri) throws IOException
+	{
+		try
+		{
+			return future.get();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for "+uri);
+		}
+		catch(ExecutionException e)
+		{
+			if(e.getCause() instanceof IOException)
+			{
+				throw (IOException)e.getCause();
+			}
+			if(e.getCause() instanceof RuntimeException)
+			{
+				throw (RuntimeException)e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private static byte[] readFully(InputStream in) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 16);
+		byte[] buffer = new byte[8192];
+		int n;
+		while((n = in.read(buffer)) != -1)
+		{
+			out.write(buffer, 0, n);
+		}
+		return out.toByteArray();
+	}
+}
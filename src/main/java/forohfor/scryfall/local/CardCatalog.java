@@ -0,0 +1,742 @@
+package forohfor.scryfall.local;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.UUID;
+
+import forohfor.scryfall.api.Card;
+import forohfor.scryfall.api.CardFace;
+import forohfor.scryfall.api.CardSink;
+import forohfor.scryfall.api.Color;
+import forohfor.scryfall.api.Rarity;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+/**
+ * An in-memory collection of cards that answers Scryfall search queries
+ * locally, with no network access or rate limit. Each card is given an
+ * ordinal as it is added, and indexes over its searchable fields are built at
+ * the same time, so a query only touches the indexes it names. A catalog can
+ * be filled straight from a bulk data file, since it is a {@link CardSink}.
+ * <p>
+ * A catalog may be searched from several threads at once, but must not be
+ * changed while it is being searched; {@link CatalogSync} keeps a catalog
+ * up to date while it is searched. Removing a card leaves a gap at its
+ * ordinal rather than renumbering the cards after it.
+ * <p>
+ * Set, rarity, colors, color identity, layout, language, legality and the
+ * digital and reserved flags are kept in a {@link FacetIndex} of compressed
+ * bitmaps, so conditions on them are bitmap lookups, unions and
+ * intersections. Names, type lines and oracle text are matched word by word through an
+ * inverted index: the words of a condition must appear in order, and its last
+ * word may be the start of a longer word, so t:legend matches Legendary.
+ * <p>
+ * Supported keywords are name, t/type, o/oracle, c/color, id/identity, cmc/mv,
+ * s/set, r/rarity, f/format/legal, banned, restricted, layout, is:digital,
+ * is:reserved, is:multicolor and lang, along with !"exact name", negation,
+ * "or" and parentheses. Colors may be given as letters (c:wu), as color
+ * words (c:red) or by guild, shard, wedge or college name (id:azorius).
+ * @author ForOhForError
+ */
+
+public class CardCatalog implements CardSink {
+
+	private static final Rarity[] RARITIES = Rarity.values();
+	private static final String[] INDEXED_FIELDS = {"name", "oracle_text", "type_line", "cmc", "colors",
+			"color_identity", "set", "rarity", "layout", "lang", "legalities", "digital", "reserved"};
+	private static final HashMap<String,String> COLOR_WORDS = new HashMap<String,String>();
+
+	static
+	{
+		String[] words = {
+				"white", "w", "blue", "u", "black", "b", "red", "r", "green", "g",
+				"azorius", "wu", "dimir", "ub", "rakdos", "br", "gruul", "rg", "selesnya", "gw",
+				"orzhov", "wb", "izzet", "ur", "golgari", "bg", "boros", "rw", "simic", "gu",
+				"bant", "gwu", "esper", "wub", "grixis", "ubr", "jund", "brg", "naya", "rgw",
+				"abzan", "wbg", "jeskai", "urw", "sultai", "bgu", "mardu", "rwb", "temur", "gur",
+				"silverquill", "wb", "prismari", "ur", "witherbloom", "bg", "lorehold", "rw", "quandrix", "gu"};
+		for(int i = 0; i < words.length; i += 2)
+		{
+			COLOR_WORDS.put(words[i], words[i + 1]);
+		}
+	}
+
+	private final ArrayList<Card> cards = new ArrayList<Card>();
+	private final ArrayList<String> names = new ArrayList<String>();
+	private final TextIndex nameIndex = new TextIndex();
+	private final TextIndex oracleIndex = new TextIndex();
+	private final TextIndex typeIndex = new TextIndex();
+	private final FacetIndex facets = new FacetIndex();
+	private final HashMap<UUID,Integer> ordinals = new HashMap<UUID,Integer>();
+	private final CompressedBitmap removed = new CompressedBitmap();
+	private double[] cmcs = new double[1024];
+	private int[][] nameOrder;
+	private int nameOrderVersion;
+	private int modCount;
+
+	/**
+	 * Adds a card and indexes its searchable fields.
+	 * @param card The card to add
+	 */
+	@Override
+	public void accept(Card card)
+	{
+		add(card);
+	}
+
+	/**
+	 * Adds a card and indexes its searchable fields.
+	 * @param card The card to add
+	 * @return The card's ordinal within this catalog
+	 */
+	public int add(Card card)
+	{
+		int ordinal = cards.size();
+		if(ordinal == cmcs.length)
+		{
+			cmcs = Arrays.copyOf(cmcs, ordinal * 2);
+		}
+		JSONObject json = card.getJSONData();
+		cards.add(card);
+		names.add(lower(card.getName()));
+		modCount++;
+		UUID id = id(json);
+		if(id != null)
+		{
+			Integer old = ordinals.put(id, ordinal);
+			if(old != null)
+			{
+				discard(old);
+			}
+		}
+
+		List<CardFace> faces = card.isMultifaced() ? card.getCardFaces() : Collections.<CardFace>emptyList();
+		String[] faceNames = new String[faces.size() + 1];
+		String[] oracleTexts = new String[faces.size() + 1];
+		String[] typeLines = new String[faces.size() + 1];
+		faceNames[0] = card.getName();
+		oracleTexts[0] = card.getOracleText();
+		typeLines[0] = card.getTypeLine();
+		int colors = colorMask(json.get("colors"));
+		for(int i = 0; i < faces.size(); i++)
+		{
+			CardFace face = faces.get(i);
+			faceNames[i + 1] = face.getName();
+			oracleTexts[i + 1] = face.getOracleText();
+			typeLines[i + 1] = face.getTypeLine();
+			colors |= colorMask(face.getJSONData().get("colors"));
+		}
+		nameIndex.add(ordinal, faceNames);
+		oracleIndex.add(ordinal, oracleTexts);
+		typeIndex.add(ordinal, typeLines);
+
+		Object cmc = json.get("cmc");
+		cmcs[ordinal] = cmc instanceof Number ? ((Number)cmc).doubleValue() : Double.NaN;
+
+		facets.add("color", Integer.toString(colors), ordinal);
+		facets.add("identity", Integer.toString(colorMask(json.get("color_identity"))), ordinal);
+		facets.add("set", lowerOrNull(card.getSetCode()), ordinal);
+		facets.add("rarity", lowerOrNull(card.getRarity()), ordinal);
+		facets.add("layout", lowerOrNull(card.getLayout()), ordinal);
+		facets.add("lang", lowerOrNull(card.getLang()), ordinal);
+		Object legalities = json.get("legalities");
+		if(legalities instanceof JSONObject)
+		{
+			for(Object entry:((JSONObject)legalities).entrySet())
+			{
+				Map.Entry<?,?> legality = (Map.Entry<?,?>)entry;
+				String status = String.valueOf(legality.getValue());
+				if(status.equals("legal") || status.equals("banned") || status.equals("restricted"))
+				{
+					facets.add(status, lower(String.valueOf(legality.getKey())), ordinal);
+				}
+			}
+		}
+		if(Boolean.TRUE.equals(json.get("digital")))
+		{
+			facets.add("is", "digital", ordinal);
+		}
+		if(Boolean.TRUE.equals(json.get("reserved")))
+		{
+			facets.add("is", "reserved", ordinal);
+		}
+		return ordinal;
+	}
+
+	/**
+	 * Removes a card from the catalog. Its ordinal is not reused.
+	 * @param id The card's Scryfall ID
+	 * @return True if the card was in the catalog
+	 */
+	public boolean remove(UUID id)
+	{
+		Integer ordinal = ordinals.remove(id);
+		if(ordinal == null)
+		{
+			return false;
+		}
+		discard(ordinal);
+		return true;
+	}
+
+	/**
+	 * Replaces a card with a newer copy of itself. If none of the fields the
+	 * catalog indexes have changed, as is the case when only prices have, the
+	 * new copy takes the old one's ordinal and no index is touched. Otherwise
+	 * the old copy is removed and the new one added.
+	 * @param card The new copy, or a new card
+	 * @return The card's ordinal
+	 */
+	public int replace(Card card)
+	{
+		JSONObject json = card.getJSONData();
+		UUID id = id(json);
+		Integer ordinal = id == null ? null : ordinals.get(id);
+		if(ordinal != null && indexedFields(cards.get(ordinal).getJSONData()).equals(indexedFields(json)))
+		{
+			cards.set(ordinal, card);
+			return ordinal;
+		}
+		return add(card);
+	}
+
+	private void discard(int ordinal)
+	{
+		cards.set(ordinal, null);
+		cmcs[ordinal] = Double.NaN;
+		removed.add(ordinal);
+		modCount++;
+	}
+
+	/**
+	 * @return The fields the catalog indexes, for telling whether a new copy
+	 * of a card can reuse the old one's index entries.
+	 */
+	@SuppressWarnings("unchecked")
+	private static JSONObject indexedFields(JSONObject json)
+	{
+		JSONObject fields = new JSONObject();
+		for(String key:INDEXED_FIELDS)
+		{
+			fields.put(key, json.get(key));
+		}
+		Object faces = json.get("card_faces");
+		if(faces instanceof JSONArray)
+		{
+			JSONArray faceFields = new JSONArray();
+			for(Object face:(JSONArray)faces)
+			{
+				faceFields.add(face instanceof JSONObject ? indexedFields((JSONObject)face) : face);
+			}
+			fields.put("card_faces", faceFields);
+		}
+		return fields;
+	}
+
+	private static UUID id(JSONObject json)
+	{
+		Object id = json.get("id");
+		return id instanceof String ? UUID.fromString((String)id) : null;
+	}
+
+	/**
+	 * @return The number of cards in this catalog.
+	 */
+	public int size()
+	{
+		return cards.size() - removed.getCardinality();
+	}
+
+	/**
+	 * @return The number of ordinals left empty by removed cards.
+	 */
+	public int getRemovedCount()
+	{
+		return removed.getCardinality();
+	}
+
+	/**
+	 * @param ordinal The ordinal the card was given when added
+	 * @return The card with the given ordinal, or null if it was removed.
+	 */
+	public Card getCard(int ordinal)
+	{
+		return cards.get(ordinal);
+	}
+
+	/**
+	 * @param id A Scryfall ID
+	 * @return The card with the given ID, or null if it is not in the catalog.
+	 */
+	public Card getCard(UUID id)
+	{
+		Integer ordinal = ordinals.get(id);
+		return ordinal == null ? null : cards.get(ordinal);
+	}
+
+	/**
+	 * @return An unmodifiable view of every card, by ordinal. Removed cards
+	 * leave null entries.
+	 */
+	public List<Card> getCards()
+	{
+		return Collections.unmodifiableList(cards);
+	}
+
+	/**
+	 * @return The index of the catalog's facet fields.
+	 */
+	public FacetIndex getFacetIndex()
+	{
+		return facets;
+	}
+
+	/**
+	 * Returns a list of card objects that match the query, sorted by name like
+	 * the API's default search order.
+	 * The query should be formatted using scryfall's syntax:
+	 * https://www.scryfall.com/docs/syntax
+	 * @param query The query to match cards to
+	 * @return A list of card objects that match the query, which is empty if
+	 * nothing matched.
+	 * @throws IllegalArgumentException If the query is malformed or uses an
+	 * unsupported keyword
+	 */
+	public ArrayList<Card> search(String query)
+	{
+		return search(Query.parse(query));
+	}
+
+	/**
+	 * @param query A parsed query
+	 * @return A list of card objects that match the query, sorted by name.
+	 */
+	public ArrayList<Card> search(Query query)
+	{
+		CompressedBitmap matches = match(query, false);
+		int count = matches.getCardinality();
+		ArrayList<Card> results = new ArrayList<Card>(count);
+		int[][] order = nameOrder();
+		if(count > cards.size() / 32)
+		{
+			BitSet bits = matches.toBitSet();
+			for(int ordinal:order[0])
+			{
+				if(bits.get(ordinal))
+				{
+					results.add(cards.get(ordinal));
+				}
+			}
+			return results;
+		}
+		long[] keys = new long[count];
+		int n = 0;
+		for(PrimitiveIterator.OfInt it = matches.iterator(); it.hasNext(); )
+		{
+			int i = it.nextInt();
+			keys[n++] = (long)order[1][i] << 32 | i;
+		}
+		Arrays.sort(keys);
+		for(long key:keys)
+		{
+			results.add(cards.get((int)key));
+		}
+		return results;
+	}
+
+	/**
+	 * @param query A parsed query
+	 * @return The ordinals of the cards that match the query.
+	 */
+	public CompressedBitmap match(Query query)
+	{
+		return match(query, true);
+	}
+
+	private CompressedBitmap match(Query query, boolean copy)
+	{
+		CompressedBitmap matches = query.evaluate(this, null);
+		if(!removed.isEmpty())
+		{
+			return matches.andNot(removed);
+		}
+		return copy ? matches.copy() : matches;
+	}
+
+	/**
+	 * Builds now the name order searches sort their results by, which is
+	 * otherwise rebuilt by the first search after cards are added or removed.
+	 * Worth calling before a changed catalog is handed to readers, so that
+	 * none of them waits on the rebuild.
+	 */
+	public void prepare()
+	{
+		nameOrder();
+	}
+
+	/**
+	 * @return The ordinals sorted by name, and the position of each ordinal
+	 * in that order, rebuilt after cards have been added or removed.
+	 */
+	private synchronized int[][] nameOrder()
+	{
+		if(nameOrder == null || nameOrderVersion != modCount)
+		{
+			Integer[] ordinals = new Integer[cards.size()];
+			for(int i = 0; i < ordinals.length; i++)
+			{
+				ordinals[i] = i;
+			}
+			Arrays.sort(ordinals, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer a, Integer b) {
+					return names.get(a).compareTo(names.get(b));
+				}
+			});
+			int[] order = new int[ordinals.length];
+			int[] rank = new int[ordinals.length];
+			for(int i = 0; i < ordinals.length; i++)
+			{
+				order[i] = ordinals[i];
+				rank[ordinals[i]] = i;
+			}
+			nameOrder = new int[][]{order, rank};
+			nameOrderVersion = modCount;
+		}
+		return nameOrder;
+	}
+
+	/**
+	 * @return The candidates, or every ordinal still in use if there are none.
+	 */
+	CompressedBitmap all(CompressedBitmap candidates)
+	{
+		if(candidates != null)
+		{
+			return candidates;
+		}
+		CompressedBitmap all = CompressedBitmap.range(0, cards.size());
+		return removed.isEmpty() ? all : all.andNot(removed);
+	}
+
+	/**
+	 * @return The relative cost of evaluating a condition: facet lookups are
+	 * cheapest, then scans of the cmc column, then text.
+	 */
+	int cost(Query.Term term)
+	{
+		switch(term.key)
+		{
+			case "cmc":
+				return 2;
+			case "name":
+			case "exact":
+			case "oracle":
+			case "type":
+				return 3;
+			default:
+				return 1;
+		}
+	}
+
+	/**
+	 * Evaluates a single condition against the indexes, considering only the
+	 * candidates if given.
+	 */
+	CompressedBitmap evaluate(Query.Term term, CompressedBitmap candidates)
+	{
+		String value = lower(term.value);
+		switch(term.key)
+		{
+			case "name":
+				requireContains(term);
+				return nameIndex.match(value, candidates);
+			case "exact":
+				return scanExact(value, candidates);
+			case "oracle":
+				requireContains(term);
+				return value.indexOf('~') >= 0 ? scanOracle(value, candidates) : oracleIndex.match(value, candidates);
+			case "type":
+				requireContains(term);
+				return typeIndex.match(value, candidates);
+			case "color":
+				return matchColors("color", term, ":".equals(term.operator) ? ">=" : term.operator, candidates);
+			case "identity":
+				return matchColors("identity", term, ":".equals(term.operator) ? "<=" : term.operator, candidates);
+			case "cmc":
+				return matchCmc(term, candidates);
+			case "rarity":
+				return matchRarity(term, candidates);
+			case "set":
+			case "layout":
+			case "lang":
+				if(term.operator.equals("!="))
+				{
+					return all(candidates).andNot(facets.get(term.key, value));
+				}
+				requireEquals(term);
+				return restrict(facets.get(term.key, value), candidates);
+			case "legal":
+			case "banned":
+			case "restricted":
+				requireContains(term);
+				return restrict(facets.get(term.key, value), candidates);
+			case "is":
+				requireContains(term);
+				if(value.equals("multicolor") || value.equals("multicolored"))
+				{
+					return colorMasks("color", term, "m", candidates);
+				}
+				if(!value.equals("digital") && !value.equals("reserved"))
+				{
+					throw new IllegalArgumentException("Unsupported condition is:" + term.value);
+				}
+				return restrict(facets.get("is", value), candidates);
+			default:
+				throw new IllegalArgumentException("Unsupported keyword " + term.key);
+		}
+	}
+
+	private static CompressedBitmap restrict(CompressedBitmap bitmap, CompressedBitmap candidates)
+	{
+		return candidates == null ? bitmap : bitmap.and(candidates);
+	}
+
+	/**
+	 * Checks oracle text for a phrase containing ~, which stands for the
+	 * card's own name and so cannot be answered from the index. On a card
+	 * with several faces, each face's text refers to that face by its own
+	 * name, so ~ is replaced face by face.
+	 */
+	private CompressedBitmap scanOracle(String value, CompressedBitmap candidates)
+	{
+		CompressedBitmap result = new CompressedBitmap();
+		for(PrimitiveIterator.OfInt it = all(candidates).iterator(); it.hasNext(); )
+		{
+			int i = it.nextInt();
+			Card card = cards.get(i);
+			if(card == null)
+			{
+				continue;
+			}
+			boolean found = lower(card.getOracleText()).contains(value.replace("~", names.get(i)));
+			if(!found && card.isMultifaced())
+			{
+				for(CardFace face:card.getCardFaces())
+				{
+					if(lower(face.getOracleText()).contains(value.replace("~", lower(face.getName()))))
+					{
+						found = true;
+						break;
+					}
+				}
+			}
+			if(found)
+			{
+				result.add(i);
+			}
+		}
+		return result;
+	}
+
+	private CompressedBitmap scanExact(String value, CompressedBitmap candidates)
+	{
+		CompressedBitmap result = new CompressedBitmap();
+		for(PrimitiveIterator.OfInt it = nameIndex.match(value, candidates).iterator(); it.hasNext(); )
+		{
+			int i = it.nextInt();
+			String name = names.get(i);
+			if(name.equals(value) || (name.contains(" // ") && Arrays.asList(name.split(" // ")).contains(value)))
+			{
+				result.add(i);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Unites the bitmaps of every color combination that satisfies the
+	 * comparison with the condition's colors.
+	 */
+	private CompressedBitmap matchColors(String field, Query.Term term, String operator,
+			CompressedBitmap candidates)
+	{
+		String value = lower(term.value);
+		if(value.equals("m") || value.equals("multicolor"))
+		{
+			return colorMasks(field, term, "m", candidates);
+		}
+		if(!operator.matches("=|!=|<=|<|>=|>"))
+		{
+			throw new IllegalArgumentException("Unsupported operator in " + term);
+		}
+		if(operator.equals(">=") && (value.equals("c") || value.equals("colorless")))
+		{
+			//Every card has at least no colors, so as Scryfall does, c:c means exactly colorless
+			operator = "=";
+		}
+		return colorMasks(field, term, operator, candidates);
+	}
+
+	private CompressedBitmap colorMasks(String field, Query.Term term, String operator,
+			CompressedBitmap candidates)
+	{
+		String value = lower(term.value);
+		int mask = operator.equals("m") || value.equals("c") || value.equals("colorless") ? 0 : parseColors(term);
+		List<String> accepted = new ArrayList<String>();
+		for(int colors = 0; colors < 1 << Color.values().length; colors++)
+		{
+			boolean subset = (colors & ~mask) == 0;
+			boolean superset = (mask & ~colors) == 0;
+			boolean matches;
+			switch(operator)
+			{
+				case "m": matches = Integer.bitCount(colors) >= 2; break;
+				case "=": matches = colors == mask; break;
+				case "!=": matches = colors != mask; break;
+				case "<=": matches = subset; break;
+				case "<": matches = subset && colors != mask; break;
+				case ">=": matches = superset; break;
+				default: matches = superset && colors != mask; break;
+			}
+			if(matches)
+			{
+				accepted.add(Integer.toString(colors));
+			}
+		}
+		return facets.any(field, accepted, candidates);
+	}
+
+	private CompressedBitmap matchCmc(Query.Term term, CompressedBitmap candidates)
+	{
+		double value;
+		try
+		{
+			value = Double.parseDouble(term.value);
+		}
+		catch(NumberFormatException e)
+		{
+			throw new IllegalArgumentException("Expected a number in " + term);
+		}
+		CompressedBitmap result = new CompressedBitmap();
+		if(candidates == null)
+		{
+			for(int i = 0; i < cards.size(); i++)
+			{
+				if(!Double.isNaN(cmcs[i]) && compare(Double.compare(cmcs[i], value), term))
+				{
+					result.add(i);
+				}
+			}
+			return result;
+		}
+		for(PrimitiveIterator.OfInt it = candidates.iterator(); it.hasNext(); )
+		{
+			int i = it.nextInt();
+			if(!Double.isNaN(cmcs[i]) && compare(Double.compare(cmcs[i], value), term))
+			{
+				result.add(i);
+			}
+		}
+		return result;
+	}
+
+	private CompressedBitmap matchRarity(Query.Term term, CompressedBitmap candidates)
+	{
+		String value = lower(term.value);
+		Rarity rarity = Rarity.fromCode(value);
+		int rank = rarity == null ? -1 : rarity.ordinal();
+		for(int i = 0; rank < 0 && value.length() == 1 && i < RARITIES.length; i++)
+		{
+			if(RARITIES[i].getCode().charAt(0) == value.charAt(0))
+			{
+				rank = i;
+			}
+		}
+		if(rank < 0)
+		{
+			throw new IllegalArgumentException("Unknown rarity in " + term);
+		}
+		List<String> accepted = new ArrayList<String>();
+		for(int i = 0; i < RARITIES.length; i++)
+		{
+			if(compare(Integer.compare(i, rank), term))
+			{
+				accepted.add(RARITIES[i].getCode());
+			}
+		}
+		return facets.any("rarity", accepted, candidates);
+	}
+
+	private static boolean compare(int comparison, Query.Term term)
+	{
+		switch(term.operator)
+		{
+			case ":":
+			case "=": return comparison == 0;
+			case "!=": return comparison != 0;
+			case "<": return comparison < 0;
+			case "<=": return comparison <= 0;
+			case ">": return comparison > 0;
+			case ">=": return comparison >= 0;
+			default: throw new IllegalArgumentException("Unsupported operator in " + term);
+		}
+	}
+
+	private static void requireContains(Query.Term term)
+	{
+		if(!term.operator.equals(":"))
+		{
+			throw new IllegalArgumentException("Unsupported operator in " + term);
+		}
+	}
+
+	private static void requireEquals(Query.Term term)
+	{
+		if(!term.operator.equals(":") && !term.operator.equals("="))
+		{
+			throw new IllegalArgumentException("Unsupported operator in " + term);
+		}
+	}
+
+	private static int parseColors(Query.Term term)
+	{
+		String value = lower(term.value);
+		String letters = COLOR_WORDS.get(value);
+		int mask = 0;
+		for(char c:(letters == null ? value : letters).toCharArray())
+		{
+			Color color = Color.fromSymbol(c);
+			if(color == null)
+			{
+				throw new IllegalArgumentException("Unknown color in " + term);
+			}
+			mask |= color.getMask();
+		}
+		return mask;
+	}
+
+	private static int colorMask(Object colors)
+	{
+		return colors instanceof JSONArray ? Color.toMask((JSONArray)colors) : 0;
+	}
+
+	private static String lower(String s)
+	{
+		return s == null ? "" : s.toLowerCase(Locale.ROOT);
+	}
+
+	private static String lowerOrNull(String s)
+	{
+		return s == null ? null : s.toLowerCase(Locale.ROOT);
+	}
+}
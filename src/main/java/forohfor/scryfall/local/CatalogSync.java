@@ -0,0 +1,290 @@
+package forohfor.scryfall.local;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.json.simple.JSONObject;
+
+import forohfor.scryfall.api.Card;
+import forohfor.scryfall.api.CardIterator;
+import forohfor.scryfall.api.JSONUtil;
+
+/**
+ * Keeps a {@link CardCatalog} up to date with Scryfall's bulk data while it
+ * is being searched. Each time a new bulk file is applied, every card in it
+ * is hashed and compared against the hash it had last time, and only the
+ * cards that were inserted, changed or deleted are applied to the catalog.
+ * Cards whose searchable fields are unchanged, which covers the daily price
+ * updates, are replaced without touching the indexes.
+ *
+ * Two copies of the catalog are kept. Changes are made to the copy no
+ * reader can see, the copies are then swapped, and once the last reader of
+ * the old copy has finished, the same changes are made to it. Readers never
+ * wait, and see each version of the catalog whole. The cards themselves are
+ * shared by both copies; only the indexes are kept twice.
+ *
+ * <pre>
+ * try(CatalogSync.View view = sync.acquire())
+ * {
+ *     CardCatalog catalog = view.getCatalog();
+ *     ...
+ * }
+ * </pre>
+ * @author ForOhForError
+ */
+
+public class CatalogSync {
+
+	private final CardCatalog[] catalogs = {new CardCatalog(), new CardCatalog()};
+	private final AtomicInteger[] readers = {new AtomicInteger(), new AtomicInteger()};
+	private volatile int live;
+	private HashMap<UUID,Long> hashes = new HashMap<UUID,Long>();
+
+	/**
+	 * A catalog in use by a reader. The catalog will not change until the
+	 * view is closed.
+	 */
+	public class View implements Closeable {
+
+		private final int side;
+		private boolean closed;
+
+		private View(int side)
+		{
+			this.side = side;
+		}
+
+		/**
+		 * @return The catalog this view holds.
+		 */
+		public CardCatalog getCatalog()
+		{
+			if(closed)
+			{
+				throw new IllegalStateException("View is closed");
+			}
+			return catalogs[side];
+		}
+
+		/**
+		 * Releases the catalog, letting the next sync change it.
+		 */
+		@Override
+		public void close()
+		{
+			if(!closed)
+			{
+				closed = true;
+				readers[side].decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Takes the current catalog for reading. The view must be closed, or
+	 * the next sync will wait for it forever.
+	 * @return A view of the current catalog
+	 */
+	public View acquire()
+	{
+		while(true)
+		{
+			int side = live;
+			readers[side].incrementAndGet();
+			if(live == side)
+			{
+				return new View(side);
+			}
+			readers[side].decrementAndGet();
+		}
+	}
+
+	/**
+	 * Searches the current catalog.
+	 * @param query The query to parse
+	 * @return The matching cards, sorted by name
+	 */
+	public ArrayList<Card> search(String query)
+	{
+		Query parsed = Query.parse(query);
+		View view = acquire();
+		try
+		{
+			return view.getCatalog().search(parsed);
+		}
+		finally
+		{
+			view.close();
+		}
+	}
+
+	/**
+	 * Brings the catalog up to date with a full set of bulk data. Cards
+	 * missing from it are removed. The bulk data is read to the end before
+	 * anything is changed, so if it cannot be read the catalog is left as
+	 * it was. The iterator is closed afterwards.
+	 * @param bulk The cards of the new bulk data
+	 * @return The changes made
+	 */
+	public synchronized SyncResult apply(CardIterator bulk)
+	{
+		HashMap<UUID,Long> next = new HashMap<UUID,Long>(Math.max(16, hashes.size() * 4 / 3 + 1));
+		ArrayList<Card> changed = new ArrayList<Card>();
+		int inserted = 0;
+		int unchanged = 0;
+		try
+		{
+			while(bulk.hasNext())
+			{
+				Card card = bulk.next();
+				JSONObject json = card.getJSONData();
+				String id = JSONUtil.getStringData(json, "id");
+				if(id == null)
+				{
+					continue;
+				}
+				UUID uuid = UUID.fromString(id);
+				long hash = hash(json);
+				Long old = hashes.get(uuid);
+				if(next.put(uuid, hash) != null)
+				{
+					continue;
+				}
+				if(old == null)
+				{
+					inserted++;
+					changed.add(card);
+				}
+				else if(old != hash)
+				{
+					changed.add(card);
+				}
+				else
+				{
+					unchanged++;
+				}
+			}
+		}
+		finally
+		{
+			bulk.close();
+		}
+		ArrayList<UUID> deleted = new ArrayList<UUID>();
+		for(UUID id:hashes.keySet())
+		{
+			if(!next.containsKey(id))
+			{
+				deleted.add(id);
+			}
+		}
+		hashes = next;
+		SyncResult result = new SyncResult(inserted, changed.size() - inserted, unchanged, deleted.size());
+		if(!result.hasChanges())
+		{
+			return result;
+		}
+
+		int standby = 1 - live;
+		update(standby, changed, deleted);
+		live = standby;
+		AtomicInteger old = readers[1 - standby];
+		while(old.get() != 0)
+		{
+			LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+		}
+		update(1 - standby, changed, deleted);
+		return result;
+	}
+
+	/**
+	 * @return The number of cards in the current catalog.
+	 */
+	public int size()
+	{
+		return catalogs[live].size();
+	}
+
+	/**
+	 * Applies changes to one copy of the catalog, rebuilding it if removed
+	 * cards have left too many empty ordinals. The copy's name order is
+	 * rebuilt here too, before any reader can see it, rather than by the
+	 * first search made against it.
+	 */
+	private void update(int side, List<Card> changed, List<UUID> deleted)
+	{
+		CardCatalog catalog = catalogs[side];
+		for(UUID id:deleted)
+		{
+			catalog.remove(id);
+		}
+		for(Card card:changed)
+		{
+			catalog.replace(card);
+		}
+		if(catalog.getRemovedCount() > catalog.size() / 4)
+		{
+			CardCatalog compacted = new CardCatalog();
+			for(Card card:catalog.getCards())
+			{
+				if(card != null)
+				{
+					compacted.add(card);
+				}
+			}
+			catalog = compacted;
+			catalogs[side] = compacted;
+		}
+		catalog.prepare();
+	}
+
+	/**
+	 * @return A 64-bit hash of a JSON value that does not depend on the
+	 * order of object keys.
+	 */
+	static long hash(Object value)
+	{
+		if(value == null)
+		{
+			return 0x9E3779B97F4A7C15L;
+		}
+		if(value instanceof Map)
+		{
+			long hash = 0;
+			for(Map.Entry<?,?> entry:((Map<?,?>)value).entrySet())
+			{
+				hash += mix(hash(entry.getKey()) * 31 + hash(entry.getValue()));
+			}
+			return mix(hash ^ 0x4F626A656374L);
+		}
+		if(value instanceof List)
+		{
+			long hash = 0x4C697374L;
+			for(Object element:(List<?>)value)
+			{
+				hash = hash * 0x100000001B3L + hash(element);
+			}
+			return mix(hash);
+		}
+		String text = value.toString();
+		long hash = value instanceof String ? 0xCBF29CE484222325L : 0x84222325CBF29CE4L;
+		for(int i = 0; i < text.length(); i++)
+		{
+			hash = (hash ^ text.charAt(i)) * 0x100000001B3L;
+		}
+		return mix(hash);
+	}
+
+	private static long mix(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
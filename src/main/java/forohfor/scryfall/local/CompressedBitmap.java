@@ -0,0 +1,763 @@
+package forohfor.scryfall.local;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A compressed set of non-negative ints, laid out like a roaring bitmap. The
+ * range of ints is split into chunks of 65536, and each chunk that holds any
+ * values is stored either as a sorted array of its low 16 bits, while it
+ * holds at most 4096 values, or as a plain 8 KB bitmap once it holds more.
+ * Sparse sets therefore cost two bytes per value and dense ones an eighth of a
+ * byte, and intersections and unions work a chunk at a time.
+ * <p>
+ * The combining operations return new bitmaps and leave their operands
+ * unchanged. A bitmap may be read from several threads at once, but must not
+ * be added to while it is being read.
+ * @author ForOhForError
+ */
+
+public final class CompressedBitmap {
+
+	private static final int ARRAY_LIMIT = 4096;
+
+	private char[] keys;
+	private Container[] containers;
+	private int size;
+
+	/**
+	 * Creates an empty bitmap.
+	 */
+	public CompressedBitmap()
+	{
+		this(new char[4], new Container[4], 0);
+	}
+
+	private CompressedBitmap(char[] keys, Container[] containers, int size)
+	{
+		this.keys = keys;
+		this.containers = containers;
+		this.size = size;
+	}
+
+	/**
+	 * @param start The first value to include
+	 * @param end The value after the last one to include
+	 * @return A bitmap holding every value from start up to but not including end.
+	 */
+	public static CompressedBitmap range(int start, int end)
+	{
+		CompressedBitmap bitmap = new CompressedBitmap();
+		for(int value = start; value < end; )
+		{
+			int high = value >>> 16;
+			int chunkEnd = Math.min(end, (high + 1) << 16);
+			long[] words = new long[1024];
+			for(int v = value; v < chunkEnd; v++)
+			{
+				int low = v & 0xFFFF;
+				words[low >>> 6] |= 1L << low;
+			}
+			bitmap.append((char)high, new BitmapContainer(words, chunkEnd - value).optimize());
+			value = chunkEnd;
+		}
+		return bitmap;
+	}
+
+	/**
+	 * @param bits The values to include
+	 * @return A bitmap holding the same values as the given set.
+	 */
+	public static CompressedBitmap of(BitSet bits)
+	{
+		CompressedBitmap bitmap = new CompressedBitmap();
+		for(int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1))
+		{
+			bitmap.add(i);
+		}
+		return bitmap;
+	}
+
+	/**
+	 * Builds a bitmap directly from values in increasing order.
+	 * @param values The values, sorted and without duplicates
+	 * @param length The number of values to take from the start of the array
+	 * @return A bitmap holding the values.
+	 */
+	static CompressedBitmap ofSorted(int[] values, int length)
+	{
+		CompressedBitmap bitmap = new CompressedBitmap();
+		int start = 0;
+		while(start < length)
+		{
+			int high = values[start] >>> 16;
+			int end = start;
+			while(end < length && values[end] >>> 16 == high)
+			{
+				end++;
+			}
+			int count = end - start;
+			Container container;
+			if(count > ARRAY_LIMIT)
+			{
+				long[] words = new long[1024];
+				for(int i = start; i < end; i++)
+				{
+					words[(values[i] & 0xFFFF) >>> 6] |= 1L << values[i];
+				}
+				container = new BitmapContainer(words, count);
+			}
+			else
+			{
+				char[] low = new char[count];
+				for(int i = start; i < end; i++)
+				{
+					low[i - start] = (char)values[i];
+				}
+				container = new ArrayContainer(low, count);
+			}
+			bitmap.append((char)high, container);
+			start = end;
+		}
+		return bitmap;
+	}
+
+	/**
+	 * Adds a value. Adding values in increasing order is fastest.
+	 * @param value The value to add
+	 */
+	public void add(int value)
+	{
+		char high = (char)(value >>> 16);
+		char low = (char)value;
+		if(size > 0 && keys[size - 1] == high)
+		{
+			containers[size - 1] = containers[size - 1].add(low);
+			return;
+		}
+		int index = size > 0 && keys[size - 1] < high ? -size - 1 : Arrays.binarySearch(keys, 0, size, high);
+		if(index >= 0)
+		{
+			containers[index] = containers[index].add(low);
+			return;
+		}
+		index = -index - 1;
+		insert(index, high, new ArrayContainer(new char[]{low}, 1));
+	}
+
+	/**
+	 * @param value The value to look for
+	 * @return True if the bitmap holds the value.
+	 */
+	public boolean contains(int value)
+	{
+		int index = Arrays.binarySearch(keys, 0, size, (char)(value >>> 16));
+		return index >= 0 && containers[index].contains((char)value);
+	}
+
+	/**
+	 * @return The number of values held.
+	 */
+	public int getCardinality()
+	{
+		int cardinality = 0;
+		for(int i = 0; i < size; i++)
+		{
+			cardinality += containers[i].cardinality;
+		}
+		return cardinality;
+	}
+
+	/**
+	 * @return True if the bitmap holds no values.
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * @return A bitmap holding the same values that can be changed
+	 * independently of this one.
+	 */
+	public CompressedBitmap copy()
+	{
+		Container[] copies = new Container[size];
+		for(int i = 0; i < size; i++)
+		{
+			copies[i] = containers[i].copy();
+		}
+		return new CompressedBitmap(Arrays.copyOf(keys, size), copies, size);
+	}
+
+	/**
+	 * @param from The value to start from
+	 * @return The smallest value held that is at least from, or -1 if there is none.
+	 */
+	public int nextSetBit(int from)
+	{
+		if(from < 0)
+		{
+			from = 0;
+		}
+		int index = Arrays.binarySearch(keys, 0, size, (char)(from >>> 16));
+		int low = from & 0xFFFF;
+		if(index < 0)
+		{
+			index = -index - 1;
+			low = 0;
+		}
+		for(; index < size; index++, low = 0)
+		{
+			int next = containers[index].next(low);
+			if(next >= 0)
+			{
+				return keys[index] << 16 | next;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param other The bitmap to intersect with
+	 * @return A bitmap of the values held by both.
+	 */
+	public CompressedBitmap and(CompressedBitmap other)
+	{
+		CompressedBitmap result = new CompressedBitmap(new char[Math.min(size, other.size)],
+				new Container[Math.min(size, other.size)], 0);
+		int i = 0;
+		int j = 0;
+		while(i < size && j < other.size)
+		{
+			if(keys[i] < other.keys[j])
+			{
+				i++;
+			}
+			else if(keys[i] > other.keys[j])
+			{
+				j++;
+			}
+			else
+			{
+				Container c = containers[i].and(other.containers[j]);
+				if(c.cardinality > 0)
+				{
+					result.append(keys[i], c);
+				}
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param other The bitmap to unite with
+	 * @return A bitmap of the values held by either.
+	 */
+	public CompressedBitmap or(CompressedBitmap other)
+	{
+		CompressedBitmap result = new CompressedBitmap(new char[size + other.size],
+				new Container[size + other.size], 0);
+		int i = 0;
+		int j = 0;
+		while(i < size || j < other.size)
+		{
+			if(j == other.size || (i < size && keys[i] < other.keys[j]))
+			{
+				result.append(keys[i], containers[i].copy());
+				i++;
+			}
+			else if(i == size || keys[i] > other.keys[j])
+			{
+				result.append(other.keys[j], other.containers[j].copy());
+				j++;
+			}
+			else
+			{
+				result.append(keys[i], containers[i].or(other.containers[j]));
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param other The bitmap of values to leave out
+	 * @return A bitmap of the values held by this bitmap but not the other.
+	 */
+	public CompressedBitmap andNot(CompressedBitmap other)
+	{
+		CompressedBitmap result = new CompressedBitmap(new char[size], new Container[size], 0);
+		int j = 0;
+		for(int i = 0; i < size; i++)
+		{
+			while(j < other.size && other.keys[j] < keys[i])
+			{
+				j++;
+			}
+			Container c = j < other.size && other.keys[j] == keys[i] ?
+					containers[i].andNot(other.containers[j]) : containers[i].copy();
+			if(c.cardinality > 0)
+			{
+				result.append(keys[i], c);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return An iterator over the values held, in increasing order.
+	 */
+	public PrimitiveIterator.OfInt iterator()
+	{
+		return new PrimitiveIterator.OfInt() {
+			private int next = nextSetBit(0);
+
+			@Override
+			public boolean hasNext() {
+				return next >= 0;
+			}
+
+			@Override
+			public int nextInt() {
+				if(next < 0)
+				{
+					throw new NoSuchElementException();
+				}
+				int value = next;
+				next = value == Integer.MAX_VALUE ? -1 : nextSetBit(value + 1);
+				return value;
+			}
+		};
+	}
+
+	/**
+	 * @return A BitSet holding the same values.
+	 */
+	public BitSet toBitSet()
+	{
+		BitSet bits = new BitSet();
+		for(int i = 0; i < size; i++)
+		{
+			int base = keys[i] << 16;
+			Container c = containers[i];
+			for(int low = c.next(0); low >= 0; low = low == 0xFFFF ? -1 : c.next(low + 1))
+			{
+				bits.set(base | low);
+			}
+		}
+		return bits;
+	}
+
+	/**
+	 * @return The approximate number of bytes the bitmap occupies.
+	 */
+	public long getSizeInBytes()
+	{
+		long bytes = 16 + 2L * keys.length + 4L * containers.length;
+		for(int i = 0; i < size; i++)
+		{
+			bytes += containers[i].sizeInBytes();
+		}
+		return bytes;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if(this == obj)
+		{
+			return true;
+		}
+		if(!(obj instanceof CompressedBitmap))
+		{
+			return false;
+		}
+		CompressedBitmap other = (CompressedBitmap)obj;
+		if(size != other.size)
+		{
+			return false;
+		}
+		for(int i = 0; i < size; i++)
+		{
+			if(keys[i] != other.keys[i] || !Arrays.equals(containers[i].words(), other.containers[i].words()))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int hash = 1;
+		for(int i = 0; i < size; i++)
+		{
+			hash = 31 * hash + keys[i];
+			hash = 31 * hash + Arrays.hashCode(containers[i].words());
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "CompressedBitmap [cardinality=" + getCardinality() + ", chunks=" + size + "]";
+	}
+
+	private void append(char key, Container container)
+	{
+		insert(size, key, container);
+	}
+
+	private void insert(int index, char key, Container container)
+	{
+		if(size == keys.length)
+		{
+			keys = Arrays.copyOf(keys, Math.max(4, size * 2));
+			containers = Arrays.copyOf(containers, Math.max(4, size * 2));
+		}
+		System.arraycopy(keys, index, keys, index + 1, size - index);
+		System.arraycopy(containers, index, containers, index + 1, size - index);
+		keys[index] = key;
+		containers[index] = container;
+		size++;
+	}
+
+	/**
+	 * The values of one chunk of 65536.
+	 */
+	private abstract static class Container
+	{
+		int cardinality;
+
+		/**
+		 * @return This container with the value added, which may be a new
+		 * container of a different kind.
+		 */
+		abstract Container add(char value);
+
+		abstract boolean contains(char value);
+
+		/**
+		 * @return The smallest value held that is at least from, or -1.
+		 */
+		abstract int next(int from);
+
+		/**
+		 * @return The values as a 1024-word bitmap.
+		 */
+		abstract long[] words();
+
+		abstract long sizeInBytes();
+
+		/**
+		 * @return A container holding the same values that can be changed
+		 * independently of this one.
+		 */
+		abstract Container copy();
+
+		Container and(Container other)
+		{
+			if(this instanceof ArrayContainer && other instanceof ArrayContainer)
+			{
+				ArrayContainer a = (ArrayContainer)this;
+				ArrayContainer b = (ArrayContainer)other;
+				char[] values = new char[Math.min(a.cardinality, b.cardinality)];
+				int n = 0;
+				for(int i = 0, j = 0; i < a.cardinality && j < b.cardinality; )
+				{
+					if(a.values[i] < b.values[j])
+					{
+						i++;
+					}
+					else if(a.values[i] > b.values[j])
+					{
+						j++;
+					}
+					else
+					{
+						values[n++] = a.values[i];
+						i++;
+						j++;
+					}
+				}
+				return new ArrayContainer(values, n);
+			}
+			if(this instanceof ArrayContainer || other instanceof ArrayContainer)
+			{
+				ArrayContainer a = (ArrayContainer)(this instanceof ArrayContainer ? this : other);
+				Container b = a == this ? other : this;
+				char[] values = new char[a.cardinality];
+				int n = 0;
+				for(int i = 0; i < a.cardinality; i++)
+				{
+					if(b.contains(a.values[i]))
+					{
+						values[n++] = a.values[i];
+					}
+				}
+				return new ArrayContainer(values, n);
+			}
+			long[] a = words();
+			long[] b = other.words();
+			long[] words = new long[1024];
+			int cardinality = 0;
+			for(int i = 0; i < 1024; i++)
+			{
+				words[i] = a[i] & b[i];
+				cardinality += Long.bitCount(words[i]);
+			}
+			return new BitmapContainer(words, cardinality).optimize();
+		}
+
+		Container or(Container other)
+		{
+			if(this instanceof ArrayContainer && other instanceof ArrayContainer
+					&& cardinality + other.cardinality <= ARRAY_LIMIT)
+			{
+				ArrayContainer a = (ArrayContainer)this;
+				ArrayContainer b = (ArrayContainer)other;
+				char[] values = new char[a.cardinality + b.cardinality];
+				int n = 0;
+				int i = 0;
+				int j = 0;
+				while(i < a.cardinality || j < b.cardinality)
+				{
+					if(j == b.cardinality || (i < a.cardinality && a.values[i] < b.values[j]))
+					{
+						values[n++] = a.values[i++];
+					}
+					else if(i == a.cardinality || a.values[i] > b.values[j])
+					{
+						values[n++] = b.values[j++];
+					}
+					else
+					{
+						values[n++] = a.values[i++];
+						j++;
+					}
+				}
+				return new ArrayContainer(values, n);
+			}
+			long[] a = words();
+			long[] b = other.words();
+			long[] words = new long[1024];
+			int cardinality = 0;
+			for(int i = 0; i < 1024; i++)
+			{
+				words[i] = a[i] | b[i];
+				cardinality += Long.bitCount(words[i]);
+			}
+			return new BitmapContainer(words, cardinality).optimize();
+		}
+
+		Container andNot(Container other)
+		{
+			if(this instanceof ArrayContainer)
+			{
+				ArrayContainer a = (ArrayContainer)this;
+				char[] values = new char[a.cardinality];
+				int n = 0;
+				for(int i = 0; i < a.cardinality; i++)
+				{
+					if(!other.contains(a.values[i]))
+					{
+						values[n++] = a.values[i];
+					}
+				}
+				return new ArrayContainer(values, n);
+			}
+			long[] a = words();
+			long[] b = other.words();
+			long[] words = new long[1024];
+			int cardinality = 0;
+			for(int i = 0; i < 1024; i++)
+			{
+				words[i] = a[i] & ~b[i];
+				cardinality += Long.bitCount(words[i]);
+			}
+			return new BitmapContainer(words, cardinality).optimize();
+		}
+	}
+
+	/**
+	 * A sparse chunk, stored as its sorted values.
+	 */
+	private static final class ArrayContainer extends Container
+	{
+		private char[] values;
+
+		ArrayContainer(char[] values, int cardinality)
+		{
+			this.values = values;
+			this.cardinality = cardinality;
+		}
+
+		@Override
+		Container add(char value)
+		{
+			int index = cardinality > 0 && values[cardinality - 1] < value ?
+					-cardinality - 1 : Arrays.binarySearch(values, 0, cardinality, value);
+			if(index >= 0)
+			{
+				return this;
+			}
+			if(cardinality == ARRAY_LIMIT)
+			{
+				return new BitmapContainer(words(), cardinality).add(value);
+			}
+			index = -index - 1;
+			if(cardinality == values.length)
+			{
+				values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, Math.max(4, cardinality * 2)));
+			}
+			System.arraycopy(values, index, values, index + 1, cardinality - index);
+			values[index] = value;
+			cardinality++;
+			return this;
+		}
+
+		@Override
+		boolean contains(char value)
+		{
+			return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+		}
+
+		@Override
+		int next(int from)
+		{
+			int index = Arrays.binarySearch(values, 0, cardinality, (char)from);
+			if(index < 0)
+			{
+				index = -index - 1;
+			}
+			return index < cardinality ? values[index] : -1;
+		}
+
+		@Override
+		long[] words()
+		{
+			long[] words = new long[1024];
+			for(int i = 0; i < cardinality; i++)
+			{
+				words[values[i] >>> 6] |= 1L << values[i];
+			}
+			return words;
+		}
+
+		@Override
+		long sizeInBytes()
+		{
+			return 24 + 2L * values.length;
+		}
+
+		@Override
+		Container copy()
+		{
+			return new ArrayContainer(Arrays.copyOf(values, cardinality), cardinality);
+		}
+	}
+
+	/**
+	 * A dense chunk, stored as one bit per possible value.
+	 */
+	private static final class BitmapContainer extends Container
+	{
+		private final long[] words;
+
+		BitmapContainer(long[] words, int cardinality)
+		{
+			this.words = words;
+			this.cardinality = cardinality;
+		}
+
+		/**
+		 * @return This container, or an array container if it is sparse enough.
+		 */
+		Container optimize()
+		{
+			if(cardinality > ARRAY_LIMIT)
+			{
+				return this;
+			}
+			char[] values = new char[cardinality];
+			int n = 0;
+			for(int i = 0; i < 1024; i++)
+			{
+				long word = words[i];
+				while(word != 0)
+				{
+					values[n++] = (char)(i << 6 | Long.numberOfTrailingZeros(word));
+					word &= word - 1;
+				}
+			}
+			return new ArrayContainer(values, n);
+		}
+
+		@Override
+		Container add(char value)
+		{
+			long bit = 1L << value;
+			if((words[value >>> 6] & bit) == 0)
+			{
+				words[value >>> 6] |= bit;
+				cardinality++;
+			}
+			return this;
+		}
+
+		@Override
+		boolean contains(char value)
+		{
+			return (words[value >>> 6] & 1L << value) != 0;
+		}
+
+		@Override
+		int next(int from)
+		{
+			int index = from >>> 6;
+			if(index >= 1024)
+			{
+				return -1;
+			}
+			long word = words[index] & -1L << from;
+			while(true)
+			{
+				if(word != 0)
+				{
+					return index << 6 | Long.numberOfTrailingZeros(word);
+				}
+				if(++index == 1024)
+				{
+					return -1;
+				}
+				word = words[index];
+			}
+		}
+
+		@Override
+		long[] words()
+		{
+			return words;
+		}
+
+		@Override
+		long sizeInBytes()
+		{
+			return 24 + 8L * words.length;
+		}
+
+		@Override
+		Container copy()
+		{
+			return new BitmapContainer(words.clone(), cardinality);
+		}
+	}
+}
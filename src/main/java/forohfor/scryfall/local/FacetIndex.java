@@ -0,0 +1,118 @@
+package forohfor.scryfall.local;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps each value of each indexed field, such as rarity=rare or
+ * legal=commander, to a compressed bitmap of the ordinals of the cards that
+ * have it. A condition over a field is then a lookup, and combinations of
+ * conditions are bitmap intersections and unions.
+ * <p>
+ * Values are matched exactly, so callers should normalise them, for example
+ * to lower case. A facet index may be read from several threads at once, but
+ * must not be added to while it is being read.
+ * @author ForOhForError
+ */
+
+public class FacetIndex {
+
+	private final Map<String,Map<String,CompressedBitmap>> fields = new HashMap<String,Map<String,CompressedBitmap>>();
+
+	/**
+	 * Records that a card has a value.
+	 * @param field The field, such as "rarity"
+	 * @param value The value, such as "rare". Null values are ignored.
+	 * @param ordinal The card's ordinal
+	 */
+	public void add(String field, String value, int ordinal)
+	{
+		if(value == null)
+		{
+			return;
+		}
+		Map<String,CompressedBitmap> values = fields.get(field);
+		if(values == null)
+		{
+			values = new HashMap<String,CompressedBitmap>();
+			fields.put(field, values);
+		}
+		CompressedBitmap bitmap = values.get(value);
+		if(bitmap == null)
+		{
+			bitmap = new CompressedBitmap();
+			values.put(value, bitmap);
+		}
+		bitmap.add(ordinal);
+	}
+
+	/**
+	 * @param field The field, such as "rarity"
+	 * @param value The value, such as "rare"
+	 * @return The ordinals of the cards with the value, which must not be
+	 * modified, or an empty bitmap if there are none.
+	 */
+	public CompressedBitmap get(String field, String value)
+	{
+		Map<String,CompressedBitmap> values = fields.get(field);
+		CompressedBitmap bitmap = values == null ? null : values.get(value);
+		return bitmap == null ? new CompressedBitmap() : bitmap;
+	}
+
+	/**
+	 * @param field The field, such as "rarity"
+	 * @param values The values to accept
+	 * @return The ordinals of the cards with any of the values.
+	 */
+	public CompressedBitmap any(String field, Collection<String> values)
+	{
+		return any(field, values, null);
+	}
+
+	/**
+	 * @param field The field, such as "rarity"
+	 * @param values The values to accept
+	 * @param candidates The ordinals to consider, or null for every card
+	 * @return The ordinals of the candidates with any of the values. Each
+	 * value's bitmap is narrowed to the candidates before they are united, so
+	 * a small candidate set keeps the union small.
+	 */
+	public CompressedBitmap any(String field, Collection<String> values, CompressedBitmap candidates)
+	{
+		CompressedBitmap result = new CompressedBitmap();
+		for(String value:values)
+		{
+			CompressedBitmap bitmap = get(field, value);
+			result = result.or(candidates == null ? bitmap : bitmap.and(candidates));
+		}
+		return result;
+	}
+
+	/**
+	 * @param field The field, such as "rarity"
+	 * @return Every value recorded for the field.
+	 */
+	public Collection<String> getValues(String field)
+	{
+		Map<String,CompressedBitmap> values = fields.get(field);
+		return values == null ? Collections.<String>emptySet() : Collections.unmodifiableSet(values.keySet());
+	}
+
+	/**
+	 * @return The approximate number of bytes the index's bitmaps occupy.
+	 */
+	public long getSizeInBytes()
+	{
+		long bytes = 0;
+		for(Map<String,CompressedBitmap> values:fields.values())
+		{
+			for(CompressedBitmap bitmap:values.values())
+			{
+				bytes += bitmap.getSizeInBytes();
+			}
+		}
+		return bytes;
+	}
+}
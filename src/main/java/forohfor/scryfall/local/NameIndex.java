@@ -0,0 +1,714 @@
+package forohfor.scryfall.local;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import forohfor.scryfall.api.Card;
+import forohfor.scryfall.api.CardFace;
+import forohfor.scryfall.api.CardSink;
+
+/**
+ * Completes and resolves card names without a request per keystroke. Every
+ * card is indexed under its name, the names of its faces, and the names
+ * printed on it in other languages, all folded to lowercase without
+ * diacritics, so "jotun" finds "Jötun Grunt" and "eclair" finds the French
+ * printing of "Lightning Bolt". Suggestions are always the cards' English
+ * names, ranked by EDHREC rank, with unranked cards last.
+ * <p>
+ * The names are kept in a radix trie in which each node remembers the best
+ * ranked names below it, so a completion costs no more than walking the
+ * prefix. Misspelled prefixes are matched within a bounded edit distance by
+ * walking the trie with a row of the Levenshtein table per character.
+ * <p>
+ * Cards are added incrementally and the trie is rebuilt on the first lookup
+ * after any addition. An index may be searched from several threads at
+ * once, but must not be added to while it is being searched.
+ * @author ForOhForError
+ */
+
+public class NameIndex implements CardSink {
+
+	/**
+	 * The most edits a fuzzy lookup may allow.
+	 */
+	public static final int MAX_EDITS = 2;
+
+	/**
+	 * The number of best ranked names kept at each trie node. Asking for
+	 * more costs a walk of the matching part of the trie.
+	 */
+	private static final int TOP = 10;
+
+	private final HashMap<String,Integer> entryIds = new HashMap<String,Integer>();
+	private final ArrayList<String> names = new ArrayList<String>();
+	private final ArrayList<ArrayList<Card>> printings = new ArrayList<ArrayList<Card>>();
+	private final HashMap<String,int[]> keys = new HashMap<String,int[]>();
+	private int[] ranks = new int[256];
+	private volatile Trie trie;
+
+	/**
+	 * Adds a card's names to the index.
+	 * @param card The card to add
+	 */
+	@Override
+	public void accept(Card card)
+	{
+		add(card);
+	}
+
+	/**
+	 * Adds a card's names to the index.
+	 * @param card The card to add
+	 */
+	public void add(Card card)
+	{
+		String name = card.getName();
+		if(name == null)
+		{
+			return;
+		}
+		Integer id = entryIds.get(name);
+		if(id == null)
+		{
+			id = names.size();
+			entryIds.put(name, id);
+			names.add(name);
+			printings.add(new ArrayList<Card>(1));
+			if(id == ranks.length)
+			{
+				ranks = Arrays.copyOf(ranks, id * 2);
+			}
+			ranks[id] = Integer.MAX_VALUE;
+		}
+		printings.get(id).add(card);
+		Integer rank = card.getEDHRecRank();
+		if(rank != null && rank < ranks[id])
+		{
+			ranks[id] = rank;
+		}
+		addKey(name, id);
+		addKey(card.getPrintedName(), id);
+		if(card.isMultifaced())
+		{
+			for(CardFace face:card.getCardFaces())
+			{
+				addKey(face.getName(), id);
+				addKey(face.getPrintedName(), id);
+			}
+		}
+		trie = null;
+	}
+
+	private void addKey(String text, int id)
+	{
+		if(text == null)
+		{
+			return;
+		}
+		String key = fold(text);
+		if(key.isEmpty())
+		{
+			return;
+		}
+		int[] ids = keys.get(key);
+		if(ids == null)
+		{
+			keys.put(key, new int[]{id});
+		}
+		else if(ids[ids.length - 1] != id && indexOf(ids, id) < 0)
+		{
+			ids = Arrays.copyOf(ids, ids.length + 1);
+			ids[ids.length - 1] = id;
+			keys.put(key, ids);
+		}
+	}
+
+	/**
+	 * @return The number of distinct card names in the index.
+	 */
+	public int size()
+	{
+		return names.size();
+	}
+
+	/**
+	 * @param prefix The start of a name, in any supported language
+	 * @param limit The most names to return
+	 * @return The best ranked names with a name or face name starting with
+	 * the prefix.
+	 */
+	public List<String> complete(String prefix, int limit)
+	{
+		Trie trie = trie();
+		int node = trie.find(foldPrefix(prefix));
+		if(node < 0 || limit <= 0)
+		{
+			return Collections.emptyList();
+		}
+		return trie.names(trie.best(node, limit), limit);
+	}
+
+	/**
+	 * Completes a prefix that may be misspelled, allowing no edits for
+	 * prefixes shorter than four characters, one for prefixes shorter than
+	 * eight, and two for longer ones.
+	 * @param prefix The start of a name, in any supported language
+	 * @param limit The most names to return
+	 * @return The names whose start is closest to the prefix, best ranked first
+	 * among equally close ones.
+	 */
+	public List<String> suggest(String prefix, int limit)
+	{
+		int length = foldPrefix(prefix).length();
+		return suggest(prefix, length < 4 ? 0 : length < 8 ? 1 : MAX_EDITS, limit);
+	}
+
+	/**
+	 * Completes a prefix that may be misspelled.
+	 * @param prefix The start of a name, in any supported language
+	 * @param maxEdits The most characters that may be inserted, deleted or
+	 * replaced to make the prefix match, from 0 to {@link #MAX_EDITS}
+	 * @param limit The most names to return
+	 * @return The names whose start is closest to the prefix, best ranked first
+	 * among equally close ones.
+	 */
+	public List<String> suggest(String prefix, int maxEdits, int limit)
+	{
+		if(maxEdits < 0 || maxEdits > MAX_EDITS)
+		{
+			throw new IllegalArgumentException("Edits must be from 0 to " + MAX_EDITS);
+		}
+		if(limit <= 0)
+		{
+			return Collections.emptyList();
+		}
+		return trie().suggest(foldPrefix(prefix), maxEdits, limit);
+	}
+
+	/**
+	 * @param name A card or face name, in any supported language, ignoring
+	 * case and diacritics
+	 * @return The English name of the best ranked card with that name, or
+	 * null if there is none.
+	 */
+	public String resolve(String name)
+	{
+		int[] ids = keys.get(fold(name));
+		if(ids == null)
+		{
+			return null;
+		}
+		int best = ids[0];
+		for(int id:ids)
+		{
+			if(ranks[id] < ranks[best] || ranks[id] == ranks[best] && names.get(id).compareTo(names.get(best)) < 0)
+			{
+				best = id;
+			}
+		}
+		return names.get(best);
+	}
+
+	/**
+	 * @param name A card or face name, as accepted by {@link #resolve(String)}
+	 * @return The first printing added of the card with that name, or null
+	 * if there is none.
+	 */
+	public Card getCard(String name)
+	{
+		String resolved = resolve(name);
+		return resolved == null ? null : printings.get(entryIds.get(resolved)).get(0);
+	}
+
+	/**
+	 * @param name A card or face name, as accepted by {@link #resolve(String)}
+	 * @return Every printing added of the card with that name, in the order
+	 * they were added.
+	 */
+	public List<Card> getPrintings(String name)
+	{
+		String resolved = resolve(name);
+		if(resolved == null)
+		{
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(printings.get(entryIds.get(resolved)));
+	}
+
+	/**
+	 * Answers {@link forohfor.scryfall.api.MTGCardQuery#toCardList} from the
+	 * index. Names that match no card are left out.
+	 * @param cardnames The names to look up
+	 * @param listDuplicates If true, the returned list will contain every
+	 * printing of each card, instead of only the first one added
+	 * @return The cards found, in the order of the names.
+	 */
+	public ArrayList<Card> toCardList(Collection<String> cardnames, boolean listDuplicates)
+	{
+		ArrayList<Card> cards = new ArrayList<Card>();
+		for(String cardname:cardnames)
+		{
+			if(listDuplicates)
+			{
+				cards.addAll(getPrintings(cardname));
+			}
+			else
+			{
+				Card card = getCard(cardname);
+				if(card != null)
+				{
+					cards.add(card);
+				}
+			}
+		}
+		return cards;
+	}
+
+	/**
+	 * Lowercases a name and strips its diacritics, so that it can be looked
+	 * up however it was typed.
+	 * @param text The text to fold
+	 * @return The folded text, with runs of whitespace collapsed to single spaces.
+	 */
+	public static String fold(String text)
+	{
+		String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+		StringBuilder folded = new StringBuilder(decomposed.length());
+		boolean space = false;
+		for(int i = 0; i < decomposed.length(); i++)
+		{
+			char c = decomposed.charAt(i);
+			if(Character.getType(c) == Character.NON_SPACING_MARK)
+			{
+				continue;
+			}
+			if(Character.isWhitespace(c))
+			{
+				space = folded.length() > 0;
+				continue;
+			}
+			if(space)
+			{
+				folded.append(' ');
+				space = false;
+			}
+			switch(c)
+			{
+				case '\u00C6':
+				case '\u00E6':
+					folded.append("ae");
+					break;
+				case '\u0152':
+				case '\u0153':
+					folded.append("oe");
+					break;
+				case '\u00D8':
+				case '\u00F8':
+					folded.append('o');
+					break;
+				case '\u00DF':
+					folded.append("ss");
+					break;
+				case '\u2018':
+				case '\u2019':
+					folded.append('\'');
+					break;
+				default:
+					folded.append(Character.toLowerCase(c));
+			}
+		}
+		return folded.toString();
+	}
+
+	/**
+	 * Folds a prefix, keeping a trailing space so that a finished word is
+	 * not completed to a longer one.
+	 */
+	private static String foldPrefix(String prefix)
+	{
+		String folded = fold(prefix);
+		if(!folded.isEmpty() && Character.isWhitespace(prefix.charAt(prefix.length() - 1)))
+		{
+			return folded + ' ';
+		}
+		return folded;
+	}
+
+	private Trie trie()
+	{
+		Trie current = trie;
+		if(current == null)
+		{
+			synchronized(this)
+			{
+				current = trie;
+				if(current == null)
+				{
+					current = new Trie(this);
+					trie = current;
+				}
+			}
+		}
+		return current;
+	}
+
+	private static int indexOf(int[] values, int value)
+	{
+		for(int i = 0; i < values.length; i++)
+		{
+			if(values[i] == value)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * A radix trie over the folded keys. Nodes are numbered breadth first,
+	 * so the children of a node are numbered consecutively, in order of
+	 * their first character. Names are referred to by their position in
+	 * the ranking, so sorting positions sorts by rank.
+	 */
+	private static final class Trie {
+
+		private final String[] keys;
+		private final String[] ranked;
+		private final int[] labelKey;
+		private final int[] labelFrom;
+		private final int[] labelTo;
+		private final int[] firstChild;
+		private final int[] childCount;
+		private final char[] firstChar;
+		private final int[][] terminals;
+		private final int[][] top;
+
+		Trie(NameIndex index)
+		{
+			final ArrayList<String> names = index.names;
+			final int[] ranks = index.ranks;
+			Integer[] order = new Integer[names.size()];
+			for(int i = 0; i < order.length; i++)
+			{
+				order[i] = i;
+			}
+			Arrays.sort(order, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer a, Integer b) {
+					int byRank = Integer.compare(ranks[a], ranks[b]);
+					return byRank != 0 ? byRank : names.get(a).compareTo(names.get(b));
+				}
+			});
+			ranked = new String[order.length];
+			int[] position = new int[order.length];
+			for(int i = 0; i < order.length; i++)
+			{
+				ranked[i] = names.get(order[i]);
+				position[order[i]] = i;
+			}
+
+			keys = index.keys.keySet().toArray(new String[0]);
+			Arrays.sort(keys);
+			int capacity = 2 * keys.length + 1;
+			int[] from = new int[capacity];
+			int[] to = new int[capacity];
+			int[] key = new int[capacity];
+			int[] lo = new int[capacity];
+			int[] hi = new int[capacity];
+			int[] first = new int[capacity];
+			int[] count = new int[capacity];
+			char[] chars = new char[capacity];
+			int[][] terminal = new int[capacity][];
+			hi[0] = keys.length;
+			int nodes = 1;
+			for(int node = 0; node < nodes; node++)
+			{
+				int start = lo[node];
+				int end = to[node];
+				if(start < hi[node] && keys[start].length() == end)
+				{
+					int[] ids = index.keys.get(keys[start]);
+					terminal[node] = new int[ids.length];
+					for(int i = 0; i < ids.length; i++)
+					{
+						terminal[node][i] = position[ids[i]];
+					}
+					start++;
+				}
+				first[node] = nodes;
+				while(start < hi[node])
+				{
+					char c = keys[start].charAt(end);
+					int stop = start + 1;
+					while(stop < hi[node] && keys[stop].charAt(end) == c)
+					{
+						stop++;
+					}
+					String a = keys[start];
+					String b = keys[stop - 1];
+					int common = end + 1;
+					while(common < a.length() && common < b.length() && a.charAt(common) == b.charAt(common))
+					{
+						common++;
+					}
+					key[nodes] = start;
+					from[nodes] = end;
+					to[nodes] = common;
+					lo[nodes] = start;
+					hi[nodes] = stop;
+					chars[nodes] = c;
+					nodes++;
+					start = stop;
+				}
+				count[node] = nodes - first[node];
+			}
+			labelKey = Arrays.copyOf(key, nodes);
+			labelFrom = Arrays.copyOf(from, nodes);
+			labelTo = Arrays.copyOf(to, nodes);
+			firstChild = Arrays.copyOf(first, nodes);
+			childCount = Arrays.copyOf(count, nodes);
+			firstChar = Arrays.copyOf(chars, nodes);
+			terminals = Arrays.copyOf(terminal, nodes);
+			top = new int[nodes][];
+			int[] merged = new int[TOP * 16];
+			for(int node = nodes - 1; node >= 0; node--)
+			{
+				int size = 0;
+				int[] own = terminals[node];
+				int needed = (own == null ? 0 : own.length) + TOP * childCount[node];
+				if(merged.length < needed)
+				{
+					merged = new int[needed];
+				}
+				if(own != null)
+				{
+					System.arraycopy(own, 0, merged, 0, own.length);
+					size = own.length;
+				}
+				for(int child = firstChild[node]; child < firstChild[node] + childCount[node]; child++)
+				{
+					System.arraycopy(top[child], 0, merged, size, top[child].length);
+					size += top[child].length;
+				}
+				top[node] = distinct(merged, size, TOP);
+			}
+		}
+
+		/**
+		 * @return The node whose path the folded prefix ends in, or -1 if no
+		 * key starts with it.
+		 */
+		int find(String prefix)
+		{
+			int node = 0;
+			int i = 0;
+			while(i < prefix.length())
+			{
+				node = child(node, prefix.charAt(i));
+				if(node < 0)
+				{
+					return -1;
+				}
+				String label = keys[labelKey[node]];
+				for(int j = labelFrom[node]; j < labelTo[node] && i < prefix.length(); j++, i++)
+				{
+					if(label.charAt(j) != prefix.charAt(i))
+					{
+						return -1;
+					}
+				}
+			}
+			return node;
+		}
+
+		private int child(int node, char c)
+		{
+			int low = firstChild[node];
+			int high = low + childCount[node] - 1;
+			while(low <= high)
+			{
+				int mid = (low + high) >>> 1;
+				if(firstChar[mid] < c)
+				{
+					low = mid + 1;
+				}
+				else if(firstChar[mid] > c)
+				{
+					high = mid - 1;
+				}
+				else
+				{
+					return mid;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * @return The ranking positions of the best names below a node.
+		 */
+		int[] best(int node, int limit)
+		{
+			if(limit <= TOP)
+			{
+				return top[node];
+			}
+			int[] all = new int[64];
+			int size = 0;
+			int[] stack = new int[64];
+			int depth = 0;
+			stack[depth++] = node;
+			while(depth > 0)
+			{
+				int next = stack[--depth];
+				int[] own = terminals[next];
+				if(own != null)
+				{
+					if(size + own.length > all.length)
+					{
+						all = Arrays.copyOf(all, Math.max(all.length * 2, size + own.length));
+					}
+					System.arraycopy(own, 0, all, size, own.length);
+					size += own.length;
+				}
+				if(depth + childCount[next] > stack.length)
+				{
+					stack = Arrays.copyOf(stack, Math.max(stack.length * 2, depth + childCount[next]));
+				}
+				for(int child = firstChild[next]; child < firstChild[next] + childCount[next]; child++)
+				{
+					stack[depth++] = child;
+				}
+			}
+			return distinct(all, size, limit);
+		}
+
+		List<String> names(int[] positions, int limit)
+		{
+			int count = Math.min(limit, positions.length);
+			ArrayList<String> result = new ArrayList<String>(count);
+			for(int i = 0; i < count; i++)
+			{
+				result.add(ranked[positions[i]]);
+			}
+			return result;
+		}
+
+		List<String> suggest(String prefix, int maxEdits, int limit)
+		{
+			int n = prefix.length();
+			int[][] rows = new int[n + maxEdits + 2][n + 1];
+			for(int j = 0; j <= n; j++)
+			{
+				rows[0][j] = j;
+			}
+			ArrayList<long[]> matches = new ArrayList<long[]>();
+			int recorded = maxEdits + 1;
+			if(n <= maxEdits)
+			{
+				matches.add(new long[]{n, 0});
+				recorded = n;
+			}
+			if(recorded > 0)
+			{
+				for(int child = firstChild[0]; child < firstChild[0] + childCount[0]; child++)
+				{
+					walk(child, 0, prefix, maxEdits, rows, recorded, matches);
+				}
+			}
+			ArrayList<Long> candidates = new ArrayList<Long>();
+			for(long[] match:matches)
+			{
+				for(int position:best((int)match[1], limit))
+				{
+					candidates.add(match[0] << 32 | position);
+				}
+			}
+			Collections.sort(candidates);
+			HashSet<Integer> seen = new HashSet<Integer>();
+			ArrayList<String> result = new ArrayList<String>(Math.min(limit, candidates.size()));
+			for(long candidate:candidates)
+			{
+				if(seen.add((int)candidate))
+				{
+					result.add(ranked[(int)candidate]);
+					if(result.size() == limit)
+					{
+						break;
+					}
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Extends the Levenshtein table through a node's label. Wherever the
+		 * whole prefix has been matched within the allowed edits, every key
+		 * below the node matches, and the node is recorded with the number of
+		 * edits used. The walk stops once no deeper node could do better.
+		 */
+		private void walk(int node, int depth, String prefix, int maxEdits, int[][] rows, int recorded,
+				ArrayList<long[]> matches)
+		{
+			int n = prefix.length();
+			String label = keys[labelKey[node]];
+			for(int i = labelFrom[node]; i < labelTo[node]; i++)
+			{
+				char c = label.charAt(i);
+				int[] previous = rows[depth];
+				int[] row = rows[depth + 1];
+				row[0] = depth + 1;
+				int min = row[0];
+				for(int j = 1; j <= n; j++)
+				{
+					int cost = prefix.charAt(j - 1) == c ? 0 : 1;
+					row[j] = Math.min(Math.min(previous[j] + 1, row[j - 1] + 1), previous[j - 1] + cost);
+					min = Math.min(min, row[j]);
+				}
+				depth++;
+				if(min > maxEdits)
+				{
+					return;
+				}
+				if(row[n] < recorded)
+				{
+					matches.add(new long[]{row[n], node});
+					recorded = row[n];
+				}
+				if(min >= recorded)
+				{
+					return;
+				}
+			}
+			for(int child = firstChild[node]; child < firstChild[node] + childCount[node]; child++)
+			{
+				walk(child, depth, prefix, maxEdits, rows, recorded, matches);
+			}
+		}
+
+		/**
+		 * @return The smallest distinct values of the first size entries, at
+		 * most limit of them, in increasing order.
+		 */
+		private static int[] distinct(int[] values, int size, int limit)
+		{
+			Arrays.sort(values, 0, size);
+			int count = 0;
+			for(int i = 0; i < size && count < limit; i++)
+			{
+				if(i == 0 || values[i] != values[i - 1])
+				{
+					values[count++] = values[i];
+				}
+			}
+			return Arrays.copyOf(values, count);
+		}
+	}
+}
@@ -0,0 +1,237 @@
+package forohfor.scryfall.local;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A parsed search query, as a tree of conditions joined by and, or and not.
+ * Queries use Scryfall's search syntax (https://www.scryfall.com/docs/syntax)
+ * and are evaluated by a {@link CardCatalog}. Queries are immutable, so a
+ * parsed query may be kept and evaluated any number of times.
+ * @author ForOhForError
+ */
+
+public abstract class Query {
+
+	Query()
+	{
+	}
+
+	/**
+	 * Parses a query written in Scryfall's search syntax.
+	 * @param query The query to parse
+	 * @return The parsed query
+	 * @throws IllegalArgumentException If the query is malformed or uses an
+	 * unsupported keyword
+	 */
+	public static Query parse(String query)
+	{
+		return new QueryParser(query).parse();
+	}
+
+	/**
+	 * @param catalog The catalog to evaluate against
+	 * @param candidates The ordinals to consider, or null for every card
+	 * @return The ordinals of the candidates that match this query, which may
+	 * be the candidates themselves or a bitmap held by an index, so must not
+	 * be modified.
+	 */
+	abstract CompressedBitmap evaluate(CardCatalog catalog, CompressedBitmap candidates);
+
+	/**
+	 * @param catalog The catalog the query will be evaluated against
+	 * @return A rough relative cost of evaluating this query, so that cheap
+	 * conditions can narrow the candidates before expensive ones run.
+	 */
+	abstract int cost(CardCatalog catalog);
+
+	/**
+	 * Matches cards that match every one of its conditions.
+	 */
+	static final class And extends Query
+	{
+		final List<Query> terms;
+
+		And(List<Query> terms)
+		{
+			this.terms = Collections.unmodifiableList(new ArrayList<Query>(terms));
+		}
+
+		@Override
+		CompressedBitmap evaluate(final CardCatalog catalog, CompressedBitmap candidates)
+		{
+			List<Query> plan = new ArrayList<Query>(terms);
+			Collections.sort(plan, new Comparator<Query>() {
+				@Override
+				public int compare(Query a, Query b) {
+					return Integer.compare(a.cost(catalog), b.cost(catalog));
+				}
+			});
+			CompressedBitmap result = candidates;
+			for(Query term:plan)
+			{
+				result = term.evaluate(catalog, result);
+				if(result.isEmpty())
+				{
+					break;
+				}
+			}
+			return result;
+		}
+
+		@Override
+		int cost(CardCatalog catalog)
+		{
+			int cost = 0;
+			for(Query term:terms)
+			{
+				cost = Math.max(cost, term.cost(catalog));
+			}
+			return cost;
+		}
+
+		@Override
+		public String toString()
+		{
+			StringBuilder sb = new StringBuilder();
+			for(Query term:terms)
+			{
+				if(sb.length() > 0)
+				{
+					sb.append(' ');
+				}
+				sb.append(term instanceof Or ? "(" + term + ")" : term.toString());
+			}
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * Matches cards that match any of its conditions.
+	 */
+	static final class Or extends Query
+	{
+		final List<Query> terms;
+
+		Or(List<Query> terms)
+		{
+			this.terms = Collections.unmodifiableList(new ArrayList<Query>(terms));
+		}
+
+		@Override
+		CompressedBitmap evaluate(CardCatalog catalog, CompressedBitmap candidates)
+		{
+			CompressedBitmap result = new CompressedBitmap();
+			for(Query term:terms)
+			{
+				result = result.or(term.evaluate(catalog, candidates));
+			}
+			return result;
+		}
+
+		@Override
+		int cost(CardCatalog catalog)
+		{
+			int cost = 0;
+			for(Query term:terms)
+			{
+				cost = Math.max(cost, term.cost(catalog));
+			}
+			return cost;
+		}
+
+		@Override
+		public String toString()
+		{
+			StringBuilder sb = new StringBuilder();
+			for(Query term:terms)
+			{
+				if(sb.length() > 0)
+				{
+					sb.append(" or ");
+				}
+				sb.append(term);
+			}
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * Matches cards that do not match its condition.
+	 */
+	static final class Not extends Query
+	{
+		final Query term;
+
+		Not(Query term)
+		{
+			this.term = term;
+		}
+
+		@Override
+		CompressedBitmap evaluate(CardCatalog catalog, CompressedBitmap candidates)
+		{
+			return catalog.all(candidates).andNot(term.evaluate(catalog, candidates));
+		}
+
+		@Override
+		int cost(CardCatalog catalog)
+		{
+			return term.cost(catalog);
+		}
+
+		@Override
+		public String toString()
+		{
+			return term instanceof Term ? "-" + term : "-(" + term + ")";
+		}
+	}
+
+	/**
+	 * A single condition on one field, such as t:creature or cmc&lt;=3.
+	 */
+	static final class Term extends Query
+	{
+		final String key;
+		final String operator;
+		final String value;
+
+		/**
+		 * @param key The canonical keyword, such as "type" or "cmc"
+		 * @param operator One of : = != &lt; &lt;= &gt; &gt;=
+		 * @param value The value to compare against, without quotes
+		 */
+		Term(String key, String operator, String value)
+		{
+			this.key = key;
+			this.operator = operator;
+			this.value = value;
+		}
+
+		@Override
+		CompressedBitmap evaluate(CardCatalog catalog, CompressedBitmap candidates)
+		{
+			return catalog.evaluate(this, candidates);
+		}
+
+		@Override
+		int cost(CardCatalog catalog)
+		{
+			return catalog.cost(this);
+		}
+
+		@Override
+		public String toString()
+		{
+			String quoted = value.isEmpty() || value.matches(".*[\\s()\"].*") ?
+					"\"" + value + "\"" : value;
+			if(key.equals("exact"))
+			{
+				return "!" + quoted;
+			}
+			return key + operator + quoted;
+		}
+	}
+}
@@ -0,0 +1,231 @@
+package forohfor.scryfall.local;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A recursive descent parser for Scryfall's search syntax. Conditions
+ * separated by spaces are joined by and; "or" has lower precedence, a leading
+ * "-" negates a condition or group, and parentheses group conditions.
+ * @author ForOhForError
+ */
+
+class QueryParser {
+
+	private static final Map<String,String> KEYWORDS = new HashMap<String,String>();
+
+	static
+	{
+		alias("name", "name");
+		alias("type", "t", "type");
+		alias("oracle", "o", "oracle");
+		alias("color", "c", "color", "colors");
+		alias("identity", "id", "identity", "ci", "commander");
+		alias("cmc", "cmc", "mv", "manavalue");
+		alias("set", "s", "set", "e", "edition");
+		alias("rarity", "r", "rarity");
+		alias("legal", "f", "format", "legal");
+		alias("banned", "banned");
+		alias("restricted", "restricted");
+		alias("layout", "layout");
+		alias("is", "is");
+		alias("lang", "lang", "language");
+	}
+
+	private final String query;
+	private int pos;
+
+	QueryParser(String query)
+	{
+		this.query = query;
+	}
+
+	private static void alias(String key, String... aliases)
+	{
+		for(String alias:aliases)
+		{
+			KEYWORDS.put(alias, key);
+		}
+	}
+
+	/**
+	 * @return The parsed query.
+	 */
+	Query parse()
+	{
+		Query result = parseOr();
+		skipSpace();
+		if(pos < query.length())
+		{
+			throw error("Unexpected '" + query.charAt(pos) + "'");
+		}
+		return result;
+	}
+
+	private Query parseOr()
+	{
+		List<Query> terms = new ArrayList<Query>();
+		terms.add(parseAnd());
+		while(acceptWord("or"))
+		{
+			terms.add(parseAnd());
+		}
+		return terms.size() == 1 ? terms.get(0) : new Query.Or(terms);
+	}
+
+	private Query parseAnd()
+	{
+		List<Query> terms = new ArrayList<Query>();
+		while(true)
+		{
+			skipSpace();
+			if(pos >= query.length() || query.charAt(pos) == ')' || peekWord("or"))
+			{
+				break;
+			}
+			if(acceptWord("and"))
+			{
+				continue;
+			}
+			terms.add(parseUnary());
+		}
+		if(terms.isEmpty())
+		{
+			throw error("Expected a search term");
+		}
+		return terms.size() == 1 ? terms.get(0) : new Query.And(terms);
+	}
+
+	private Query parseUnary()
+	{
+		skipSpace();
+		if(pos >= query.length())
+		{
+			throw error("Expected a search term");
+		}
+		char c = query.charAt(pos);
+		if(c == '-')
+		{
+			pos++;
+			return new Query.Not(parseUnary());
+		}
+		if(c == '(')
+		{
+			pos++;
+			Query inner = parseOr();
+			skipSpace();
+			if(pos >= query.length() || query.charAt(pos) != ')')
+			{
+				throw error("Expected ')'");
+			}
+			pos++;
+			return inner;
+		}
+		if(c == '!')
+		{
+			pos++;
+			return new Query.Term("exact", ":", readValue());
+		}
+		return parseTerm();
+	}
+
+	private Query parseTerm()
+	{
+		int start = pos;
+		while(pos < query.length() && Character.isLetter(query.charAt(pos)))
+		{
+			pos++;
+		}
+		String word = query.substring(start, pos).toLowerCase();
+		String operator = readOperator();
+		if(operator == null)
+		{
+			pos = start;
+			return new Query.Term("name", ":", readValue());
+		}
+		String key = KEYWORDS.get(word);
+		if(key == null)
+		{
+			pos = start;
+			throw error("Unsupported keyword '" + word + "'");
+		}
+		return new Query.Term(key, operator, readValue());
+	}
+
+	private String readOperator()
+	{
+		String[] operators = {"<=", ">=", "!=", ":", "=", "<", ">"};
+		for(String operator:operators)
+		{
+			if(query.startsWith(operator, pos))
+			{
+				pos += operator.length();
+				return operator;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Reads a quoted string, or a run of characters up to the next space or
+	 * parenthesis.
+	 */
+	private String readValue()
+	{
+		if(pos < query.length() && query.charAt(pos) == '"')
+		{
+			int end = query.indexOf('"', pos + 1);
+			if(end < 0)
+			{
+				throw error("Unterminated quote");
+			}
+			String value = query.substring(pos + 1, end);
+			pos = end + 1;
+			return value;
+		}
+		int start = pos;
+		while(pos < query.length() && !Character.isWhitespace(query.charAt(pos))
+				&& query.charAt(pos) != '(' && query.charAt(pos) != ')')
+		{
+			pos++;
+		}
+		if(pos == start)
+		{
+			throw error("Expected a value");
+		}
+		return query.substring(start, pos);
+	}
+
+	private boolean peekWord(String word)
+	{
+		int end = pos + word.length();
+		return query.regionMatches(true, pos, word, 0, word.length())
+				&& (end == query.length() || Character.isWhitespace(query.charAt(end)) || query.charAt(end) == '(');
+	}
+
+	private boolean acceptWord(String word)
+	{
+		skipSpace();
+		if(peekWord(word))
+		{
+			pos += word.length();
+			return true;
+		}
+		return false;
+	}
+
+	private void skipSpace()
+	{
+		while(pos < query.length() && Character.isWhitespace(query.charAt(pos)))
+		{
+			pos++;
+		}
+	}
+
+	private IllegalArgumentException error(String message)
+	{
+		return new IllegalArgumentException(message + " at position " + pos + " in query: " + query);
+	}
+}
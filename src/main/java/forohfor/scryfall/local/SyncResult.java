@@ -0,0 +1,75 @@
+package forohfor.scryfall.local;
+
+/**
+ * What one {@link CatalogSync#apply} changed.
+ * @author ForOhForError
+ */
+
+public class SyncResult {
+
+	private final int inserted;
+	private final int updated;
+	private final int unchanged;
+	private final int deleted;
+
+	/**
+	 * Creates a result.
+	 * @param inserted Cards that were not in the catalog before
+	 * @param updated Cards whose data had changed
+	 * @param unchanged Cards whose data was the same as before
+	 * @param deleted Cards no longer in the bulk data
+	 */
+	public SyncResult(int inserted, int updated, int unchanged, int deleted)
+	{
+		this.inserted = inserted;
+		this.updated = updated;
+		this.unchanged = unchanged;
+		this.deleted = deleted;
+	}
+
+	/**
+	 * @return Cards that were not in the catalog before.
+	 */
+	public int getInsertedCount()
+	{
+		return inserted;
+	}
+
+	/**
+	 * @return Cards whose data had changed.
+	 */
+	public int getUpdatedCount()
+	{
+		return updated;
+	}
+
+	/**
+	 * @return Cards whose data was the same as before.
+	 */
+	public int getUnchangedCount()
+	{
+		return unchanged;
+	}
+
+	/**
+	 * @return Cards no longer in the bulk data.
+	 */
+	public int getDeletedCount()
+	{
+		return deleted;
+	}
+
+	/**
+	 * @return True if the catalog was changed at all.
+	 */
+	public boolean hasChanges()
+	{
+		return inserted + updated + deleted > 0;
+	}
+
+	@Override
+	public String toString() {
+		return "SyncResult [inserted=" + inserted + ", updated=" + updated + ", unchanged=" + unchanged
+				+ ", deleted=" + deleted + "]";
+	}
+}
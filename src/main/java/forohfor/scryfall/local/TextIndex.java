@@ -0,0 +1,601 @@
+package forohfor.scryfall.local;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A positional inverted index over short texts such as card names, type lines
+ * and rules text. Texts are split into lowercase words of letters and digits,
+ * and each word maps to a posting list of the documents containing it and
+ * the positions it appears at. Posting lists are stored as variable-length
+ * encoded deltas, so common words cost a byte or two per occurrence, with skip
+ * entries every few dozen documents so that phrase matching can jump past
+ * documents that cannot match.
+ * <p>
+ * Documents are added incrementally and must be added in increasing order of
+ * their ordinals. An index may be searched from several threads at once, but
+ * must not be added to while it is being searched.
+ * @author ForOhForError
+ */
+
+public class TextIndex {
+
+	/**
+	 * The gap left between the positions of separate sections of one
+	 * document, so that a phrase never matches across two of them.
+	 */
+	private static final int SECTION_GAP = 64;
+
+	/**
+	 * The number of documents between skip entries.
+	 */
+	private static final int SKIP_INTERVAL = 32;
+
+	private final TreeMap<String,Postings> terms = new TreeMap<String,Postings>();
+	private int lastOrdinal = -1;
+
+	/**
+	 * Indexes a document.
+	 * @param ordinal The document's ordinal, greater than that of any document
+	 * already added
+	 * @param sections The document's texts, such as the oracle text of each
+	 * face. Null sections are skipped. A phrase never spans two sections.
+	 */
+	public void add(int ordinal, String... sections)
+	{
+		if(ordinal <= lastOrdinal)
+		{
+			throw new IllegalArgumentException("Ordinal " + ordinal + " added after " + lastOrdinal);
+		}
+		lastOrdinal = ordinal;
+		Map<String,int[]> positions = new HashMap<String,int[]>();
+		int position = 0;
+		for(String section:sections)
+		{
+			if(section == null)
+			{
+				continue;
+			}
+			for(String token:tokenize(section))
+			{
+				int[] list = positions.get(token);
+				if(list == null)
+				{
+					list = new int[2];
+					positions.put(token, list);
+				}
+				else if(list[0] + 1 == list.length)
+				{
+					list = Arrays.copyOf(list, list.length * 2);
+					positions.put(token, list);
+				}
+				list[++list[0]] = position++;
+			}
+			position += SECTION_GAP;
+		}
+		for(Map.Entry<String,int[]> entry:positions.entrySet())
+		{
+			Postings postings = terms.get(entry.getKey());
+			if(postings == null)
+			{
+				postings = new Postings();
+				terms.put(entry.getKey(), postings);
+			}
+			postings.add(ordinal, entry.getValue());
+		}
+	}
+
+	/**
+	 * @param term A single lowercase word
+	 * @return The ordinals of the documents containing the word. The caller
+	 * may modify the returned set.
+	 */
+	public CompressedBitmap term(String term)
+	{
+		Postings postings = terms.get(term);
+		return postings == null ? new CompressedBitmap() : postings.docs();
+	}
+
+	/**
+	 * @param prefix The start of a lowercase word
+	 * @return The ordinals of the documents containing any word that starts
+	 * with the prefix. The caller may modify the returned set.
+	 */
+	public CompressedBitmap prefix(String prefix)
+	{
+		CompressedBitmap result = new CompressedBitmap();
+		for(Postings postings:prefixMap(prefix).values())
+		{
+			result = result.or(postings.docs());
+		}
+		return result;
+	}
+
+	/**
+	 * @param phrase Lowercase words that must appear consecutively
+	 * @return The ordinals of the documents containing the words in order
+	 * within a single section. The caller may modify the returned set.
+	 */
+	public CompressedBitmap phrase(List<String> phrase)
+	{
+		return phrase(phrase, false, null);
+	}
+
+	/**
+	 * Matches text the way Scryfall's text keywords do: the words of the text
+	 * must appear in order, and the last word may be the start of a longer word.
+	 * @param text The text to look for
+	 * @return The ordinals of the matching documents. The caller may modify the
+	 * returned set.
+	 */
+	public CompressedBitmap match(String text)
+	{
+		return match(text, null);
+	}
+
+	/**
+	 * Matches text like {@link #match(String)}, but only among the given
+	 * documents. Only the candidates' postings are examined, so a small
+	 * candidate set is answered much faster than a search of every document.
+	 * @param text The text to look for
+	 * @param candidates The ordinals to consider, or null for every document
+	 * @return The ordinals of the matching candidates. The caller may modify
+	 * the returned set.
+	 */
+	public CompressedBitmap match(String text, CompressedBitmap candidates)
+	{
+		List<String> tokens = tokenize(text);
+		if(tokens.isEmpty())
+		{
+			CompressedBitmap all = CompressedBitmap.range(0, lastOrdinal + 1);
+			return candidates == null ? all : all.and(candidates);
+		}
+		return phrase(tokens, true, candidates);
+	}
+
+	/**
+	 * @return The number of distinct words indexed.
+	 */
+	public int getTermCount()
+	{
+		return terms.size();
+	}
+
+	/**
+	 * @return The number of bytes used by the encoded posting lists.
+	 */
+	public long getPostingsSize()
+	{
+		long size = 0;
+		for(Postings postings:terms.values())
+		{
+			size += postings.docsLength + postings.positionsLength + 12L * postings.skipCount;
+		}
+		return size;
+	}
+
+	/**
+	 * Splits text into lowercase words of letters and digits. Apostrophes
+	 * within words are dropped, so that "don't" becomes "dont".
+	 * @param text The text to split
+	 * @return The words in order
+	 */
+	public static List<String> tokenize(String text)
+	{
+		List<String> tokens = new ArrayList<String>();
+		StringBuilder token = new StringBuilder();
+		String lower = text.toLowerCase(Locale.ROOT);
+		for(int i = 0; i < lower.length(); i++)
+		{
+			char c = lower.charAt(i);
+			if(Character.isLetterOrDigit(c))
+			{
+				token.append(c);
+			}
+			else if((c == '\'' || c == '’') && token.length() > 0)
+			{
+				continue;
+			}
+			else if(token.length() > 0)
+			{
+				tokens.add(token.toString());
+				token.setLength(0);
+			}
+		}
+		if(token.length() > 0)
+		{
+			tokens.add(token.toString());
+		}
+		return tokens;
+	}
+
+	/**
+	 * Finds the documents containing the words in order, by stepping through
+	 * the posting lists of every word together and only decoding positions
+	 * for documents that contain all of them.
+	 */
+	private CompressedBitmap phrase(List<String> phrase, boolean prefixLast, CompressedBitmap candidates)
+	{
+		int last = phrase.size() - 1;
+		if(phrase.size() == 1 && candidates == null)
+		{
+			return prefixLast ? prefix(phrase.get(0)) : term(phrase.get(0));
+		}
+		CompressedBitmap result = new CompressedBitmap();
+		Group[] groups = new Group[phrase.size()];
+		for(int i = 0; i <= last; i++)
+		{
+			Collection<Postings> postings;
+			if(prefixLast && i == last)
+			{
+				postings = prefixMap(phrase.get(i)).values();
+			}
+			else
+			{
+				Postings exact = terms.get(phrase.get(i));
+				postings = exact == null ? new ArrayList<Postings>() : Arrays.asList(exact);
+			}
+			if(postings.isEmpty())
+			{
+				return result;
+			}
+			groups[i] = new Group(postings);
+		}
+		//Step the rarest words first, so that most documents are ruled out early
+		Group[] order = groups.clone();
+		Arrays.sort(order, new Comparator<Group>() {
+			@Override
+			public int compare(Group a, Group b) {
+				return Long.compare(a.docCount, b.docCount);
+			}
+		});
+		int doc = 0;
+		while(true)
+		{
+			if(candidates != null && (doc = candidates.nextSetBit(doc)) < 0)
+			{
+				return result;
+			}
+			boolean aligned = true;
+			for(Group group:order)
+			{
+				int at = group.advance(doc);
+				if(at == Integer.MAX_VALUE)
+				{
+					return result;
+				}
+				if(at > doc)
+				{
+					doc = at;
+					aligned = false;
+					break;
+				}
+			}
+			if(aligned)
+			{
+				if(groups.length == 1 || inOrder(groups))
+				{
+					result.add(doc);
+				}
+				doc++;
+			}
+		}
+	}
+
+	/**
+	 * @return True if, in the document every group is on, some position of the
+	 * first word is followed by each of the other words in turn.
+	 */
+	private static boolean inOrder(Group[] groups)
+	{
+		int[][] positions = new int[groups.length][];
+		for(int i = 0; i < groups.length; i++)
+		{
+			positions[i] = groups[i].positions();
+		}
+		int[] starts = positions[0];
+		for(int s = 1; s <= starts[0]; s++)
+		{
+			boolean matches = true;
+			for(int i = 1; i < groups.length && matches; i++)
+			{
+				matches = Arrays.binarySearch(positions[i], 1, positions[i][0] + 1, starts[s] + i) >= 0;
+			}
+			if(matches)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private SortedMap<String,Postings> prefixMap(String prefix)
+	{
+		return terms.subMap(prefix, prefix + Character.MAX_VALUE);
+	}
+
+	/**
+	 * The documents and positions of one word. Documents are stored as deltas
+	 * from the previous document. For each document, its positions are stored
+	 * as the byte length of the block, the number of positions, and deltas
+	 * from the previous position, so that a reader can step over the block.
+	 */
+	private static final class Postings
+	{
+		private byte[] docs = new byte[4];
+		private int docsLength;
+		private byte[] positions = new byte[4];
+		private int positionsLength;
+		private int lastDoc = -1;
+		private int docCount;
+		//Triples of the document before the entry, and the offsets in each stream
+		private int[] skips = new int[0];
+		private int skipCount;
+
+		void add(int doc, int[] list)
+		{
+			if(docCount % SKIP_INTERVAL == 0 && docCount > 0)
+			{
+				if(skips.length < (skipCount + 1) * 3)
+				{
+					skips = Arrays.copyOf(skips, Math.max(6, skips.length * 2));
+				}
+				skips[skipCount * 3] = lastDoc;
+				skips[skipCount * 3 + 1] = docsLength;
+				skips[skipCount * 3 + 2] = positionsLength;
+				skipCount++;
+			}
+			docs = ensure(docs, docsLength + 5);
+			docsLength = writeVarInt(docs, docsLength, doc - lastDoc);
+			lastDoc = doc;
+			docCount++;
+
+			byte[] block = new byte[5 * (list[0] + 1)];
+			int blockLength = writeVarInt(block, 0, list[0]);
+			int last = 0;
+			for(int i = 1; i <= list[0]; i++)
+			{
+				blockLength = writeVarInt(block, blockLength, list[i] - last);
+				last = list[i];
+			}
+			positions = ensure(positions, positionsLength + 5 + blockLength);
+			positionsLength = writeVarInt(positions, positionsLength, blockLength);
+			System.arraycopy(block, 0, positions, positionsLength, blockLength);
+			positionsLength += blockLength;
+		}
+
+		/**
+		 * @return The documents containing the word.
+		 */
+		CompressedBitmap docs()
+		{
+			int[] ordinals = new int[docCount];
+			int doc = -1;
+			int offset = 0;
+			for(int n = 0; n < docCount; n++)
+			{
+				int value = 0;
+				int shift = 0;
+				byte b;
+				do
+				{
+					b = docs[offset++];
+					value |= (b & 0x7F) << shift;
+					shift += 7;
+				}
+				while(b < 0);
+				doc += value;
+				ordinals[n] = doc;
+			}
+			return CompressedBitmap.ofSorted(ordinals, docCount);
+		}
+
+		private static byte[] ensure(byte[] bytes, int length)
+		{
+			return length <= bytes.length ? bytes : Arrays.copyOf(bytes, Math.max(length, bytes.length * 2));
+		}
+
+		private static int writeVarInt(byte[] bytes, int offset, int value)
+		{
+			while((value & ~0x7F) != 0)
+			{
+				bytes[offset++] = (byte)((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			bytes[offset++] = (byte)value;
+			return offset;
+		}
+	}
+
+	/**
+	 * A position within one posting list.
+	 */
+	private static final class Cursor
+	{
+		private final Postings postings;
+		private int index = -1;
+		private int doc = -1;
+		private int docOffset;
+		private int blockStart;
+		private int nextBlock;
+
+		Cursor(Postings postings)
+		{
+			this.postings = postings;
+		}
+
+		/**
+		 * Moves to the first document at or after the target.
+		 * @return The document moved to, or Integer.MAX_VALUE if none remain.
+		 */
+		int advance(int target)
+		{
+			if(doc >= target)
+			{
+				return doc;
+			}
+			//Jump to the last skip entry that is ahead of us and still before the target
+			int[] skips = postings.skips;
+			int skip = -1;
+			for(int k = (index + 1) / SKIP_INTERVAL; k < postings.skipCount && skips[k * 3] < target; k++)
+			{
+				skip = k;
+			}
+			if(skip >= 0)
+			{
+				index = (skip + 1) * SKIP_INTERVAL - 1;
+				doc = skips[skip * 3];
+				docOffset = skips[skip * 3 + 1];
+				nextBlock = skips[skip * 3 + 2];
+			}
+			byte[] docs = postings.docs;
+			byte[] positions = postings.positions;
+			while(doc < target)
+			{
+				if(docOffset >= postings.docsLength)
+				{
+					doc = Integer.MAX_VALUE;
+					break;
+				}
+				index++;
+				int delta = 0;
+				int shift = 0;
+				byte b;
+				do
+				{
+					b = docs[docOffset++];
+					delta |= (b & 0x7F) << shift;
+					shift += 7;
+				}
+				while(b < 0);
+				doc += delta;
+				int length = 0;
+				shift = 0;
+				blockStart = nextBlock;
+				do
+				{
+					b = positions[blockStart++];
+					length |= (b & 0x7F) << shift;
+					shift += 7;
+				}
+				while(b < 0);
+				nextBlock = blockStart + length;
+			}
+			return doc;
+		}
+
+		/**
+		 * Appends the positions in the current document to a list.
+		 * @param list A count followed by that many positions
+		 * @return The list, reallocated if it had no room
+		 */
+		int[] positions(int[] list)
+		{
+			byte[] bytes = postings.positions;
+			int offset = blockStart;
+			boolean counted = false;
+			int count = list[0];
+			int position = 0;
+			while(offset < nextBlock)
+			{
+				int value = 0;
+				int shift = 0;
+				byte b;
+				do
+				{
+					b = bytes[offset++];
+					value |= (b & 0x7F) << shift;
+					shift += 7;
+				}
+				while(b < 0);
+				if(!counted)
+				{
+					counted = true;
+					if(list.length < count + value + 1)
+					{
+						list = Arrays.copyOf(list, Math.max(list.length * 2, count + value + 1));
+					}
+				}
+				else
+				{
+					position += value;
+					list[++count] = position;
+				}
+			}
+			list[0] = count;
+			return list;
+		}
+	}
+
+	/**
+	 * The posting lists of every word that can fill one place in a phrase:
+	 * a single word, or every completion of a prefix.
+	 */
+	private static final class Group
+	{
+		private final Cursor[] cursors;
+		private final long docCount;
+		private int doc = -1;
+		private int[] positions = new int[16];
+
+		Group(Collection<Postings> postings)
+		{
+			cursors = new Cursor[postings.size()];
+			long count = 0;
+			int i = 0;
+			for(Postings p:postings)
+			{
+				cursors[i++] = new Cursor(p);
+				count += p.docCount;
+			}
+			docCount = count;
+		}
+
+		/**
+		 * @return The first document at or after the target containing any of
+		 * the group's words, or Integer.MAX_VALUE if none remain.
+		 */
+		int advance(int target)
+		{
+			if(doc >= target)
+			{
+				return doc;
+			}
+			doc = Integer.MAX_VALUE;
+			for(Cursor cursor:cursors)
+			{
+				doc = Math.min(doc, cursor.advance(target));
+			}
+			return doc;
+		}
+
+		/**
+		 * @return The positions of the group's words in the current document,
+		 * as a count followed by the positions in increasing order.
+		 */
+		int[] positions()
+		{
+			positions[0] = 0;
+			for(Cursor cursor:cursors)
+			{
+				if(cursor.doc == doc)
+				{
+					positions = cursor.positions(positions);
+				}
+			}
+			if(cursors.length > 1)
+			{
+				Arrays.sort(positions, 1, positions[0] + 1);
+			}
+			return positions;
+		}
+	}
+}
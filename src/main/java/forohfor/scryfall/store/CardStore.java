@@ -0,0 +1,333 @@
+package forohfor.scryfall.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+import forohfor.scryfall.api.Card;
+
+/**
+ * A read-only catalog of cards kept in a memory-mapped file written by
+ * {@link CardStoreWriter}. Common fields are stored column by column, as
+ * fixed-width numbers and references into a shared string dictionary, and
+ * the cards returned are small views that read those columns straight from
+ * the mapping. Each card's full JSON is stored as well and decoded only when
+ * a field outside the columns is asked for. Opening a store reads nothing
+ * but its header, and the operating system pages in only what is used, so
+ * even a store of every printing costs next to no heap.
+ *
+ * Stores are safe to read from several threads at once.
+ * @author ForOhForError
+ */
+
+public final class CardStore implements Closeable, Iterable<Card> {
+
+	static final int MAGIC = 0x53464353;
+	static final int VERSION = 2;
+	static final int HEADER_SIZE = 64;
+	static final int STRING_OFFSETS = Column.values().length;
+	static final int STRING_BYTES = STRING_OFFSETS + 1;
+	static final int POOL = STRING_BYTES + 1;
+	static final int SECTION_COUNT = POOL + 1;
+
+	/**
+	 * The JSON section is mapped in windows of this size, each overlapping the
+	 * next by the longest card so that no card straddles two windows.
+	 */
+	private static final long WINDOW = 1L << 30;
+
+	private final Path file;
+	private final FileChannel channel;
+	private final ByteBuffer table;
+	private final int count;
+	private final int maxJsonLength;
+	private final long jsonOffset;
+	private final long jsonLength;
+	private final int stringCount;
+	private final int[] sections = new int[SECTION_COUNT];
+	private final MappedByteBuffer[] windows;
+
+	private CardStore(Path file, FileChannel channel) throws IOException
+	{
+		this.file = file;
+		this.channel = channel;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		while(header.hasRemaining())
+		{
+			if(channel.read(header, header.position()) < 0)
+			{
+				break;
+			}
+		}
+		header.flip();
+		if(header.remaining() < HEADER_SIZE || header.getInt() != MAGIC)
+		{
+			throw new IOException("Not a card store: "+file);
+		}
+		int version = header.getInt();
+		if(version != VERSION)
+		{
+			throw new IOException("Unsupported card store version "+version+" in "+file);
+		}
+		count = header.getInt();
+		maxJsonLength = header.getInt();
+		jsonOffset = header.getLong();
+		jsonLength = header.getLong();
+		long tableOffset = header.getLong();
+		long tableLength = header.getLong();
+		if(tableOffset + tableLength > channel.size())
+		{
+			throw new IOException("Truncated card store: "+file);
+		}
+		table = channel.map(FileChannel.MapMode.READ_ONLY, tableOffset, tableLength);
+		stringCount = table.getInt(0);
+		for(int i = 0; i < SECTION_COUNT; i++)
+		{
+			sections[i] = table.getInt(4 + 4 * i);
+		}
+		windows = new MappedByteBuffer[(int)((jsonLength + WINDOW - 1) / WINDOW)];
+	}
+
+	/**
+	 * Opens a store written by {@link CardStoreWriter}.
+	 * @param file The store file
+	 * @return The opened store
+	 * @throws IOException If the file cannot be read or is not a card store
+	 */
+	public static CardStore open(Path file) throws IOException
+	{
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try
+		{
+			return new CardStore(file, channel);
+		}
+		catch(IOException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return The file the store was opened from.
+	 */
+	public Path getFile()
+	{
+		return file;
+	}
+
+	/**
+	 * @return The number of cards in the store.
+	 */
+	public int size()
+	{
+		return count;
+	}
+
+	/**
+	 * @return The number of distinct strings in the store's dictionary.
+	 */
+	public int getStringCount()
+	{
+		return stringCount;
+	}
+
+	/**
+	 * @param ordinal The card's position in the store, from 0
+	 * @return A view of the card, which reads its fields from the store. Each
+	 * call makes a new view, and resolved parts are kept by the view, so hold
+	 * on to the views whose parts you resolve.
+	 */
+	public Card get(int ordinal)
+	{
+		if(ordinal < 0 || ordinal >= count)
+		{
+			throw new IndexOutOfBoundsException("Card "+ordinal+" of "+count);
+		}
+		return new StoredCard(this, ordinal);
+	}
+
+	/**
+	 * Finds a card by its Scryfall ID, by scanning the ID column.
+	 * @param id The Scryfall ID
+	 * @return The card's position in the store, or -1 if it is not there.
+	 */
+	public int indexOf(UUID id)
+	{
+		long most = id.getMostSignificantBits();
+		long least = id.getLeastSignificantBits();
+		int base = sections[Column.ID.ordinal()];
+		for(int i = 0; i < count; i++)
+		{
+			if(table.getLong(base + 16 * i) == most && table.getLong(base + 16 * i + 8) == least
+					&& (getInt(Column.FLAGS, i) & Column.HAS_ID) != 0)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds a card by its Scryfall ID, by scanning the ID column.
+	 * @param id The Scryfall ID
+	 * @return A view of the card, or null if it is not there.
+	 */
+	public Card getCard(UUID id)
+	{
+		int ordinal = indexOf(id);
+		return ordinal < 0 ? null : get(ordinal);
+	}
+
+	@Override
+	public Iterator<Card> iterator()
+	{
+		return new Iterator<Card>() {
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next < count;
+			}
+
+			@Override
+			public Card next() {
+				if(!hasNext())
+				{
+					throw new NoSuchElementException();
+				}
+				return get(next++);
+			}
+		};
+	}
+
+	/**
+	 * Closes the file. The mapping itself is released once the store and its
+	 * cards are garbage collected, and cards keep working until then.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+
+	private int at(Column column, int ordinal)
+	{
+		return sections[column.ordinal()] + column.width * ordinal;
+	}
+
+	/**
+	 * @return The UUID an ID column holds for a card. Whether the card had
+	 * one at all is recorded in its flags.
+	 */
+	UUID uuid(Column column, int ordinal)
+	{
+		return new UUID(table.getLong(at(column, ordinal)), table.getLong(at(column, ordinal) + 8));
+	}
+
+	double getDouble(Column column, int ordinal)
+	{
+		return table.getDouble(at(column, ordinal));
+	}
+
+	int getByte(Column column, int ordinal)
+	{
+		return table.get(at(column, ordinal)) & 0xFF;
+	}
+
+	int getInt(Column column, int ordinal)
+	{
+		return table.getInt(at(column, ordinal));
+	}
+
+	/**
+	 * @return The string a string column holds for a card, or null.
+	 */
+	String string(Column column, int ordinal)
+	{
+		return string(getInt(column, ordinal));
+	}
+
+	/**
+	 * @param id A dictionary reference
+	 * @return The referenced string, or null if the reference is -1.
+	 */
+	String string(int id)
+	{
+		if(id < 0)
+		{
+			return null;
+		}
+		int offsets = sections[STRING_OFFSETS];
+		int start = table.getInt(offsets + 4 * id);
+		int end = table.getInt(offsets + 4 * id + 4);
+		return decode(table, sections[STRING_BYTES] + start, end - start);
+	}
+
+	/**
+	 * @param column An array column
+	 * @param ordinal The card
+	 * @return The card's values from the array pool, or null if it has none.
+	 */
+	int[] array(Column column, int ordinal)
+	{
+		int start = getInt(column, ordinal);
+		if(start < 0)
+		{
+			return null;
+		}
+		int pool = sections[POOL];
+		int[] values = new int[table.getInt(pool + 4 * start)];
+		for(int i = 0; i < values.length; i++)
+		{
+			values[i] = table.getInt(pool + 4 * (start + 1 + i));
+		}
+		return values;
+	}
+
+	/**
+	 * @return The card's JSON text.
+	 */
+	String json(int ordinal)
+	{
+		long start = table.getLong(at(Column.JSON, ordinal));
+		long end = table.getLong(at(Column.JSON, ordinal) + 8);
+		int window = (int)(start / WINDOW);
+		return decode(window(window), (int)(start - window * WINDOW), (int)(end - start));
+	}
+
+	private synchronized ByteBuffer window(int index)
+	{
+		if(windows[index] == null)
+		{
+			long start = index * WINDOW;
+			long size = Math.min(WINDOW + maxJsonLength, jsonLength - start);
+			try
+			{
+				windows[index] = channel.map(FileChannel.MapMode.READ_ONLY, jsonOffset + start, size);
+			}
+			catch(IOException e)
+			{
+				throw new IllegalStateException("Cannot map "+file, e);
+			}
+		}
+		return windows[index];
+	}
+
+	private static String decode(ByteBuffer buffer, int offset, int length)
+	{
+		byte[] bytes = new byte[length];
+		ByteBuffer view = buffer.duplicate();
+		view.position(offset);
+		view.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
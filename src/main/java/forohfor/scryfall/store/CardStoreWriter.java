@@ -0,0 +1,379 @@
+package forohfor.scryfall.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import forohfor.scryfall.api.Card;
+import forohfor.scryfall.api.CardSink;
+import forohfor.scryfall.api.Color;
+import forohfor.scryfall.api.JSONUtil;
+
+/**
+ * Writes cards into a {@link CardStore} file. Each card's JSON is streamed
+ * to disk as it arrives, while the much smaller columns and string
+ * dictionary are kept in memory until {@link #close()} appends them and
+ * moves the finished file into place. Pass the writer to
+ * {@link forohfor.scryfall.api.BulkDataReader#read} to build a store from a
+ * bulk data file.
+ * @author ForOhForError
+ */
+
+public class CardStoreWriter implements CardSink, Closeable {
+
+	private final Path file;
+	private final Path temp;
+	private final FileChannel channel;
+	private final EnumMap<Column,ByteArrayOutputStream> buffers =
+			new EnumMap<Column,ByteArrayOutputStream>(Column.class);
+	private final EnumMap<Column,DataOutputStream> columns =
+			new EnumMap<Column,DataOutputStream>(Column.class);
+	private final HashMap<String,Integer> stringIds = new HashMap<String,Integer>();
+	private final ArrayList<String> strings = new ArrayList<String>();
+	private int[] pool = new int[1024];
+	private int poolSize;
+	private long jsonBytes;
+	private int maxJsonLength;
+	private int count;
+	private boolean closed;
+
+	/**
+	 * Starts writing a store. Nothing appears at the given path until the
+	 * writer is closed.
+	 * @param file The file to write, replaced if it exists
+	 * @throws IOException If the temporary file cannot be created
+	 */
+	public CardStoreWriter(Path file) throws IOException
+	{
+		this.file = file.toAbsolutePath();
+		this.temp = Files.createTempFile(this.file.getParent(), this.file.getFileName().toString(), ".tmp");
+		this.channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+		channel.position(CardStore.HEADER_SIZE);
+		for(Column column:Column.values())
+		{
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			buffers.put(column, buffer);
+			columns.put(column, new DataOutputStream(buffer));
+		}
+		for(Column column:Column.values())
+		{
+			if(column.bounded)
+			{
+				writeBound(column, 0);
+			}
+		}
+	}
+
+	@Override
+	public void accept(Card card) throws IOException
+	{
+		if(closed)
+		{
+			throw new IOException("Writer is closed");
+		}
+		JSONObject json = card.getJSONData();
+
+		byte[] bytes = json.toJSONString().getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		while(buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+		jsonBytes += bytes.length;
+		maxJsonLength = Math.max(maxJsonLength, bytes.length);
+		writeBound(Column.JSON, jsonBytes);
+
+		int flags = 0;
+		if(writeUUID(Column.ID, JSONUtil.getStringData(json, "id")))
+		{
+			flags |= Column.HAS_ID;
+		}
+		if(writeUUID(Column.ORACLE_ID, JSONUtil.getStringData(json, "oracle_id")))
+		{
+			flags |= Column.HAS_ORACLE_ID;
+		}
+		Object cmc = json.get("cmc");
+		columns.get(Column.CMC).writeDouble(cmc instanceof Number ? ((Number)cmc).doubleValue() : Double.NaN);
+		if(cmc instanceof Double)
+		{
+			flags |= Column.CMC_IS_DOUBLE;
+		}
+		writeColors(Column.COLORS, json.get("colors"));
+		writeColors(Column.COLOR_IDENTITY, json.get("color_identity"));
+		for(int bit = 0; bit < Column.FLAGS_KEYS.length; bit++)
+		{
+			Object flag = json.get(Column.FLAGS_KEYS[bit]);
+			if(flag instanceof Boolean)
+			{
+				flags |= 1 << (bit + Column.PRESENT_SHIFT);
+			}
+			if(Boolean.TRUE.equals(flag))
+			{
+				flags |= 1 << bit;
+			}
+		}
+		columns.get(Column.FLAGS).writeInt(flags);
+		writeInt(Column.EDHREC_RANK, JSONUtil.getIntData(json, "edhrec_rank"));
+		writeInt(Column.ARENA_ID, JSONUtil.getIntData(json, "arena_id"));
+		for(Column column:Column.values())
+		{
+			if(column.key != null)
+			{
+				columns.get(column).writeInt(stringId(JSONUtil.getStringData(json, column.key)));
+			}
+		}
+
+		Object keywords = json.get("keywords");
+		int start = -1;
+		if(keywords instanceof JSONArray)
+		{
+			JSONArray array = (JSONArray)keywords;
+			start = addToPool(array.size());
+			for(Object keyword:array)
+			{
+				addToPool(stringId(String.valueOf(keyword)));
+			}
+		}
+		columns.get(Column.KEYWORDS).writeInt(start);
+		Object multiverseIDs = json.get("multiverse_ids");
+		start = -1;
+		if(multiverseIDs instanceof JSONArray)
+		{
+			JSONArray array = (JSONArray)multiverseIDs;
+			start = addToPool(array.size());
+			for(Object id:array)
+			{
+				addToPool(id instanceof Number ? ((Number)id).intValue() : 0);
+			}
+		}
+		columns.get(Column.MULTIVERSE_IDS).writeInt(start);
+		Object legalities = json.get("legalities");
+		start = -1;
+		if(legalities instanceof JSONObject)
+		{
+			JSONObject map = (JSONObject)legalities;
+			start = addToPool(2 * map.size());
+			for(Object entry:map.entrySet())
+			{
+				Map.Entry<?,?> legality = (Map.Entry<?,?>)entry;
+				addToPool(stringId(String.valueOf(legality.getKey())));
+				addToPool(stringId(String.valueOf(legality.getValue())));
+			}
+		}
+		columns.get(Column.LEGALITIES).writeInt(start);
+		count++;
+	}
+
+	/**
+	 * @return The number of cards written so far.
+	 */
+	public int getCardsWritten()
+	{
+		return count;
+	}
+
+	/**
+	 * Writes the columns and dictionary, then moves the finished store into
+	 * place.
+	 * @throws IOException If the store cannot be written
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if(closed)
+		{
+			return;
+		}
+		closed = true;
+		try
+		{
+			long tableOffset = CardStore.HEADER_SIZE + jsonBytes;
+			channel.position(tableOffset);
+			long tableLength = writeTable();
+			ByteBuffer header = ByteBuffer.allocate(CardStore.HEADER_SIZE);
+			header.putInt(CardStore.MAGIC);
+			header.putInt(CardStore.VERSION);
+			header.putInt(count);
+			header.putInt(maxJsonLength);
+			header.putLong(CardStore.HEADER_SIZE);
+			header.putLong(jsonBytes);
+			header.putLong(tableOffset);
+			header.putLong(tableLength);
+			header.flip();
+			channel.position(0);
+			while(header.hasRemaining())
+			{
+				channel.write(header);
+			}
+			channel.force(true);
+			channel.close();
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally
+		{
+			channel.close();
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Writes the section directory, the columns, the string dictionary and
+	 * the array pool at the channel's position.
+	 * @return The number of bytes written
+	 */
+	private long writeTable() throws IOException
+	{
+		byte[][] encoded = new byte[strings.size()][];
+		long stringBytes = 0;
+		for(int i = 0; i < encoded.length; i++)
+		{
+			encoded[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+			stringBytes += encoded[i].length;
+		}
+
+		int sections = CardStore.SECTION_COUNT;
+		long[] offsets = new long[sections];
+		long position = 4L * sections + 4;
+		for(Column column:Column.values())
+		{
+			offsets[column.ordinal()] = position;
+			position += column.size(count);
+		}
+		offsets[CardStore.STRING_OFFSETS] = position;
+		position += 4L * (encoded.length + 1);
+		offsets[CardStore.STRING_BYTES] = position;
+		position += stringBytes;
+		offsets[CardStore.POOL] = position;
+		position += 4L * poolSize;
+		if(position > Integer.MAX_VALUE)
+		{
+			throw new IOException("Card store tables exceed 2GB");
+		}
+
+		ByteBuffer directory = ByteBuffer.allocate(4 * sections + 4);
+		directory.putInt(encoded.length);
+		for(long offset:offsets)
+		{
+			directory.putInt((int)offset);
+		}
+		directory.flip();
+		writeFully(directory);
+		for(Column column:Column.values())
+		{
+			columns.get(column).flush();
+			writeFully(ByteBuffer.wrap(buffers.get(column).toByteArray()));
+			buffers.remove(column);
+		}
+		ByteBuffer stringOffsets = ByteBuffer.allocate(4 * (encoded.length + 1));
+		int offset = 0;
+		stringOffsets.putInt(offset);
+		for(byte[] bytes:encoded)
+		{
+			offset += bytes.length;
+			stringOffsets.putInt(offset);
+		}
+		stringOffsets.flip();
+		writeFully(stringOffsets);
+		for(byte[] bytes:encoded)
+		{
+			writeFully(ByteBuffer.wrap(bytes));
+		}
+		ByteBuffer poolBuffer = ByteBuffer.allocate(4 * poolSize);
+		poolBuffer.asIntBuffer().put(pool, 0, poolSize);
+		writeFully(poolBuffer);
+		return position;
+	}
+
+	private void writeFully(ByteBuffer buffer) throws IOException
+	{
+		while(buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+	}
+
+	private void writeBound(Column column, long value) throws IOException
+	{
+		if(column.width == 8)
+		{
+			columns.get(column).writeLong(value);
+		}
+		else
+		{
+			columns.get(column).writeInt((int)value);
+		}
+	}
+
+	/**
+	 * @return True if there was a UUID to write.
+	 */
+	private boolean writeUUID(Column column, String value) throws IOException
+	{
+		UUID uuid = value == null ? null : UUID.fromString(value);
+		DataOutputStream out = columns.get(column);
+		out.writeLong(uuid == null ? 0 : uuid.getMostSignificantBits());
+		out.writeLong(uuid == null ? 0 : uuid.getLeastSignificantBits());
+		return uuid != null;
+	}
+
+	private void writeColors(Column column, Object colors) throws IOException
+	{
+		int mask = 0;
+		if(colors instanceof JSONArray)
+		{
+			mask = Color.toMask((JSONArray)colors) | Column.PRESENT;
+		}
+		columns.get(column).writeByte(mask);
+	}
+
+	private void writeInt(Column column, Integer value) throws IOException
+	{
+		columns.get(column).writeInt(value == null ? Column.ABSENT : value);
+	}
+
+	private int stringId(String value)
+	{
+		if(value == null)
+		{
+			return -1;
+		}
+		Integer id = stringIds.get(value);
+		if(id == null)
+		{
+			id = strings.size();
+			strings.add(value);
+			stringIds.put(value, id);
+		}
+		return id;
+	}
+
+	/**
+	 * @return The value's index in the pool.
+	 */
+	private int addToPool(int value)
+	{
+		if(poolSize == pool.length)
+		{
+			pool = Arrays.copyOf(pool, poolSize * 2);
+		}
+		pool[poolSize] = value;
+		return poolSize++;
+	}
+}
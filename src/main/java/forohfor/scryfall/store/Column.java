@@ -0,0 +1,116 @@
+package forohfor.scryfall.store;
+
+/**
+ * The columns of a card store file, in the order they are laid out. Each
+ * holds one fixed-width entry per card; bounded columns hold one more, so
+ * that entry i and i+1 give the start and end of card i's range. Entries of
+ * the array columns point into the store's pool of ints, where each array
+ * is stored as its length followed by its values, or are -1 if the card
+ * has no such array.
+ * @author ForOhForError
+ */
+
+enum Column {
+
+	ID(16),
+	ORACLE_ID(16),
+	CMC(8),
+	JSON(8, true),
+	COLORS(1),
+	COLOR_IDENTITY(1),
+	FLAGS(4),
+	EDHREC_RANK(4),
+	ARENA_ID(4),
+	NAME("name"),
+	LANG("lang"),
+	LAYOUT("layout"),
+	MANA_COST("mana_cost"),
+	TYPE_LINE("type_line"),
+	ORACLE_TEXT("oracle_text"),
+	POWER("power"),
+	TOUGHNESS("toughness"),
+	LOYALTY("loyalty"),
+	RARITY("rarity"),
+	SET("set"),
+	SET_NAME("set_name"),
+	COLLECTOR_NUMBER("collector_number"),
+	ARTIST("artist"),
+	RELEASED_AT("released_at"),
+	KEYWORDS(4),
+	MULTIVERSE_IDS(4),
+	LEGALITIES(4);
+
+	/**
+	 * The boolean fields packed into the FLAGS column, by bit.
+	 */
+	static final String[] FLAGS_KEYS = {"foil", "nonfoil", "digital", "reserved", "promo", "reprint",
+			"oversized", "full_art", "textless", "variation", "story_spotlight", "booster"};
+
+	/**
+	 * How far above its value bit each boolean field's presence bit sits in a
+	 * FLAGS entry, so that an absent field can be told from a false one.
+	 */
+	static final int PRESENT_SHIFT = 16;
+
+	/**
+	 * Set in a FLAGS entry when the card's cmc was given as a JSON double,
+	 * the only form a plain Card reads it in.
+	 */
+	static final int CMC_IS_DOUBLE = 1 << 28;
+
+	/**
+	 * Set in a FLAGS entry when the card has a Scryfall ID, since an all-zero
+	 * ID column entry is itself a valid UUID.
+	 */
+	static final int HAS_ID = 1 << 14;
+
+	/**
+	 * Set in a FLAGS entry when the card has an Oracle ID.
+	 */
+	static final int HAS_ORACLE_ID = 1 << 15;
+
+	/**
+	 * Marks a COLORS or COLOR_IDENTITY entry whose field was present.
+	 */
+	static final int PRESENT = 0x80;
+
+	/**
+	 * Stands for an absent integer in EDHREC_RANK and ARENA_ID.
+	 */
+	static final int ABSENT = Integer.MIN_VALUE;
+
+	final int width;
+	final boolean bounded;
+	/**
+	 * The JSON key of a string column, whose entries are dictionary references.
+	 */
+	final String key;
+
+	private Column(int width)
+	{
+		this(width, false);
+	}
+
+	private Column(int width, boolean bounded)
+	{
+		this.width = width;
+		this.bounded = bounded;
+		this.key = null;
+	}
+
+	private Column(String key)
+	{
+		this.width = 4;
+		this.bounded = false;
+		this.key = key;
+	}
+
+	/**
+	 * @param count The number of cards in the store
+	 * @return The size of this column in bytes.
+	 */
+	long size(int count)
+	{
+		return (long)width * (bounded ? count + 1 : count);
+	}
+}
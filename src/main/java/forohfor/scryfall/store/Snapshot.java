@@ -0,0 +1,129 @@
+package forohfor.scryfall.store;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import forohfor.scryfall.api.Card;
+import forohfor.scryfall.api.CardSink;
+import forohfor.scryfall.api.Set;
+
+/**
+ * A collection of cards and sets that can be saved as a binary snapshot and
+ * loaded again without parsing JSON. For collections too large to hold
+ * twice, use {@link SnapshotWriter} and {@link SnapshotReader} directly.
+ * @author ForOhForError
+ */
+
+public class Snapshot {
+
+	private final List<Card> cards;
+	private final List<Set> sets;
+
+	/**
+	 * Creates a snapshot of the given cards and sets.
+	 * @param cards The cards
+	 * @param sets The sets
+	 */
+	public Snapshot(Collection<? extends Card> cards, Collection<Set> sets)
+	{
+		this.cards = Collections.unmodifiableList(new ArrayList<Card>(cards));
+		this.sets = Collections.unmodifiableList(new ArrayList<Set>(sets));
+	}
+
+	/**
+	 * @return The snapshot's cards.
+	 */
+	public List<Card> getCards()
+	{
+		return cards;
+	}
+
+	/**
+	 * @return The snapshot's sets.
+	 */
+	public List<Set> getSets()
+	{
+		return sets;
+	}
+
+	/**
+	 * Writes the snapshot to a stream, and closes it.
+	 * @param out The stream to write to
+	 * @param compress True to deflate the snapshot
+	 * @throws IOException If the stream cannot be written
+	 */
+	public void write(OutputStream out, boolean compress) throws IOException
+	{
+		write(new SnapshotWriter(out, compress));
+	}
+
+	/**
+	 * Writes the snapshot to a file.
+	 * @param file The file to write, replaced if it exists
+	 * @param compress True to deflate the snapshot
+	 * @throws IOException If the file cannot be written
+	 */
+	public void write(Path file, boolean compress) throws IOException
+	{
+		write(SnapshotWriter.create(file, compress));
+	}
+
+	private void write(SnapshotWriter writer) throws IOException
+	{
+		try
+		{
+			for(Set set:sets)
+			{
+				writer.write(set);
+			}
+			for(Card card:cards)
+			{
+				writer.accept(card);
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	/**
+	 * Reads a snapshot from a stream, and closes it.
+	 * @param in The stream to read
+	 * @return The snapshot
+	 * @throws IOException If the stream cannot be read or is not a snapshot
+	 */
+	public static Snapshot read(InputStream in) throws IOException
+	{
+		return read(new SnapshotReader(in));
+	}
+
+	/**
+	 * Reads a snapshot file.
+	 * @param file The file to read
+	 * @return The snapshot
+	 * @throws IOException If the file cannot be read or is not a snapshot
+	 */
+	public static Snapshot read(Path file) throws IOException
+	{
+		return read(SnapshotReader.open(file));
+	}
+
+	private static Snapshot read(SnapshotReader reader) throws IOException
+	{
+		final List<Card> cards = new ArrayList<Card>();
+		reader.readAll(new CardSink() {
+			@Override
+			public void accept(Card card) {
+				cards.add(card);
+			}
+		});
+		return new Snapshot(cards, reader.getSets());
+	}
+}
@@ -0,0 +1,382 @@
+package forohfor.scryfall.store;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import forohfor.scryfall.api.Card;
+import forohfor.scryfall.api.CardIterator;
+import forohfor.scryfall.api.CardSink;
+import forohfor.scryfall.api.CompiledCard;
+import forohfor.scryfall.api.ScryfallException;
+import forohfor.scryfall.api.Set;
+
+/**
+ * Reads a snapshot written by {@link SnapshotWriter}, one card at a time.
+ * Sets in the snapshot are collected as they are passed and can be fetched
+ * with {@link #getSets()}. Snapshots from any earlier format version can be
+ * read.
+ * @author ForOhForError
+ */
+
+public class SnapshotReader implements CardIterator {
+
+	private final DataInputStream in;
+	private final int version;
+	private final ArrayList<String> dictionary = new ArrayList<String>();
+	private final ArrayList<Set> sets = new ArrayList<Set>();
+	private byte[] record = new byte[4096];
+	private int position;
+	private int limit;
+	private boolean compiled;
+	private Card next;
+	private boolean closed;
+	private int read;
+
+	/**
+	 * Opens a snapshot on a stream, which the reader takes ownership of.
+	 * @param in The stream to read
+	 * @throws IOException If the stream is not a snapshot, or is from a newer version
+	 */
+	public SnapshotReader(InputStream in) throws IOException
+	{
+		DataInputStream header = new DataInputStream(in);
+		try
+		{
+			if(header.readInt() != SnapshotWriter.MAGIC)
+			{
+				throw new ScryfallException("Not a snapshot", null);
+			}
+			version = header.readInt();
+			if(version < 1 || version > SnapshotWriter.VERSION)
+			{
+				throw new ScryfallException("Unsupported snapshot version "+version, null);
+			}
+			int flags = header.readUnsignedByte();
+			if((flags & SnapshotWriter.FLAG_COMPRESSED) != 0)
+			{
+				in = new InflaterInputStream(in, new Inflater(), 1 << 16);
+			}
+		}
+		catch(IOException e)
+		{
+			in.close();
+			throw e;
+		}
+		this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+	}
+
+	/**
+	 * Opens a snapshot file.
+	 * @param file The file to read
+	 * @return A reader over the snapshot's cards
+	 * @throws IOException If the file cannot be opened or is not a snapshot
+	 */
+	public static SnapshotReader open(Path file) throws IOException
+	{
+		return new SnapshotReader(Files.newInputStream(file));
+	}
+
+	/**
+	 * Makes the reader produce CompiledCards.
+	 * @param compiled True to produce compiled cards
+	 * @return This reader
+	 */
+	public SnapshotReader withCompiledCards(boolean compiled)
+	{
+		this.compiled = compiled;
+		return this;
+	}
+
+	/**
+	 * @return The format version the snapshot was written with.
+	 */
+	public int getVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * @return The sets read so far. Once every card has been read, this is
+	 * every set in the snapshot.
+	 */
+	public List<Set> getSets()
+	{
+		return sets;
+	}
+
+	/**
+	 * Passes every remaining card to a sink, then closes this reader.
+	 * @param sink The sink to receive the cards
+	 * @return The number of cards passed to the sink
+	 * @throws IOException If the snapshot cannot be read, or the sink fails
+	 */
+	public long readAll(CardSink sink) throws IOException
+	{
+		long count = 0;
+		try
+		{
+			Card card;
+			while((card = readNext()) != null)
+			{
+				sink.accept(card);
+				count++;
+			}
+		}
+		finally
+		{
+			close();
+		}
+		return count;
+	}
+
+	/**
+	 * @return The number of cards read so far.
+	 */
+	public int getCardsRead()
+	{
+		return read;
+	}
+
+	/**
+	 * @return Always null, since a snapshot does not state its length up front.
+	 */
+	@Override
+	public Integer getTotalCards()
+	{
+		return null;
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		if(next == null && !closed)
+		{
+			try
+			{
+				next = readNext();
+			}
+			catch(IOException e)
+			{
+				close();
+				throw new UncheckedIOException(e);
+			}
+		}
+		return next != null;
+	}
+
+	@Override
+	public Card next()
+	{
+		if(!hasNext())
+		{
+			throw new NoSuchElementException();
+		}
+		Card card = next;
+		next = null;
+		return card;
+	}
+
+	@Override
+	public void close()
+	{
+		if(!closed)
+		{
+			closed = true;
+			try
+			{
+				in.close();
+			}
+			catch(IOException e)
+			{
+				//Nothing more can be read either way
+			}
+		}
+	}
+
+	private Card readNext() throws IOException
+	{
+		if(next != null)
+		{
+			Card card = next;
+			next = null;
+			return card;
+		}
+		while(!closed)
+		{
+			int kind;
+			try
+			{
+				kind = in.readUnsignedByte();
+			}
+			catch(EOFException e)
+			{
+				throw new ScryfallException("Snapshot ends without an end marker", e);
+			}
+			if(kind == SnapshotWriter.RECORD_END)
+			{
+				close();
+				return null;
+			}
+			int length = readVarint();
+			if(record.length < length)
+			{
+				record = new byte[Math.max(length, record.length * 2)];
+			}
+			in.readFully(record, 0, length);
+			position = 0;
+			limit = length;
+			Object value = readValue();
+			if(position != limit || !(value instanceof JSONObject))
+			{
+				throw new ScryfallException("Corrupt snapshot record", null);
+			}
+			JSONObject json = (JSONObject)value;
+			if(kind == SnapshotWriter.RECORD_CARD)
+			{
+				read++;
+				return compiled ? CompiledCard.fromOwnedJSON(json) : Card.fromOwnedJSON(json);
+			}
+			if(kind == SnapshotWriter.RECORD_SET)
+			{
+				sets.add(Set.fromOwnedJSON(json));
+			}
+			else
+			{
+				throw new ScryfallException("Unknown snapshot record kind "+kind, null);
+			}
+		}
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Object readValue() throws IOException
+	{
+		int tag = take();
+		switch(tag)
+		{
+			case SnapshotWriter.NULL:
+				return null;
+			case SnapshotWriter.FALSE:
+				return Boolean.FALSE;
+			case SnapshotWriter.TRUE:
+				return Boolean.TRUE;
+			case SnapshotWriter.LONG:
+				long n = takeVarint();
+				return (n >>> 1) ^ -(n & 1);
+			case SnapshotWriter.DOUBLE:
+				long bits = 0;
+				for(int i = 0; i < 8; i++)
+				{
+					bits = (bits << 8) | take();
+				}
+				return Double.longBitsToDouble(bits);
+			case SnapshotWriter.ARRAY:
+				int size = (int)takeVarint();
+				JSONArray array = new JSONArray();
+				array.ensureCapacity(Math.min(size, limit - position));
+				for(int i = 0; i < size; i++)
+				{
+					array.add(readValue());
+				}
+				return array;
+			case SnapshotWriter.OBJECT:
+				int entries = (int)takeVarint();
+				JSONObject object = new JSONObject();
+				for(int i = 0; i < entries; i++)
+				{
+					Object key = readValue();
+					if(!(key instanceof String))
+					{
+						throw new ScryfallException("Corrupt snapshot record", null);
+					}
+					object.put(key, readValue());
+				}
+				return object;
+			default:
+				return readString(tag);
+		}
+	}
+
+	private String readString(int tag) throws IOException
+	{
+		if(tag == SnapshotWriter.STRING_REF)
+		{
+			long id = takeVarint();
+			if(id >= dictionary.size())
+			{
+				throw new ScryfallException("Corrupt snapshot record", null);
+			}
+			return dictionary.get((int)id);
+		}
+		if(tag != SnapshotWriter.STRING_NEW && tag != SnapshotWriter.STRING_LITERAL)
+		{
+			throw new ScryfallException("Unknown snapshot value tag "+tag, null);
+		}
+		int length = (int)takeVarint();
+		if(length < 0 || position + length > limit)
+		{
+			throw new ScryfallException("Corrupt snapshot record", null);
+		}
+		String value = new String(record, position, length, StandardCharsets.UTF_8);
+		position += length;
+		if(tag == SnapshotWriter.STRING_NEW)
+		{
+			dictionary.add(value);
+		}
+		return value;
+	}
+
+	private int take() throws IOException
+	{
+		if(position >= limit)
+		{
+			throw new ScryfallException("Corrupt snapshot record", null);
+		}
+		return record[position++] & 0xFF;
+	}
+
+	private long takeVarint() throws IOException
+	{
+		long value = 0;
+		int shift = 0;
+		int b;
+		do
+		{
+			b = take();
+			value |= (long)(b & 0x7F) << shift;
+			shift += 7;
+		}
+		while((b & 0x80) != 0);
+		return value;
+	}
+
+	private int readVarint() throws IOException
+	{
+		int value = 0;
+		int shift = 0;
+		int b;
+		do
+		{
+			b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		}
+		while((b & 0x80) != 0);
+		return value;
+	}
+}
@@ -0,0 +1,286 @@
+package forohfor.scryfall.store;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import forohfor.scryfall.api.Card;
+import forohfor.scryfall.api.CardSink;
+import forohfor.scryfall.api.Set;
+
+/**
+ * Writes cards and sets into a snapshot, a compact binary copy of their JSON
+ * that {@link SnapshotReader} loads far faster than the JSON itself can be
+ * parsed.
+ *
+ * A snapshot starts with a magic number, the format version and a flags
+ * byte, followed by the records, which are deflated if the compressed flag
+ * is set. Each record is a kind byte, its length as a varint, and the
+ * record's JSON value encoded as tagged values. Strings are
+ * dictionary-encoded: the first occurrence of a string is written in full
+ * and numbered, and later ones are written as that number.
+ * @author ForOhForError
+ */
+
+public class SnapshotWriter implements CardSink, Closeable {
+
+	static final int MAGIC = 0x5346534E;
+	/**
+	 * The current format version. Readers accept this and every earlier version.
+	 */
+	static final int VERSION = 1;
+	static final int FLAG_COMPRESSED = 1;
+
+	static final int RECORD_END = 0;
+	static final int RECORD_CARD = 1;
+	static final int RECORD_SET = 2;
+
+	static final int NULL = 0;
+	static final int FALSE = 1;
+	static final int TRUE = 2;
+	static final int LONG = 3;
+	static final int DOUBLE = 4;
+	static final int STRING_REF = 5;
+	static final int STRING_NEW = 6;
+	static final int STRING_LITERAL = 7;
+	static final int ARRAY = 8;
+	static final int OBJECT = 9;
+
+	/**
+	 * The most strings numbered in the dictionary. Later new strings are
+	 * written in full every time, which bounds the memory both sides need.
+	 */
+	static final int MAX_DICTIONARY = 1 << 20;
+
+	private final DataOutputStream out;
+	private final HashMap<String,Integer> dictionary = new HashMap<String,Integer>();
+	private byte[] buffer = new byte[4096];
+	private int length;
+	private int cards;
+	private int sets;
+	private boolean closed;
+
+	/**
+	 * Starts a snapshot on a stream, which the writer takes ownership of.
+	 * @param out The stream to write to
+	 * @param compress True to deflate the records
+	 * @throws IOException If the header cannot be written
+	 */
+	public SnapshotWriter(OutputStream out, boolean compress) throws IOException
+	{
+		DataOutputStream header = new DataOutputStream(out);
+		header.writeInt(MAGIC);
+		header.writeInt(VERSION);
+		header.writeByte(compress ? FLAG_COMPRESSED : 0);
+		header.flush();
+		if(compress)
+		{
+			out = new DeflaterOutputStream(out, new Deflater(Deflater.BEST_SPEED), 1 << 16);
+		}
+		this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+	}
+
+	/**
+	 * Starts a snapshot file.
+	 * @param file The file to write, replaced if it exists
+	 * @param compress True to deflate the records
+	 * @return The writer
+	 * @throws IOException If the file cannot be created
+	 */
+	public static SnapshotWriter create(Path file, boolean compress) throws IOException
+	{
+		return new SnapshotWriter(Files.newOutputStream(file), compress);
+	}
+
+	@Override
+	public void accept(Card card) throws IOException
+	{
+		writeRecord(RECORD_CARD, card.getJSONData());
+		cards++;
+	}
+
+	/**
+	 * Writes a set.
+	 * @param set The set to write
+	 * @throws IOException If the stream cannot be written
+	 */
+	public void write(Set set) throws IOException
+	{
+		writeRecord(RECORD_SET, set.getJSONData());
+		sets++;
+	}
+
+	/**
+	 * @return The number of cards written so far.
+	 */
+	public int getCardsWritten()
+	{
+		return cards;
+	}
+
+	/**
+	 * @return The number of sets written so far.
+	 */
+	public int getSetsWritten()
+	{
+		return sets;
+	}
+
+	/**
+	 * Ends the snapshot and closes the stream.
+	 * @throws IOException If the stream cannot be written
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if(closed)
+		{
+			return;
+		}
+		closed = true;
+		try
+		{
+			out.writeByte(RECORD_END);
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	private void writeRecord(int kind, Object value) throws IOException
+	{
+		if(closed)
+		{
+			throw new IOException("Writer is closed");
+		}
+		length = 0;
+		writeValue(value);
+		out.writeByte(kind);
+		writeVarint(out, length);
+		out.write(buffer, 0, length);
+	}
+
+	private void writeValue(Object value)
+	{
+		if(value == null)
+		{
+			put(NULL);
+		}
+		else if(value instanceof Boolean)
+		{
+			put((Boolean)value ? TRUE : FALSE);
+		}
+		else if(value instanceof Long || value instanceof Integer)
+		{
+			put(LONG);
+			long n = ((Number)value).longValue();
+			putVarint((n << 1) ^ (n >> 63));
+		}
+		else if(value instanceof Number)
+		{
+			put(DOUBLE);
+			long bits = Double.doubleToRawLongBits(((Number)value).doubleValue());
+			for(int shift = 56; shift >= 0; shift -= 8)
+			{
+				put((int)(bits >>> shift));
+			}
+		}
+		else if(value instanceof Map)
+		{
+			Map<?,?> map = (Map<?,?>)value;
+			put(OBJECT);
+			putVarint(map.size());
+			for(Map.Entry<?,?> entry:map.entrySet())
+			{
+				writeString(String.valueOf(entry.getKey()));
+				writeValue(entry.getValue());
+			}
+		}
+		else if(value instanceof List)
+		{
+			List<?> list = (List<?>)value;
+			put(ARRAY);
+			putVarint(list.size());
+			for(Object element:list)
+			{
+				writeValue(element);
+			}
+		}
+		else
+		{
+			writeString(value.toString());
+		}
+	}
+
+	private void writeString(String value)
+	{
+		Integer id = dictionary.get(value);
+		if(id != null)
+		{
+			put(STRING_REF);
+			putVarint(id);
+			return;
+		}
+		if(dictionary.size() < MAX_DICTIONARY)
+		{
+			dictionary.put(value, dictionary.size());
+			put(STRING_NEW);
+		}
+		else
+		{
+			put(STRING_LITERAL);
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		putVarint(bytes.length);
+		ensure(bytes.length);
+		System.arraycopy(bytes, 0, buffer, length, bytes.length);
+		length += bytes.length;
+	}
+
+	private void put(int b)
+	{
+		ensure(1);
+		buffer[length++] = (byte)b;
+	}
+
+	private void putVarint(long value)
+	{
+		ensure(10);
+		while((value & ~0x7FL) != 0)
+		{
+			buffer[length++] = (byte)((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[length++] = (byte)value;
+	}
+
+	private void ensure(int extra)
+	{
+		if(length + extra > buffer.length)
+		{
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+		}
+	}
+
+	private static void writeVarint(DataOutputStream out, int value) throws IOException
+	{
+		while((value & ~0x7F) != 0)
+		{
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+}
@@ -0,0 +1,446 @@
+package forohfor.scryfall.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import forohfor.scryfall.api.Card;
+import forohfor.scryfall.api.CardFace;
+import forohfor.scryfall.api.CardReference;
+import forohfor.scryfall.api.Color;
+import forohfor.scryfall.api.JSONUtil;
+import forohfor.scryfall.api.Layout;
+import forohfor.scryfall.api.Legality;
+import forohfor.scryfall.api.Rarity;
+
+/**
+ * A view of one card in a {@link CardStore}. It holds only the store and the
+ * card's position; columned fields are read from the mapping on each call,
+ * and anything else is read from the card's JSON, which is decoded afresh
+ * each time it is needed. Getters behave exactly as a plain Card's do:
+ * lists and maps are fresh copies, and where a field is absent and a plain
+ * Card would throw, the call falls through to Card's own getter, which
+ * throws the same way.
+ * @author ForOhForError
+ */
+
+final class StoredCard extends Card {
+
+	private static final int FOIL = bit("foil");
+	private static final int NONFOIL = bit("nonfoil");
+	private static final int DIGITAL = bit("digital");
+	private static final int RESERVED = bit("reserved");
+	private static final int PROMO = bit("promo");
+	private static final int REPRINT = bit("reprint");
+	private static final int OVERSIZED = bit("oversized");
+	private static final int FULL_ART = bit("full_art");
+	private static final int TEXTLESS = bit("textless");
+	private static final int VARIATION = bit("variation");
+	private static final int STORY_SPOTLIGHT = bit("story_spotlight");
+	private static final int BOOSTER = bit("booster");
+
+	private final CardStore store;
+	private final int ordinal;
+	private volatile Card parts;
+
+	StoredCard(CardStore store, int ordinal)
+	{
+		this.store = store;
+		this.ordinal = ordinal;
+	}
+
+	/**
+	 * @return A newly decoded copy of the card's JSON data.
+	 */
+	@Override
+	public JSONObject getJSONData()
+	{
+		try
+		{
+			return (JSONObject)new JSONParser().parse(store.json(ordinal));
+		}
+		catch(ParseException e)
+		{
+			throw new IllegalStateException("Corrupt card "+ordinal+" in "+store.getFile(), e);
+		}
+	}
+
+	/**
+	 * @return The card's related parts. They are decoded on the first call
+	 * and kept by this view, so a reference filled in by a
+	 * {@link forohfor.scryfall.api.ReferenceResolver} stays filled in.
+	 */
+	@Override
+	public ArrayList<CardReference> getAllParts()
+	{
+		return parts().getAllParts();
+	}
+
+	/**
+	 * @return The card's faces, decoded on the first call and kept by this view.
+	 */
+	@Override
+	public List<CardFace> getCardFaces()
+	{
+		return parts().getCardFaces();
+	}
+
+	/**
+	 * @return A plain card decoded from the JSON once, holding the parts and
+	 * faces this view hands out.
+	 */
+	private Card parts()
+	{
+		Card decoded = parts;
+		if(decoded == null)
+		{
+			synchronized(this)
+			{
+				decoded = parts;
+				if(decoded == null)
+				{
+					decoded = Card.fromOwnedJSON(getJSONData());
+					parts = decoded;
+				}
+			}
+		}
+		return decoded;
+	}
+
+	@Override
+	public Integer getArenaID()
+	{
+		int id = store.getInt(Column.ARENA_ID, ordinal);
+		return id == Column.ABSENT ? null : id;
+	}
+
+	@Override
+	public UUID getScryfallUUID()
+	{
+		return flag(Column.HAS_ID) ? store.uuid(Column.ID, ordinal) : super.getScryfallUUID();
+	}
+
+	@Override
+	public String getLang()
+	{
+		return store.string(Column.LANG, ordinal);
+	}
+
+	@Override
+	public List<Integer> getMultiverseIDs()
+	{
+		int[] ids = store.array(Column.MULTIVERSE_IDS, ordinal);
+		if(ids == null)
+		{
+			return super.getMultiverseIDs();
+		}
+		Integer[] boxed = new Integer[ids.length];
+		for(int i = 0; i < ids.length; i++)
+		{
+			boxed[i] = ids[i];
+		}
+		return Arrays.asList(boxed);
+	}
+
+	@Override
+	public UUID getOracleID()
+	{
+		return flag(Column.HAS_ORACLE_ID) ? store.uuid(Column.ORACLE_ID, ordinal) : super.getOracleID();
+	}
+
+	@Override
+	public Double getCmc()
+	{
+		return flag(Column.CMC_IS_DOUBLE) ? store.getDouble(Column.CMC, ordinal) : null;
+	}
+
+	@Override
+	public List<String> getKeywords()
+	{
+		int[] ids = store.array(Column.KEYWORDS, ordinal);
+		if(ids == null)
+		{
+			return super.getKeywords();
+		}
+		String[] keywords = new String[ids.length];
+		for(int i = 0; i < ids.length; i++)
+		{
+			keywords[i] = store.string(ids[i]);
+		}
+		return Arrays.asList(keywords);
+	}
+
+	@Override
+	public List<String> getColors()
+	{
+		List<String> colors = colors(Column.COLORS);
+		return colors == null ? super.getColors() : colors;
+	}
+
+	@Override
+	public EnumSet<Color> getColorSet()
+	{
+		return Color.fromMask(store.getByte(Column.COLORS, ordinal) & ~Column.PRESENT);
+	}
+
+	@Override
+	public List<String> getColorIdentity()
+	{
+		List<String> colors = colors(Column.COLOR_IDENTITY);
+		return colors == null ? super.getColorIdentity() : colors;
+	}
+
+	@Override
+	public EnumSet<Color> getColorIdentitySet()
+	{
+		return Color.fromMask(store.getByte(Column.COLOR_IDENTITY, ordinal) & ~Column.PRESENT);
+	}
+
+	private List<String> colors(Column column)
+	{
+		int mask = store.getByte(column, ordinal);
+		if((mask & Column.PRESENT) == 0)
+		{
+			return null;
+		}
+		List<String> colors = new ArrayList<String>();
+		for(Color color:Color.fromMask(mask))
+		{
+			colors.add(String.valueOf(color.getSymbol()));
+		}
+		return Arrays.asList(colors.toArray(new String[colors.size()]));
+	}
+
+	@Override
+	public Integer getEDHRecRank()
+	{
+		int rank = store.getInt(Column.EDHREC_RANK, ordinal);
+		return rank == Column.ABSENT ? null : rank;
+	}
+
+	private static int bit(String key)
+	{
+		return 1 << Arrays.asList(Column.FLAGS_KEYS).indexOf(key);
+	}
+
+	private boolean flag(int bit)
+	{
+		return (store.getInt(Column.FLAGS, ordinal) & bit) != 0;
+	}
+
+	private boolean present(int bit)
+	{
+		return flag(bit << Column.PRESENT_SHIFT);
+	}
+
+	@Override
+	public boolean hasFoil()
+	{
+		return present(FOIL) ? flag(FOIL) : super.hasFoil();
+	}
+
+	@Override
+	public String getLayout()
+	{
+		return store.string(Column.LAYOUT, ordinal);
+	}
+
+	@Override
+	public Layout getLayoutType()
+	{
+		return Layout.fromCode(getLayout());
+	}
+
+	@Override
+	public HashMap<String, String> getLegalities()
+	{
+		HashMap<String, String> legalities = legalities();
+		return legalities == null ? super.getLegalities() : legalities;
+	}
+
+	private HashMap<String, String> legalities()
+	{
+		int[] pairs = store.array(Column.LEGALITIES, ordinal);
+		if(pairs == null)
+		{
+			return null;
+		}
+		HashMap<String, String> legalities = new HashMap<String, String>();
+		for(int i = 0; i + 1 < pairs.length; i += 2)
+		{
+			legalities.put(store.string(pairs[i]), store.string(pairs[i + 1]));
+		}
+		return legalities;
+	}
+
+	@Override
+	public String getLegality(String format)
+	{
+		HashMap<String, String> legalities = legalities();
+		return legalities == null ? null : legalities.get(format.toLowerCase());
+	}
+
+	@Override
+	public Legality getLegalityStatus(String format)
+	{
+		return Legality.fromCode(getLegality(format));
+	}
+
+	@Override
+	public String getLoyalty()
+	{
+		return store.string(Column.LOYALTY, ordinal);
+	}
+
+	@Override
+	public String getManaCost()
+	{
+		return store.string(Column.MANA_COST, ordinal);
+	}
+
+	@Override
+	public String getName()
+	{
+		return store.string(Column.NAME, ordinal);
+	}
+
+	@Override
+	public boolean hasNonfoil()
+	{
+		return present(NONFOIL) ? flag(NONFOIL) : super.hasNonfoil();
+	}
+
+	@Override
+	public String getOracleText()
+	{
+		return store.string(Column.ORACLE_TEXT, ordinal);
+	}
+
+	@Override
+	public boolean isOversized()
+	{
+		return present(OVERSIZED) ? flag(OVERSIZED) : super.isOversized();
+	}
+
+	@Override
+	public String getPower()
+	{
+		return store.string(Column.POWER, ordinal);
+	}
+
+	@Override
+	public boolean isReserved()
+	{
+		return present(RESERVED) ? flag(RESERVED) : super.isReserved();
+	}
+
+	@Override
+	public String getToughness()
+	{
+		return store.string(Column.TOUGHNESS, ordinal);
+	}
+
+	@Override
+	public String getTypeLine()
+	{
+		return store.string(Column.TYPE_LINE, ordinal);
+	}
+
+	@Override
+	public String getArtist()
+	{
+		return store.string(Column.ARTIST, ordinal);
+	}
+
+	@Override
+	public boolean isInBoosters()
+	{
+		return present(BOOSTER) ? flag(BOOSTER) : super.isInBoosters();
+	}
+
+	@Override
+	public String getCollectorNumber()
+	{
+		return store.string(Column.COLLECTOR_NUMBER, ordinal);
+	}
+
+	@Override
+	public boolean isDigital()
+	{
+		return present(DIGITAL) ? flag(DIGITAL) : super.isDigital();
+	}
+
+	@Override
+	public boolean isFullArt()
+	{
+		return present(FULL_ART) ? flag(FULL_ART) : super.isFullArt();
+	}
+
+	@Override
+	public boolean isPromo()
+	{
+		return present(PROMO) ? flag(PROMO) : super.isPromo();
+	}
+
+	@Override
+	public String getRarity()
+	{
+		return store.string(Column.RARITY, ordinal);
+	}
+
+	@Override
+	public Rarity getRarityType()
+	{
+		return Rarity.fromCode(getRarity());
+	}
+
+	@Override
+	public Date getReleasedAt()
+	{
+		return JSONUtil.parseIsoDate(store.string(Column.RELEASED_AT, ordinal));
+	}
+
+	@Override
+	public boolean isReprint()
+	{
+		return present(REPRINT) ? flag(REPRINT) : super.isReprint();
+	}
+
+	@Override
+	public String getSetName()
+	{
+		return store.string(Column.SET_NAME, ordinal);
+	}
+
+	@Override
+	public String getSetCode()
+	{
+		return store.string(Column.SET, ordinal);
+	}
+
+	@Override
+	public boolean isStorySpotlight()
+	{
+		return present(STORY_SPOTLIGHT) ? flag(STORY_SPOTLIGHT) : super.isStorySpotlight();
+	}
+
+	@Override
+	public boolean isTextless()
+	{
+		return present(TEXTLESS) ? flag(TEXTLESS) : super.isTextless();
+	}
+
+	@Override
+	public boolean isVariation()
+	{
+		return present(VARIATION) ? flag(VARIATION) : super.isVariation();
+	}
+}